@@ -0,0 +1,49 @@
+package com.example.juc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 条带化准入控制与SemaphoreBenchmark同场景的对比:10个许可,持有期间consumeCPU.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdmissionBenchmark {
+
+    @Param({"100"})
+    long work;
+
+    AdmissionController controller;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        controller = new AdmissionController(10);
+    }
+
+    @Benchmark
+    public void acquireRelease() throws InterruptedException {
+        controller.acquire();
+        try {
+            Blackhole.consumeCPU(work);
+        } finally {
+            controller.release();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.juc;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口,统一挂上GC/分配速率profiler,并依次按给定线程数运行.
+ * 参数:第一个为基准类名正则(默认全部),其后为线程数列表(默认1和可用处理器数).
+ * 如:java -cp target/benchmarks.jar com.example.juc.BenchmarkRunner Semaphore 1 4 16
+ * 注意:@Group类型的基准(生产者/消费者配对)线程数由@GroupThreads决定,不受线程数参数影响.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : ".*";
+        int[] threads;
+        if (args.length > 1) {
+            threads = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                threads[i - 1] = Integer.parseInt(args[i]);
+            }
+        } else {
+            threads = new int[]{1, Runtime.getRuntime().availableProcessors()};
+        }
+        for (int t : threads) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(include)
+                    .threads(t)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(org.openjdk.jmh.results.format.ResultFormatType.JSON)
+                    .result("jmh-result-t" + t + ".json");
+            new Runner(options.build()).run();
+        }
+    }
+}
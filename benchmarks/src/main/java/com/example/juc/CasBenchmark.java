@@ -0,0 +1,84 @@
+package com.example.juc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicStampedReference;
+
+/**
+ * 对应CASTest:AtomicInteger与AtomicStampedReference的CAS自增对比.
+ * AtomicStampedReference每次成功的CAS都会分配一个新的Pair,Integer超出缓存范围也会分配.
+ * StampedInt把值和印戳打包在一个long中,不分配;StampedReference在几个复用的对象之间轮换,
+ * 与AtomicStampedReference在同样的对象之间轮换对比.用-prof gc查看每次操作的分配量.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CasBenchmark {
+
+    final AtomicInteger number = new AtomicInteger(0);
+    final AtomicStampedReference<Integer> refer = new AtomicStampedReference<>(0, 1);
+    final StampedInt stampedInt = new StampedInt(0, 1);
+    final Object[] states = {new Object(), new Object(), new Object(), new Object()};
+    final AtomicStampedReference<Object> rotating = new AtomicStampedReference<>(states[0], 0);
+    final StampedReference<Object> stampedRef = new StampedReference<>(states[0], 0);
+
+    @Benchmark
+    public int atomicInteger() {
+        int c;
+        while (!number.compareAndSet(c = number.get(), c + 1)) ;
+        return c;
+    }
+
+    @Benchmark
+    public int stampedReference() {
+        int[] stampHolder = new int[1];
+        Integer c;
+        do {
+            c = refer.get(stampHolder);
+        } while (!refer.compareAndSet(c, c + 1, stampHolder[0], stampHolder[0] + 1));
+        return c;
+    }
+
+    @Benchmark
+    public int stampedInt() {
+        long p;
+        do {
+            p = stampedInt.getPair();
+        } while (!stampedInt.compareAndSet(StampedInt.valueOf(p), StampedInt.valueOf(p) + 1,
+                StampedInt.stampOf(p), StampedInt.stampOf(p) + 1));
+        return StampedInt.valueOf(p);
+    }
+
+    @Benchmark
+    public int stampedReferenceRotate() {
+        int[] stampHolder = new int[1];
+        Object c;
+        do {
+            c = rotating.get(stampHolder);
+        } while (!rotating.compareAndSet(c, states[stampHolder[0] + 1 & 3], stampHolder[0], stampHolder[0] + 1));
+        return stampHolder[0];
+    }
+
+    @Benchmark
+    public int packedReferenceRotate() {
+        int[] stampHolder = new int[1];
+        Object c;
+        do {
+            c = stampedRef.get(stampHolder);
+        } while (!stampedRef.compareAndSet(c, states[stampHolder[0] + 1 & 3], stampHolder[0], stampHolder[0] + 1));
+        return stampHolder[0];
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.juc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 对应ConditionTest:LinkedList+一把ReentrantLock+notFull/notEmpty两个Condition的有界缓存.
+ * 生产者与消费者成组运行,吞吐以每秒put/take次数计.
+ * 等待使用awaitNanos,迭代结束时对端已停止也不会永久阻塞.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConditionBufferBenchmark {
+
+    static final long WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    static final String ELEMENT = "e";
+
+    final LinkedList<String> buffer = new LinkedList<>();
+    final int maxSize = 1024;
+    final ReentrantLock lock = new ReentrantLock();
+    final Condition notFull = lock.newCondition();
+    final Condition notEmpty = lock.newCondition();
+
+    boolean put(String e) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = WAIT_NANOS;
+            while (buffer.size() == maxSize) {
+                if (nanos <= 0L)
+                    return false;
+                nanos = notFull.awaitNanos(nanos);
+            }
+            buffer.add(e);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    String take() throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = WAIT_NANOS;
+            while (buffer.isEmpty()) {
+                if (nanos <= 0L)
+                    return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            String e = buffer.poll();
+            notFull.signal();
+            return e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public boolean spscPut() throws InterruptedException {
+        return put(ELEMENT);
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public String spscTake() throws InterruptedException {
+        return take();
+    }
+
+    @Benchmark
+    @Group("mpmc")
+    @GroupThreads(4)
+    public boolean mpmcPut() throws InterruptedException {
+        return put(ELEMENT);
+    }
+
+    @Benchmark
+    @Group("mpmc")
+    @GroupThreads(4)
+    public String mpmcTake() throws InterruptedException {
+        return take();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.juc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 多线程自增:CASTest的AtomicInteger,LongAdder,VolatileTest中加锁的honey计数,StripedCounter和BoundedCounter.
+ * 线程数用-t调整,默认4.sum和approximateSum对比每次读取总数的开销.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class CounterBenchmark {
+
+    final AtomicInteger atomic = new AtomicInteger();
+    final LongAdder adder = new LongAdder();
+    final Lock honeyLock = new ReentrantLock();
+    volatile int honey;
+    final StripedCounter striped = new StripedCounter();
+    final StripedCounter approximate = new StripedCounter(1, TimeUnit.MILLISECONDS);
+    BoundedCounter bounded;
+
+    /**
+     * 每轮重建,保证一秒内不会加到上限.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        bounded = new BoundedCounter(0, Integer.MAX_VALUE, 0);
+    }
+
+    @Benchmark
+    public int atomicInteger() {
+        return atomic.incrementAndGet();
+    }
+
+    @Benchmark
+    public void longAdder() {
+        adder.increment();
+    }
+
+    @Benchmark
+    public void lockedHoney() {
+        honeyLock.lock();
+        try {
+            honey++;
+        } finally {
+            honeyLock.unlock();
+        }
+    }
+
+    @Benchmark
+    public void stripedCounter() {
+        striped.increment();
+    }
+
+    @Benchmark
+    public boolean boundedCounter() {
+        return bounded.tryIncrement();
+    }
+
+    @Benchmark
+    public long stripedIncrementAndSum() {
+        striped.increment();
+        return striped.sum();
+    }
+
+    @Benchmark
+    public long stripedIncrementAndApproximateSum() {
+        approximate.increment();
+        return approximate.approximateSum();
+    }
+}
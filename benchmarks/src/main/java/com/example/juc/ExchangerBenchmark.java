@@ -0,0 +1,103 @@
+package com.example.juc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Exchanger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 对应ExchangerTest:生产者填满缓冲后与消费者交换.
+ * allocate对应ExchangerTest的写法,每轮新建ArrayList;reuse为交换回来的缓冲清空后复用.
+ * 配合-prof gc可以直接看到两者的分配速率差异.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExchangerBenchmark {
+
+    static final long TIMEOUT_MILLIS = 1L;
+
+    @Param({"64"})
+    int batch;
+
+    Exchanger<List<String>> exchanger;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        exchanger = new Exchanger<>();
+    }
+
+    @State(Scope.Thread)
+    public static class Buffer {
+        List<String> current = new ArrayList<>();
+    }
+
+    private List<String> exchange(List<String> buffer) throws InterruptedException {
+        try {
+            return exchanger.exchange(buffer, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            //迭代结束时对端可能已停止.
+            return buffer;
+        }
+    }
+
+    @Benchmark
+    @Group("allocate")
+    @GroupThreads(1)
+    public List<String> allocateProduce() throws InterruptedException {
+        List<String> buffer = new ArrayList<>();
+        for (int i = 0; i < batch; i++) {
+            buffer.add("p");
+        }
+        return exchange(buffer);
+    }
+
+    @Benchmark
+    @Group("allocate")
+    @GroupThreads(1)
+    public int allocateConsume() throws InterruptedException {
+        return exchange(new ArrayList<>()).size();
+    }
+
+    @Benchmark
+    @Group("reuse")
+    @GroupThreads(1)
+    public List<String> reuseProduce(Buffer b) throws InterruptedException {
+        List<String> buffer = b.current;
+        buffer.clear();
+        for (int i = 0; i < batch; i++) {
+            buffer.add("p");
+        }
+        return b.current = exchange(buffer);
+    }
+
+    @Benchmark
+    @Group("reuse")
+    @GroupThreads(1)
+    public int reuseConsume(Buffer b) throws InterruptedException {
+        List<String> full = exchange(b.current);
+        int size = full.size();
+        full.clear();
+        b.current = full;
+        return size;
+    }
+}
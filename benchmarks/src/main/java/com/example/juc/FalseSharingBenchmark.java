@@ -0,0 +1,130 @@
+package com.example.juc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 伪共享的代价:两个线程各自更新自己的计数或标记,不共享数据,只是位置相邻.
+ * 每组中两个线程的吞吐量相加,adjacent与padded之差即缓存行在两个核之间来回传递的代价.
+ * 需要至少两个核,单核时两组结果相同.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FalseSharingBenchmark {
+
+    final AtomicLongArray adjacentArray = new AtomicLongArray(2);
+    final PaddedAtomicLongArray paddedArray = new PaddedAtomicLongArray(2);
+    final AtomicLong adjacent0 = new AtomicLong(), adjacent1 = new AtomicLong();
+    final PaddedAtomicLong padded0 = new PaddedAtomicLong(), padded1 = new PaddedAtomicLong();
+    final Flags flags = new Flags();
+    final PaddedFlag flag0 = new PaddedFlag(), flag1 = new PaddedFlag();
+
+    static final class Flags {
+        volatile boolean flag0, flag1;
+    }
+
+    @Benchmark
+    @Group("adjacentArray")
+    @GroupThreads(1)
+    public long adjacentArray0() {
+        return adjacentArray.incrementAndGet(0);
+    }
+
+    @Benchmark
+    @Group("adjacentArray")
+    @GroupThreads(1)
+    public long adjacentArray1() {
+        return adjacentArray.incrementAndGet(1);
+    }
+
+    @Benchmark
+    @Group("paddedArray")
+    @GroupThreads(1)
+    public long paddedArray0() {
+        return paddedArray.incrementAndGet(0);
+    }
+
+    @Benchmark
+    @Group("paddedArray")
+    @GroupThreads(1)
+    public long paddedArray1() {
+        return paddedArray.incrementAndGet(1);
+    }
+
+    @Benchmark
+    @Group("adjacentAtomic")
+    @GroupThreads(1)
+    public long adjacentAtomic0() {
+        return adjacent0.incrementAndGet();
+    }
+
+    @Benchmark
+    @Group("adjacentAtomic")
+    @GroupThreads(1)
+    public long adjacentAtomic1() {
+        return adjacent1.incrementAndGet();
+    }
+
+    @Benchmark
+    @Group("paddedAtomic")
+    @GroupThreads(1)
+    public long paddedAtomic0() {
+        return padded0.incrementAndGet();
+    }
+
+    @Benchmark
+    @Group("paddedAtomic")
+    @GroupThreads(1)
+    public long paddedAtomic1() {
+        return padded1.incrementAndGet();
+    }
+
+    @Benchmark
+    @Group("adjacentFlag")
+    @GroupThreads(1)
+    public boolean adjacentFlag0() {
+        return flags.flag0 = !flags.flag0;
+    }
+
+    @Benchmark
+    @Group("adjacentFlag")
+    @GroupThreads(1)
+    public boolean adjacentFlag1() {
+        return flags.flag1 = !flags.flag1;
+    }
+
+    @Benchmark
+    @Group("paddedFlag")
+    @GroupThreads(1)
+    public boolean paddedFlag0() {
+        boolean v = !flag0.get();
+        flag0.set(v);
+        return v;
+    }
+
+    @Benchmark
+    @Group("paddedFlag")
+    @GroupThreads(1)
+    public boolean paddedFlag1() {
+        boolean v = !flag1.get();
+        flag1.set(v);
+        return v;
+    }
+}
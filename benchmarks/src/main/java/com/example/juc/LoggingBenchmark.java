@@ -0,0 +1,83 @@
+package com.example.juc;
+
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.PatternLayout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热点循环中打日志的调用方耗时:slf4j到log4j 1.2同步FileAppender,与AsyncLog的两种满缓存策略.
+ * 都写临时文件,格式相同.DROP的结果需结合丢弃数看,BLOCK的结果受写线程吞吐限制.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class LoggingBenchmark {
+
+    static final String PATTERN = "%d %p [%c] - %m%n";
+
+    @Param({"DROP", "BLOCK"})
+    String overflow;
+
+    File log4jFile, asyncFile;
+    Logger slf4j;
+    AsyncLog asyncLog;
+    AsyncLogger async;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        log4jFile = File.createTempFile("log4j-bench", ".log");
+        asyncFile = File.createTempFile("async-bench", ".log");
+        org.apache.log4j.Logger logger = org.apache.log4j.Logger.getLogger(LoggingBenchmark.class);
+        logger.removeAllAppenders();
+        logger.setAdditivity(false);
+        logger.setLevel(org.apache.log4j.Level.INFO);
+        logger.addAppender(new FileAppender(new PatternLayout(PATTERN), log4jFile.getPath(), false, true, 8192));
+        slf4j = LoggerFactory.getLogger(LoggingBenchmark.class);
+        asyncLog = new AsyncLog(new FileOutputStream(asyncFile), AsyncLog.Level.INFO, 1024,
+                AsyncLog.Overflow.valueOf(overflow));
+        async = asyncLog.getLogger(LoggingBenchmark.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        asyncLog.close();
+        System.out.println("async written:" + asyncLog.getWrittenCount() + ",dropped:" + asyncLog.getDroppedCount());
+        org.apache.log4j.Logger.getLogger(LoggingBenchmark.class).removeAllAppenders();
+        log4jFile.delete();
+        asyncFile.delete();
+    }
+
+    @Benchmark
+    public void log4j() {
+        slf4j.info("第{}个元素,值:{}", 1, "value");
+    }
+
+    @Benchmark
+    public void async() {
+        async.info("第{}个元素,值:{}", 1, "value");
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.juc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * actor邮箱场景:3个生产者,1个消费者,消费者在队列空时park,生产者入队后unpark.
+ * ConcurrentLinkedQueue套用与MpscLinkedQueue.poll(timeout)相同的登记-复查-park协议.
+ * <p>
+ * 生产者按信用发送:每次取BURST个信用,连发BURST条;消费者每收到BURST条归还BURST个信用,
+ * 积压最多BACKLOG条.生产者不能无限领先消费者,测到的是队列本身,而不是无界积压带来的分配和GC.
+ * 积压有上限时生产速率受消费者限制,结果看消费者一行(mpscPoll/clqPoll),即邮箱每微秒投递的消息数.
+ * 只有每轮结束各线程先后停止时poll才会超时返回null,对结果的影响可以忽略.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MailboxBenchmark {
+
+    static final String MESSAGE = "m";
+    static final long TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    static final int BURST = 32;
+    static final int BACKLOG = 1024;
+
+    MpscLinkedQueue<String> mpsc;
+    ConcurrentLinkedQueue<String> clq;
+    volatile Thread clqWaiter;
+    AtomicLong credits;
+    int received;//只有消费者线程读写.
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        mpsc = new MpscLinkedQueue<>();
+        clq = new ConcurrentLinkedQueue<>();
+        credits = new AtomicLong(BACKLOG);
+        received = 0;
+    }
+
+    /**
+     * 取BURST个信用,超时(每轮结束时消费者已停止)返回false.
+     */
+    boolean acquire() {
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        for (; ; ) {
+            long c = credits.get();
+            if (c >= BURST && credits.compareAndSet(c, c - BURST))
+                return true;
+            if (System.nanoTime() - deadline >= 0L)
+                return false;
+            Thread.yield();
+        }
+    }
+
+    /**
+     * 消费者每收到BURST条归还一次信用.
+     */
+    String received(String e) {
+        if (e != null && ++received == BURST) {
+            received = 0;
+            credits.addAndGet(BURST);
+        }
+        return e;
+    }
+
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(3)
+    @OperationsPerInvocation(BURST)
+    public boolean mpscOffer() {
+        if (!acquire())
+            return false;
+        for (int i = 0; i < BURST; i++)
+            mpsc.offer(MESSAGE);
+        return true;
+    }
+
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(1)
+    public String mpscPoll() throws InterruptedException {
+        return received(mpsc.poll(1, TimeUnit.MILLISECONDS));
+    }
+
+    @Benchmark
+    @Group("clq")
+    @GroupThreads(3)
+    @OperationsPerInvocation(BURST)
+    public boolean clqOffer() {
+        if (!acquire())
+            return false;
+        for (int i = 0; i < BURST; i++) {
+            clq.offer(MESSAGE);
+            Thread w = clqWaiter;
+            if (w != null)
+                LockSupport.unpark(w);
+        }
+        return true;
+    }
+
+    @Benchmark
+    @Group("clq")
+    @GroupThreads(1)
+    public String clqPoll() {
+        String e = clq.poll();
+        if (e != null)
+            return received(e);
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        clqWaiter = Thread.currentThread();
+        try {
+            while ((e = clq.poll()) == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0L)
+                    return null;
+                LockSupport.parkNanos(this, remaining);
+            }
+        } finally {
+            clqWaiter = null;
+        }
+        return received(e);
+    }
+}
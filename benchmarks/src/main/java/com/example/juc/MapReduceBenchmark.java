@@ -0,0 +1,67 @@
+package com.example.juc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对应ForkJoinTest.MapRed/MapReducer:自适应叶子的MapReduce与顺序归约的对比.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapReduceBenchmark {
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"1", "4"})
+    int parallelism;
+
+    Integer[] array;
+    ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        array = new Integer[size];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i;
+        }
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public long sequential() {
+        long r = 0L;
+        for (Integer e : array) {
+            r += e + 1;
+        }
+        return r;
+    }
+
+    @Benchmark
+    public Long mapReduce() {
+        return MapReduce.mapReduce(pool, array, 0, array.length, e -> (long) e + 1, 0L, Long::sum);
+    }
+}
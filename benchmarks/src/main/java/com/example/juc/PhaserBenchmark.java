@@ -0,0 +1,56 @@
+package com.example.juc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 对应PhaserTest:所有基准线程作为parties反复arriveAndAwaitAdvance,测一次屏障的开销.
+ * parties数等于线程数(-t),等待带超时,迭代结束时有线程先退出也不会永久阻塞.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhaserBenchmark {
+
+    static final long TIMEOUT_MILLIS = 10L;
+
+    Phaser phaser;
+
+    @Setup(Level.Iteration)
+    public void setUp(BenchmarkParams params) {
+        phaser = new Phaser(params.getThreads());
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        phaser.forceTermination();
+    }
+
+    @Benchmark
+    public int arriveAndAwait() throws InterruptedException {
+        int phase = phaser.arrive();
+        try {
+            return phaser.awaitAdvanceInterruptibly(phase, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return phase;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.juc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读取线程探针和取随机数的开销:ThreadProbe,ThreadLocalRandom,
+ * 以及ForkJoinTest.testThreadLocalRandom中反射Thread.threadLocalRandomProbe的做法(只能在jdk8上运行).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProbeBenchmark {
+
+    Field probeField;
+
+    @Setup
+    public void setUp() throws Exception {
+        ThreadLocalRandom.current();
+        probeField = Thread.class.getDeclaredField("threadLocalRandomProbe");
+        probeField.setAccessible(true);
+    }
+
+    @Benchmark
+    public int threadProbe() {
+        return ThreadProbe.get();
+    }
+
+    @Benchmark
+    public int threadProbeAdvance() {
+        return ThreadProbe.advance();
+    }
+
+    @Benchmark
+    public int reflectedProbe() throws IllegalAccessException {
+        return probeField.getInt(Thread.currentThread());
+    }
+
+    @Benchmark
+    public int threadProbeNextInt() {
+        return ThreadProbe.nextInt(16);
+    }
+
+    @Benchmark
+    public int threadLocalRandomNextInt() {
+        return ThreadLocalRandom.current().nextInt(16);
+    }
+}
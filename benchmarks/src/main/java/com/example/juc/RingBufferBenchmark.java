@@ -0,0 +1,84 @@
+package com.example.juc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 环形缓存与ConditionBufferBenchmark同场景的对比.
+ * 容量与ConditionBufferBenchmark一致,限时put/take保证迭代结束时不会永久阻塞.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RingBufferBenchmark {
+
+    static final String ELEMENT = "e";
+
+    @Param({"spin", "yield", "park"})
+    String waitStrategy;
+
+    RingBuffer<String> spsc;
+    RingBuffer<String> mpmc;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        WaitStrategy strategy;
+        switch (waitStrategy) {
+            case "spin":
+                strategy = WaitStrategy.spin();
+                break;
+            case "yield":
+                strategy = WaitStrategy.yielding();
+                break;
+            default:
+                strategy = WaitStrategy.parking();
+        }
+        spsc = RingBuffer.spsc(1024, strategy);
+        mpmc = RingBuffer.mpmc(1024, strategy);
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public boolean spscPut() throws InterruptedException {
+        return spsc.offer(ELEMENT, 1, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public String spscTake() throws InterruptedException {
+        return spsc.poll(1, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    @Group("mpmc")
+    @GroupThreads(4)
+    public boolean mpmcPut() throws InterruptedException {
+        return mpmc.offer(ELEMENT, 1, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    @Group("mpmc")
+    @GroupThreads(4)
+    public String mpmcTake() throws InterruptedException {
+        return mpmc.poll(1, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.juc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * 对应ForkJoinTest.testDivideSearch与testDirectFound:并行查找与顺序扫描的对比.
+ * 匹配条件与ForkJoinTest相同,只是下限随数组大小变化,命中位置约在数组的2/10处.
+ * 100M的int数组占400MB,fork的jvm堆设为1g;只跑10M时用-p size=10000000.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class SearchBenchmark {
+
+    @Param({"10000000", "100000000"})
+    int size;
+
+    @Param({"1", "4"})
+    int parallelism;
+
+    int[] array;
+    IntPredicate matcher;
+    ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        array = new int[size];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i + 1;
+        }
+        int from = size / 5;
+        matcher = x -> match(x, from);
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    static boolean match(int x, int from) {
+        return x > from && x % 2 == 0 && x % 3 == 0 && x % 5 == 0 && x % 7 == 0;
+    }
+
+    @Benchmark
+    public int sequential() {
+        int[] a = array;
+        IntPredicate m = matcher;
+        for (int i = 0; i < a.length; i++) {
+            if (m.test(a[i]))
+                return i;
+        }
+        return -1;
+    }
+
+    @Benchmark
+    public int findFirst() {
+        return ParallelSearcher.findFirst(pool, array, matcher,
+                ParallelSearcher.defaultThreshold(pool, array.length));
+    }
+
+    @Benchmark
+    public int findAny() {
+        return ParallelSearcher.findAny(pool, array, matcher,
+                ParallelSearcher.defaultThreshold(pool, array.length));
+    }
+}
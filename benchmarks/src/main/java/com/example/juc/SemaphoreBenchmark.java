@@ -0,0 +1,54 @@
+package com.example.juc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对应SemaphoreTest.requestVpp:10个许可的准入控制,对比公平与非公平模式.
+ * 持有许可期间用consumeCPU模拟服务耗时,线程数通过-t或BenchmarkRunner指定.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SemaphoreBenchmark {
+
+    @Param({"true", "false"})
+    boolean fair;
+
+    @Param({"100"})
+    long work;
+
+    Semaphore semaphore;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        semaphore = new Semaphore(10, fair);
+    }
+
+    @Benchmark
+    public void acquireRelease() throws InterruptedException {
+        semaphore.acquire();
+        try {
+            Blackhole.consumeCPU(work);
+        } finally {
+            semaphore.release();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.juc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TaskTracer的每任务开销:同一棵求和任务树(叶子16个元素,共8191个任务),
+ * 未跟踪,全部记录耗时,每16个任务记录一次耗时.两者之差除以8191即每任务的开销.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TracingBenchmark {
+
+    static final int LEAF = 16;
+
+    @Param({"65536"})
+    int size;
+
+    int[] array;
+    ForkJoinPool pool;
+    TaskTracer all, sampled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        array = new int[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = i;
+        }
+        pool = new ForkJoinPool();
+        all = new TaskTracer(0);
+        sampled = new TaskTracer();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public long plain() {
+        return pool.invoke(new PlainSum(array, 0, size));
+    }
+
+    @Benchmark
+    public long tracedAll() {
+        return pool.invoke(new TracedSum(all, array, 0, size));
+    }
+
+    @Benchmark
+    public long tracedSampled() {
+        return pool.invoke(new TracedSum(sampled, array, 0, size));
+    }
+
+    static long sum(int[] array, int lo, int hi) {
+        long s = 0;
+        for (int i = lo; i < hi; i++) {
+            s += array[i];
+        }
+        return s;
+    }
+
+    static final class PlainSum extends RecursiveTask<Long> {
+        final int[] array;
+        final int lo, hi;
+
+        PlainSum(int[] array, int lo, int hi) {
+            this.array = array;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Long compute() {
+            if (hi - lo <= LEAF)
+                return sum(array, lo, hi);
+            int mid = (lo + hi) >>> 1;
+            PlainSum left = new PlainSum(array, lo, mid);
+            left.fork();
+            return new PlainSum(array, mid, hi).compute() + left.join();
+        }
+    }
+
+    static final class TracedSum extends TracedRecursiveTask<Long> {
+        final int[] array;
+        final int lo, hi;
+
+        TracedSum(TaskTracer tracer, int[] array, int lo, int hi) {
+            super(tracer, hi - lo);
+            this.array = array;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Long computeTraced() {
+            if (hi - lo <= LEAF)
+                return sum(array, lo, hi);
+            int mid = (lo + hi) >>> 1;
+            TracedSum left = new TracedSum(tracer, array, lo, mid);
+            left.fork();
+            return new TracedSum(tracer, array, mid, hi).compute() + left.join();
+        }
+    }
+}
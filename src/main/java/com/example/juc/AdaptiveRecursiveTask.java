@@ -0,0 +1,118 @@
+package com.example.juc;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 自适应拆分阈值的RecursiveTask,用于替代ForkJoinTest.testForkJoin中ForkJoinTaskWrapper的写法:
+ * 每10个单位fork一个子任务,再用get()阻塞等待,形成一串阻塞的worker,最终退化为串行.
+ * <p>
+ * 子类描述如何拆分,计算和合并,拆分时机由本类决定:
+ * 1.循环拆分,上半部分fork,本任务缩小为下半部分,最后在本线程直接计算,不会为了等待子任务而空闲.
+ * 2.当前worker的队列中多余的任务超过SURPLUS_LIMIT时停止拆分,说明其他worker已经有足够的任务可偷.
+ * 3.记录叶子计算的实际耗时,按每单位耗时的滑动平均估算,预计耗时不超过targetLeafNanos的任务不再拆分.
+ * 尚未测得耗时之前,按规模/(并行度*8)的粒度拆分.
+ * 4.按fork的逆序合并,仍在本线程队列顶部的子任务用tryUnfork取回直接计算,否则join.
+ * 不使用get(),异常以非受检异常原样抛出.
+ * <p>
+ * 同一次计算的所有子任务共享一个耗时估算,由根任务在首次compute时创建.
+ */
+public abstract class AdaptiveRecursiveTask<R> extends RecursiveTask<R> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 与ForkJoinPool中Spliterator拆分的经验值一致.
+     */
+    static final int SURPLUS_LIMIT = 3;
+    /**
+     * 默认的叶子目标耗时,远大于fork/join本身的开销(微秒级以下).
+     */
+    static final long DEFAULT_TARGET_LEAF_NANOS = 100_000L;
+
+    transient Cutoff cutoff;
+    transient AdaptiveRecursiveTask<R> next;//本任务fork的子任务链,从最近fork的开始.
+
+    /**
+     * 当前任务的规模,如元素个数.
+     */
+    protected abstract long size();
+
+    /**
+     * 把当前任务的上半部分拆成新任务返回,本任务缩小为下半部分.不能再拆时返回null.
+     */
+    protected abstract AdaptiveRecursiveTask<R> trySplit();
+
+    /**
+     * 顺序计算当前任务.
+     */
+    protected abstract R computeDirectly();
+
+    /**
+     * 合并相邻两部分的结果,left在前.
+     */
+    protected abstract R combine(R left, R right);
+
+    protected long targetLeafNanos() {
+        return DEFAULT_TARGET_LEAF_NANOS;
+    }
+
+    @Override
+    protected final R compute() {
+        Cutoff c = cutoff;
+        if (c == null)
+            cutoff = c = new Cutoff(size(), ForkJoinTask.getPool(), targetLeafNanos());
+        AdaptiveRecursiveTask<R> forks = null;
+        for (AdaptiveRecursiveTask<R> right; c.shouldSplit(size())
+                && ForkJoinTask.getSurplusQueuedTaskCount() <= SURPLUS_LIMIT
+                && (right = trySplit()) != null; ) {
+            right.cutoff = c;
+            right.next = forks;
+            forks = right;
+            right.fork();
+        }
+        long size = size();
+        long start = System.nanoTime();
+        R result = computeDirectly();
+        c.record(size, System.nanoTime() - start);
+        for (AdaptiveRecursiveTask<R> f = forks; f != null; f = f.next) {
+            R r = f.tryUnfork() ? f.compute() : f.join();
+            result = combine(result, r);
+        }
+        return result;
+    }
+
+    /**
+     * 一次计算共享的拆分依据.
+     */
+    static final class Cutoff {
+        final long granularity;
+        final long targetLeafNanos;
+        volatile double nanosPerUnit;//0代表尚未测得.
+
+        Cutoff(long rootSize, ForkJoinPool pool, long targetLeafNanos) {
+            int parallelism = pool != null ? pool.getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+            this.granularity = Math.max(1L, rootSize / ((long) parallelism << 3));
+            this.targetLeafNanos = targetLeafNanos;
+        }
+
+        boolean shouldSplit(long size) {
+            if (size <= 1L)
+                return false;
+            double c = nanosPerUnit;
+            return c <= 0.0 ? size > granularity : size * c > targetLeafNanos;
+        }
+
+        /**
+         * 以1/8的权重更新每单位耗时,并发更新时丢失个别样本无关紧要.
+         */
+        void record(long size, long nanos) {
+            if (size <= 0L)
+                return;
+            double sample = Math.max(nanos, 1L) / (double) size;
+            double c = nanosPerUnit;
+            nanosPerUnit = c <= 0.0 ? sample : c + (sample - c) / 8;
+        }
+    }
+}
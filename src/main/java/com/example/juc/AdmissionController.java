@@ -0,0 +1,262 @@
+package com.example.juc;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 准入控制,用于替代SemaphoreTest中单个公平Semaphore保护vpp服务的写法.
+ * 公平模式下每次acquire都要经过AQS队列,客户端多时成为热点.本类的做法是:
+ * <p>
+ * 1.许可分散到多个非公平的条带Semaphore中,线程优先在自己的条带上tryAcquire,失败再去其他条带偷取.
+ * 2.所有条带都取不到时才进入等待,等待者排在一个公平的交接Semaphore上;release先把许可放回条带,
+ * 再看有没有等待者,有则从条带取回一个许可交给交接Semaphore,保证先来的等待者先得到许可,不会被后来的快路径线程无限插队.
+ * 等待者先登记再重查条带,release先放回再查等待者,两边都是先写后读:要么等待者重查时看到许可,
+ * 要么release看到等待者,许可不会留在条带里而等待者一直阻塞.
+ * 3.等待者数量达到maxQueueDepth时直接拒绝(削峰),不再排队.
+ * 4.可选的AIMD自适应:release时上报服务耗时,超过目标耗时按比例收缩许可数,
+ * 否则每累计limit个正常样本许可数加一.收缩时不回收已发出的许可,而是记一笔欠账,由后续release抵扣.
+ * <p>
+ * 每次获取许可的等待时间记录在{@link #getWaitHistogram()}中,快路径记为0.
+ */
+public class AdmissionController {
+
+    /**
+     * 超过目标耗时时许可数的收缩比例.
+     */
+    static final double BACKOFF_RATIO = 0.9;
+
+    private final Semaphore[] stripes;
+    private final int mask;
+    private final Semaphore handoff = new Semaphore(0, true);
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final AtomicInteger debt = new AtomicInteger();//收缩许可数时尚未回收的许可.
+    private final AtomicInteger successes = new AtomicInteger();//自上次调整以来的正常样本数.
+    private final int minLimit, maxLimit, maxQueueDepth;
+    private final long targetLatencyNanos;//0代表不做自适应.
+    private volatile int limit;
+    private volatile long lastDecrease;
+    private final LatencyHistogram waitHistogram = new LatencyHistogram();
+    private final LongAdder shed = new LongAdder();
+
+    /**
+     * 固定许可数,不限制排队数.
+     */
+    public AdmissionController(int limit) {
+        this(limit, limit, limit, Integer.MAX_VALUE, 0L, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param initialLimit  初始许可数.
+     * @param minLimit      自适应收缩的下限.
+     * @param maxLimit      自适应增长的上限.
+     * @param maxQueueDepth 允许的最大等待者数,达到后新请求直接被拒绝.
+     * @param targetLatency 目标服务耗时,不大于0代表不做自适应.
+     */
+    public AdmissionController(int initialLimit, int minLimit, int maxLimit, int maxQueueDepth,
+                               long targetLatency, TimeUnit unit) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit || maxQueueDepth < 0)
+            throw new IllegalArgumentException();
+        int n = 1;
+        while (n < Runtime.getRuntime().availableProcessors()) {
+            n <<= 1;
+        }
+        this.stripes = new Semaphore[n];
+        this.mask = n - 1;
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new Semaphore(initialLimit / n + (i < initialLimit % n ? 1 : 0));
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueueDepth = maxQueueDepth;
+        this.targetLatencyNanos = Math.max(0L, unit.toNanos(targetLatency));
+        this.lastDecrease = System.nanoTime() - targetLatencyNanos;
+    }
+
+    /**
+     * 不等待,取不到许可立即返回false.
+     */
+    public boolean tryAcquire() {
+        if (tryStripes()) {
+            waitHistogram.record(0L);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 阻塞获取许可,不受maxQueueDepth限制.
+     */
+    public void acquire() throws InterruptedException {
+        tryAcquireNanos(-1L);
+    }
+
+    /**
+     * 限时获取许可.超时,或排队人数已达maxQueueDepth时返回false.
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        return tryAcquireNanos(Math.max(0L, unit.toNanos(timeout)));
+    }
+
+    /**
+     * @param nanos 小于0代表不限时,且不做削峰.
+     */
+    private boolean tryAcquireNanos(long nanos) throws InterruptedException {
+        if (tryStripes()) {
+            waitHistogram.record(0L);
+            return true;
+        }
+        if (nanos >= 0L && waiters.get() >= maxQueueDepth) {
+            shed.increment();
+            return false;
+        }
+        long start = System.nanoTime();
+        waiters.incrementAndGet();
+        boolean acquired = false;
+        try {
+            //先登记为等待者再重查一次条带,与grant中先放回条带再检查waiters配对.
+            if (tryStripes()) {
+                acquired = true;
+            } else if (nanos < 0L) {
+                handoff.acquire();
+                acquired = true;
+            } else {
+                acquired = handoff.tryAcquire(nanos, TimeUnit.NANOSECONDS);
+            }
+            return acquired;
+        } finally {
+            waiters.decrementAndGet();
+            if (acquired)
+                waitHistogram.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 先从条带取,最后检查交接Semaphore中是否有等待者超时遗留的许可.
+     */
+    private boolean tryStripes() {
+        return takeStripe() || waiters.get() == 0 && handoff.availablePermits() > 0 && handoff.tryAcquire();
+    }
+
+    /**
+     * 先本条带,再从随机的条带开始依次偷取其他条带,偷取成功时换一个探针值,下次从别的条带开始.
+     */
+    private boolean takeStripe() {
+        int h = stripeIndex();
+        if (stripes[h].tryAcquire())
+            return true;
+        int start = ThreadProbe.nextInt();
+        for (int i = 0; i <= mask; i++) {
+            int k = (start + i) & mask;
+            if (k != h && stripes[k].tryAcquire()) {
+                ThreadProbe.advance();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int stripeIndex() {
+        return ThreadProbe.get() & mask;
+    }
+
+    public void release() {
+        int d;
+        while ((d = debt.get()) > 0) {
+            if (debt.compareAndSet(d, d - 1))
+                return;//抵扣收缩的欠账,许可不再归还.
+        }
+        grant();
+    }
+
+    /**
+     * 释放许可并上报本次服务耗时,用于自适应调整许可数.
+     */
+    public void release(long latency, TimeUnit unit) {
+        release();
+        if (targetLatencyNanos > 0L)
+            onSample(unit.toNanos(latency));
+    }
+
+    /**
+     * 许可先放回条带,再检查等待者.有等待者时从条带取回一个许可交给交接Semaphore;
+     * 取不到说明已被重查条带的等待者或快路径线程拿走.
+     */
+    private void grant() {
+        stripes[stripeIndex()].release();
+        if (waiters.get() > 0 && takeStripe())
+            handoff.release();
+    }
+
+    private void onSample(long latencyNanos) {
+        if (latencyNanos > targetLatencyNanos) {
+            long now = System.nanoTime();
+            //一个目标耗时窗口内最多收缩一次,避免同一批慢请求把许可数连续压到下限.
+            if (now - lastDecrease >= targetLatencyNanos) {
+                synchronized (this) {
+                    if (now - lastDecrease >= targetLatencyNanos) {
+                        lastDecrease = now;
+                        successes.set(0);
+                        resize(Math.max(minLimit, (int) (limit * BACKOFF_RATIO)));
+                    }
+                }
+            }
+        } else if (successes.incrementAndGet() >= limit) {
+            synchronized (this) {
+                if (successes.get() >= limit) {
+                    successes.set(0);
+                    resize(Math.min(maxLimit, limit + 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * 调整许可总数,只在持有this锁时调用.
+     */
+    private void resize(int newLimit) {
+        int delta = newLimit - limit;
+        limit = newLimit;
+        if (delta < 0) {
+            debt.addAndGet(-delta);
+            return;
+        }
+        for (; delta > 0; delta--) {
+            int d = debt.get();
+            if (d > 0 && debt.compareAndSet(d, d - 1))
+                continue;
+            grant();
+        }
+    }
+
+    /**
+     * 手工设置许可数,不受minLimit/maxLimit约束.
+     */
+    public synchronized void setLimit(int newLimit) {
+        if (newLimit < 1)
+            throw new IllegalArgumentException("limit:" + newLimit);
+        successes.set(0);
+        resize(newLimit);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getQueueLength() {
+        return waiters.get();
+    }
+
+    /**
+     * 因排队人数达到上限而被拒绝的次数.
+     */
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    public LatencyHistogram getWaitHistogram() {
+        return waitHistogram;
+    }
+}
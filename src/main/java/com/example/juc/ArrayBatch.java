@@ -0,0 +1,46 @@
+package com.example.juc;
+
+/**
+ * Object[]承载的缓冲,clear时置空已用槽位,避免持有已消费元素的引用.
+ */
+public final class ArrayBatch<E> implements ExchangeBuffer {
+
+    private final Object[] values;
+    private int size;
+
+    public ArrayBatch(int capacity) {
+        this.values = new Object[capacity];
+    }
+
+    /**
+     * 调用方保证未满.
+     */
+    public void add(E value) {
+        values[size++] = value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("index:" + index + ",size:" + size);
+        return (E) values[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int capacity() {
+        return values.length;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            values[i] = null;
+        }
+        size = 0;
+    }
+}
@@ -0,0 +1,407 @@
+package com.example.juc;
+
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 异步日志,用于热点循环中替代slf4j到log4j 1.2的同步输出.
+ * log4j 1.2的AppenderSkeleton.doAppend是synchronized方法,每条日志在调用线程中格式化并写流,
+ * 循环中逐元素打日志时日志本身成为热点,SystemOutTest也说明了其内部的锁会改变内存可见性的表现.
+ * 本类的做法是:
+ * <p>
+ * 1.每个线程一个SPSC环形缓存({@link RingBuffer#spsc}),打日志的线程之间没有竞争.
+ * 2.调用线程只记录级别,时间戳,格式串和参数,{}占位符的格式化(同slf4j)和日期格式化都在后台写线程完成.
+ * 3.唯一的后台写线程轮询各线程的缓存,批量drainTo,拼接后成批写入,空闲时flush.
+ * 4.日志事件由写线程通过每线程的回收缓存还给调用线程复用,一个和两个参数的重载不分配数组.
+ * 5.缓存满时按{@link Overflow}丢弃或阻塞,丢弃数见{@link #getDroppedCount()}.
+ * 6.关闭与打日志之间没有锁:调用线程先在自己的缓存上标记busy再检查closed,写线程看到closed后
+ * 等所有busy标记清除再做最后一轮取出,关闭前通过检查的日志不会在入队后被遗漏.
+ * <p>
+ * 测试中逐元素打日志的循环(ForkJoinTest.testParallel,VolatileTest的蜜蜂与熊)使用{@link #console()}.
+ * <p>
+ * 参数在写线程中才调用toString,调用者打日志后不应再修改参数对象.
+ * 输出格式与log4j.properties中的ConversionPattern一致,但不含行号.
+ */
+public class AsyncLog implements Closeable {
+
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }
+
+    /**
+     * 调用线程的缓存满时的处理.
+     */
+    public enum Overflow {
+        /**
+         * 丢弃并计数,调用线程从不等待.
+         */
+        DROP,
+        /**
+         * 等待写线程腾出空间,不丢日志.
+         */
+        BLOCK,
+        /**
+         * WARN及以上等待,以下丢弃.
+         */
+        DROP_BELOW_WARN
+    }
+
+    /**
+     * 写线程每次从一个线程缓存中取出的最大条数,避免单个线程的日志饿死其他线程.
+     */
+    static final int BATCH = 256;
+    /**
+     * 拼接的字符数超过该值时写出一次.
+     */
+    static final int WRITE_CHARS = 1 << 13;
+
+    private final Writer out;
+    private final Level threshold;
+    private final int capacity;
+    private final Overflow overflow;
+    private final List<ThreadBuffer> buffers = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<ThreadBuffer> local = ThreadLocal.withInitial(this::register);
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile long written;//只由写线程修改.
+    private volatile IOException failure;
+
+    //以下只由写线程访问.
+    private final StringBuilder batch = new StringBuilder(WRITE_CHARS << 1);
+    private char[] chars = new char[WRITE_CHARS << 1];
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
+    private final Date date = new Date();
+    private long second = Long.MIN_VALUE;//secondPrefix对应的秒.
+    private String secondPrefix;
+
+    /**
+     * 写到System.out的共享实例,对应log4j.properties中的stdout.每线程缓存8192条,满时等待,不丢日志.
+     * JVM退出时关闭,写出剩余的日志,但不关闭System.out.
+     */
+    public static AsyncLog console() {
+        return Console.INSTANCE;
+    }
+
+    private static final class Console {
+        static final AsyncLog INSTANCE = create();
+
+        private static AsyncLog create() {
+            OutputStream stdout = new FilterOutputStream(System.out) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+            AsyncLog log = new AsyncLog(stdout, Level.INFO, 1 << 13, Overflow.BLOCK);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    log.close();
+                } catch (IOException ignored) {
+                }
+            }, "async-log-shutdown"));
+            return log;
+        }
+    }
+
+    /**
+     * 追加写入文件,INFO级别,每线程缓存1024条,满时丢弃.
+     */
+    public AsyncLog(String file) throws IOException {
+        this(new FileOutputStream(file, true), Level.INFO, 1024, Overflow.DROP);
+    }
+
+    /**
+     * @param capacity 每个线程的缓存容量,向上取2的幂.
+     */
+    public AsyncLog(OutputStream out, Level threshold, int capacity, Overflow overflow) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity:" + capacity);
+        this.out = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        this.threshold = threshold;
+        this.capacity = capacity;
+        this.overflow = overflow;
+        this.writer = new Thread(this::drainLoop, "async-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public AsyncLogger getLogger(Class<?> clazz) {
+        return new AsyncLogger(this, clazz.getName());
+    }
+
+    public AsyncLogger getLogger(String name) {
+        return new AsyncLogger(this, name);
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.compareTo(threshold) >= 0;
+    }
+
+    /**
+     * 调用线程的入口,argc为参数个数,多于两个时参数在args中.
+     */
+    void log(Level level, String name, String format, int argc, Object arg0, Object arg1, Object[] args) {
+        if (!isEnabled(level))
+            return;
+        ThreadBuffer b = local.get();
+        //先标记busy再读closed,与写线程先读closed再读busy配对,二者至少有一方看到对方的写.
+        b.busy = true;
+        try {
+            if (closed) {
+                dropped.increment();
+                return;
+            }
+            enqueue(b, level, name, format, argc, arg0, arg1, args);
+        } finally {
+            b.busy = false;
+        }
+    }
+
+    private void enqueue(ThreadBuffer b, Level level, String name, String format, int argc, Object arg0,
+                         Object arg1, Object[] args) {
+        LogEvent e = b.spare;
+        if (e != null)
+            b.spare = null;
+        else if ((e = b.free.poll()) == null)
+            e = new LogEvent();
+        e.set(System.currentTimeMillis(), level, name, format, argc, arg0, arg1, args);
+        if (b.events.offer(e))
+            return;
+        if (overflow == Overflow.BLOCK || overflow == Overflow.DROP_BELOW_WARN && level.compareTo(Level.WARN) >= 0) {
+            try {
+                //限时等待,关闭后写线程不再消费,不能一直等.
+                //入队成功后事件归写线程所有,即使同时被关闭也不能再计为丢弃或回收.
+                while (!closed) {
+                    if (b.events.offer(e, 10L, TimeUnit.MILLISECONDS))
+                        return;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        dropped.increment();
+        e.clear();
+        b.spare = e;
+    }
+
+    private ThreadBuffer register() {
+        ThreadBuffer b = new ThreadBuffer(Thread.currentThread());
+        buffers.add(b);
+        return b;
+    }
+
+    /**
+     * 写线程主循环:轮流批量取出各线程缓存中的日志,没有日志时把已拼接的内容flush并park.
+     */
+    private void drainLoop() {
+        WaitStrategy idle = WaitStrategy.parking();
+        for (int c = 0; ; ) {
+            //先读closed,再读busy,最后取日志.关闭后仍在log中的线程可能在入队,等它们离开再取一轮;
+            //之后才进入log的线程一定看到closed,不会入队.
+            boolean stop = closed;
+            boolean inFlight = stop && inFlight();
+            int n = 0;
+            for (ThreadBuffer b : buffers) {
+                int m = b.events.drainTo(b.recycler, BATCH);
+                if (m == 0 && !b.thread.isAlive() && b.events.isEmpty())
+                    buffers.remove(b);
+                n += m;
+            }
+            if (n > 0) {
+                c = 0;
+                continue;
+            }
+            write(true);
+            if (stop && !inFlight)
+                return;
+            idle.idle(c++);
+        }
+    }
+
+    private boolean inFlight() {
+        for (ThreadBuffer b : buffers) {
+            if (b.busy)
+                return true;
+        }
+        return false;
+    }
+
+    private void append(LogEvent e) {
+        FormattingTuple t;
+        if (e.argc == 0)
+            t = MessageFormatter.arrayFormat(e.format, null);
+        else if (e.argc == 1)
+            t = MessageFormatter.format(e.format, e.arg0);
+        else if (e.argc == 2)
+            t = MessageFormatter.format(e.format, e.arg0, e.arg1);
+        else
+            t = MessageFormatter.arrayFormat(e.format, e.args);
+        appendDate(e.timestamp);
+        batch.append(' ').append(e.level).append(" [").append(e.name)
+                .append("] - ").append(t.getMessage()).append('\n');
+        if (t.getThrowable() != null) {
+            StringWriter trace = new StringWriter();
+            t.getThrowable().printStackTrace(new PrintWriter(trace));
+            batch.append(trace);
+        }
+        written++;
+        if (batch.length() >= WRITE_CHARS)
+            write(false);
+    }
+
+    /**
+     * 同一秒内的日志复用秒以前的部分,只拼接毫秒.
+     */
+    private void appendDate(long timestamp) {
+        long s = Math.floorDiv(timestamp, 1000L);
+        if (s != second) {
+            date.setTime(s * 1000L);
+            String formatted = dateFormat.format(date);
+            secondPrefix = formatted.substring(0, formatted.length() - 3);
+            second = s;
+        }
+        int millis = (int) Math.floorMod(timestamp, 1000L);
+        batch.append(secondPrefix);
+        if (millis < 100)
+            batch.append('0');
+        if (millis < 10)
+            batch.append('0');
+        batch.append(millis);
+    }
+
+    /**
+     * 把拼接的内容写出,写失败后丢弃后续内容,close时抛出.
+     */
+    private void write(boolean flush) {
+        int len = batch.length();
+        if (len == 0)
+            return;
+        if (chars.length < len)
+            chars = new char[len];
+        batch.getChars(0, len, chars, 0);
+        batch.setLength(0);
+        if (failure != null)
+            return;
+        try {
+            out.write(chars, 0, len);
+            if (flush)
+                out.flush();
+        } catch (IOException ex) {
+            failure = ex;
+        }
+    }
+
+    /**
+     * 写出关闭前已放入的全部日志后关闭输出.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        out.close();
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * 因缓存满或已关闭而丢弃的日志数.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 已格式化并交给输出的日志数.
+     */
+    public long getWrittenCount() {
+        return written;
+    }
+
+    /**
+     * 一个线程的日志缓存,events由该线程放入写线程取出,free方向相反.
+     */
+    final class ThreadBuffer {
+        final Thread thread;
+        final RingBuffer<LogEvent> events;
+        final RingBuffer<LogEvent> free;
+        final Consumer<LogEvent> recycler;
+        LogEvent spare;//只由所属线程访问,丢弃的事件留作下次使用.
+        volatile boolean busy;//所属线程正在log中.
+
+        ThreadBuffer(Thread thread) {
+            this.thread = thread;
+            this.events = RingBuffer.spsc(capacity, WaitStrategy.parking());
+            this.free = RingBuffer.spsc(capacity, WaitStrategy.spin());
+            this.recycler = e -> {
+                append(e);
+                e.clear();
+                free.offer(e);
+            };
+        }
+    }
+
+    static final class LogEvent {
+        long timestamp;
+        Level level;
+        String name;
+        String format;
+        int argc;
+        Object arg0, arg1;
+        Object[] args;
+
+        void set(long timestamp, Level level, String name, String format, int argc, Object arg0, Object arg1,
+                 Object[] args) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.name = name;
+            this.format = format;
+            this.argc = argc;
+            this.arg0 = arg0;
+            this.arg1 = arg1;
+            this.args = args;
+        }
+
+        /**
+         * 释放参数引用,避免回收缓存中的事件延长参数的生命周期.
+         */
+        void clear() {
+            arg0 = arg1 = null;
+            args = null;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.juc;
+
+import com.example.juc.AsyncLog.Level;
+
+/**
+ * {@link AsyncLog}的具名入口,方法与slf4j的Logger对应,格式串使用{}占位符,最后一个参数为Throwable时输出堆栈.
+ * 未开启的级别直接返回,一个和两个参数的重载不分配数组.可变参数的重载收到一个或两个元素的数组时同样拆开传递.
+ */
+public final class AsyncLogger {
+
+    private final AsyncLog log;
+    private final String name;
+
+    AsyncLogger(AsyncLog log, String name) {
+        this.log = log;
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isDebugEnabled() {
+        return log.isEnabled(Level.DEBUG);
+    }
+
+    public void debug(String msg) {
+        log.log(Level.DEBUG, name, msg, 0, null, null, null);
+    }
+
+    public void debug(String format, Object arg) {
+        log.log(Level.DEBUG, name, format, 1, arg, null, null);
+    }
+
+    public void debug(String format, Object arg1, Object arg2) {
+        log.log(Level.DEBUG, name, format, 2, arg1, arg2, null);
+    }
+
+    public void debug(String format, Object... args) {
+        log(Level.DEBUG, format, args);
+    }
+
+    public boolean isInfoEnabled() {
+        return log.isEnabled(Level.INFO);
+    }
+
+    public void info(String msg) {
+        log.log(Level.INFO, name, msg, 0, null, null, null);
+    }
+
+    public void info(String format, Object arg) {
+        log.log(Level.INFO, name, format, 1, arg, null, null);
+    }
+
+    public void info(String format, Object arg1, Object arg2) {
+        log.log(Level.INFO, name, format, 2, arg1, arg2, null);
+    }
+
+    public void info(String format, Object... args) {
+        log(Level.INFO, format, args);
+    }
+
+    public boolean isWarnEnabled() {
+        return log.isEnabled(Level.WARN);
+    }
+
+    public void warn(String msg) {
+        log.log(Level.WARN, name, msg, 0, null, null, null);
+    }
+
+    public void warn(String format, Object arg) {
+        log.log(Level.WARN, name, format, 1, arg, null, null);
+    }
+
+    public void warn(String format, Object arg1, Object arg2) {
+        log.log(Level.WARN, name, format, 2, arg1, arg2, null);
+    }
+
+    public void warn(String format, Object... args) {
+        log(Level.WARN, format, args);
+    }
+
+    public boolean isErrorEnabled() {
+        return log.isEnabled(Level.ERROR);
+    }
+
+    public void error(String msg) {
+        log.log(Level.ERROR, name, msg, 0, null, null, null);
+    }
+
+    public void error(String format, Object arg) {
+        log.log(Level.ERROR, name, format, 1, arg, null, null);
+    }
+
+    public void error(String format, Object arg1, Object arg2) {
+        log.log(Level.ERROR, name, format, 2, arg1, arg2, null);
+    }
+
+    public void error(String format, Object... args) {
+        log(Level.ERROR, format, args);
+    }
+
+    /**
+     * 可变参数的重载:数组为null时没有参数,一个或两个元素时按单独的参数传递,与对应的重载格式化方式一致.
+     */
+    private void log(Level level, String format, Object[] args) {
+        int argc = args == null ? 0 : args.length;
+        if (argc <= 2)
+            log.log(level, name, format, argc, argc > 0 ? args[0] : null, argc > 1 ? args[1] : null, null);
+        else
+            log.log(level, name, format, argc, null, null, args);
+    }
+}
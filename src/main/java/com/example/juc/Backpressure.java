@@ -0,0 +1,226 @@
+package com.example.juc;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程池饱和时的背压与削峰策略,用于替代CompleterTest中的CallerRunsPolicy.
+ * CallerRunsPolicy让提交线程自己执行任务,提交线程通常还承担着I/O,执行期间上游全部停顿,停顿时长取决于任务本身.
+ * 这里的策略都把等待限制在已知的时间内,超出后丢弃任务(削峰)并通知调用者:
+ * <p>
+ * 1.{@link #abort(Listener)}:立即拒绝.
+ * 2.{@link #boundedWait(long, TimeUnit, Listener)}:在队列上最多等待给定时间,仍然满则拒绝.
+ * 3.{@link #shedLowestPriority(Listener)}:队列满时,若队列中有优先级更低的任务,丢弃其中最低的一个为新任务腾出位置,
+ * 否则拒绝新任务.任务的优先级来自{@link Prioritized},其他任务的优先级为0.
+ * 4.队列中等待过久的任务由{@link CoDelQueue}在出队时丢弃,与以上策略配合使用.
+ * <p>
+ * 新任务被拒绝时抛出RejectedExecutionException,调用者同步得知.已入队后才被丢弃的任务,调用者已经返回,
+ * 通过两种方式异步得知:任务本身是Future(如submit返回的任务或{@link PriorityTask})时被cancel,
+ * 等待结果的线程得到CancellationException;另外回调{@link Listener}并给出原因.
+ * Listener在丢弃任务的线程(提交线程或worker)中执行,应当尽快返回且不抛出异常.
+ */
+public abstract class Backpressure implements RejectedExecutionHandler {
+
+    /**
+     * 任务被丢弃的原因.
+     */
+    public enum Reason {
+        /**
+         * 线程池已关闭.
+         */
+        SHUTDOWN,
+        /**
+         * 队列满,立即拒绝.
+         */
+        REJECTED,
+        /**
+         * 在队列上等待超时.
+         */
+        TIMEOUT,
+        /**
+         * 已入队,被优先级更高的任务挤出.
+         */
+        PREEMPTED,
+        /**
+         * 已入队,排队时间过长,由CoDelQueue丢弃.
+         */
+        SOJOURN
+    }
+
+    public interface Listener {
+        void onShed(Runnable task, Reason reason);
+    }
+
+    /**
+     * 带优先级的任务,数值越大越重要.
+     */
+    public interface Prioritized {
+        int priority();
+    }
+
+    /**
+     * 带优先级的FutureTask,用execute提交后可作为Future等待结果;被丢弃时处于cancel状态.
+     */
+    public static class PriorityTask<V> extends FutureTask<V> implements Prioritized {
+
+        private final int priority;
+
+        public PriorityTask(int priority, Callable<V> callable) {
+            super(callable);
+            this.priority = priority;
+        }
+
+        public PriorityTask(int priority, Runnable runnable, V result) {
+            super(runnable, result);
+            this.priority = priority;
+        }
+
+        @Override
+        public int priority() {
+            return priority;
+        }
+    }
+
+    private final Listener listener;
+    private final LongAdder[] shed = new LongAdder[Reason.values().length];
+
+    Backpressure(Listener listener) {
+        this.listener = listener;
+        for (int i = 0; i < shed.length; i++) {
+            shed[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 立即拒绝,与AbortPolicy相同,另外计数并回调listener.
+     *
+     * @param listener 可为null.
+     */
+    public static Backpressure abort(Listener listener) {
+        return new Backpressure(listener) {
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                throw reject(r, executor.isShutdown() ? Reason.SHUTDOWN : Reason.REJECTED);
+            }
+        };
+    }
+
+    /**
+     * 在队列上最多等待timeout,期间有worker取走任务即入队.
+     * 线程池已达最大线程数才会拒绝,所以直接入队不会少建线程.
+     *
+     * @param listener 可为null.
+     */
+    public static Backpressure boundedWait(long timeout, TimeUnit unit, Listener listener) {
+        long timeoutNanos = unit.toNanos(timeout);
+        return new Backpressure(listener) {
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                if (executor.isShutdown())
+                    throw reject(r, Reason.SHUTDOWN);
+                BlockingQueue<Runnable> queue = executor.getQueue();
+                try {
+                    if (!queue.offer(r, timeoutNanos, TimeUnit.NANOSECONDS))
+                        throw reject(r, Reason.TIMEOUT);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw reject(r, Reason.TIMEOUT);
+                }
+                //等待期间线程池被关闭,任务可能不会再被执行.
+                if (executor.isShutdown() && queue.remove(r))
+                    throw reject(r, Reason.SHUTDOWN);
+            }
+        };
+    }
+
+    /**
+     * 队列满时挤出优先级最低且低于新任务的已入队任务.遍历队列是O(n)的,只发生在饱和时,队列本身应当不大.
+     * 每次拒绝最多挤出一个任务:各提交者的查找,移除和放入在同一个锁内进行,腾出的位置仍可能被
+     * 直接入队(未触发拒绝)的提交者占用,此时把victim放回队尾并拒绝新任务,放不回时两者都被丢弃.
+     *
+     * @param listener 可为null.
+     */
+    public static Backpressure shedLowestPriority(Listener listener) {
+        return new Backpressure(listener) {
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                if (executor.isShutdown())
+                    throw reject(r, Reason.SHUTDOWN);
+                BlockingQueue<Runnable> queue = executor.getQueue();
+                int priority = priorityOf(r);
+                synchronized (this) {
+                    for (; ; ) {
+                        Runnable victim = null;
+                        int lowest = priority;
+                        for (Runnable queued : queue) {
+                            int p = priorityOf(queued);
+                            if (p < lowest) {
+                                lowest = p;
+                                victim = queued;
+                            }
+                        }
+                        if (victim == null)
+                            throw reject(r, Reason.REJECTED);
+                        //victim可能已被worker取走,重新查找.
+                        if (!queue.remove(victim))
+                            continue;
+                        if (queue.offer(r)) {
+                            shed(victim, Reason.PREEMPTED);
+                            return;
+                        }
+                        //腾出的位置被直接入队的提交者占用,不再挤出其他任务.
+                        if (!queue.offer(victim))
+                            shed(victim, Reason.PREEMPTED);
+                        throw reject(r, Reason.REJECTED);
+                    }
+                }
+            }
+        };
+    }
+
+    static int priorityOf(Runnable r) {
+        return r instanceof Prioritized ? ((Prioritized) r).priority() : 0;
+    }
+
+    /**
+     * 丢弃任务:计数,cancel任务本身,回调listener.
+     */
+    void shed(Runnable task, Reason reason) {
+        shed[reason.ordinal()].increment();
+        notifyShed(task, reason, listener);
+    }
+
+    static void notifyShed(Runnable task, Reason reason, Listener listener) {
+        if (task instanceof Future)
+            ((Future<?>) task).cancel(false);
+        if (listener != null)
+            listener.onShed(task, reason);
+    }
+
+    RejectedExecutionException reject(Runnable task, Reason reason) {
+        shed(task, reason);
+        return new RejectedExecutionException("任务被丢弃:" + reason);
+    }
+
+    public long getShedCount(Reason reason) {
+        return shed[reason.ordinal()].sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(super.toString()).append('[');
+        for (Reason reason : Reason.values()) {
+            if (reason.ordinal() > 0)
+                sb.append(", ");
+            sb.append(reason).append(" = ").append(shed[reason.ordinal()].sum());
+        }
+        return sb.append(']').toString();
+    }
+}
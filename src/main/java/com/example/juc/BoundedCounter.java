@@ -0,0 +1,182 @@
+package com.example.juc;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * 有上下限的条带计数器,值始终在[min,max]内,用于在途请求数,配额等需要拒绝越界更新的计数.
+ * <p>
+ * 把max-min拆成两种额度:向上的额度up(=max-值)和向下的额度down(=值-min),两者之和恒为max-min.
+ * 加d就是把d份up额度换成down额度,减d反之.额度分布在中心和各cell中,每处用一个long打包两种额度,
+ * 一次CAS同时修改:
+ * 1.无竞争时只在中心换额度,此时结果是精确的.
+ * 2.出现竞争后各线程在自己的cell中换额度,cell额度不足时从中心批量领取,每次领取中心剩余的一部分,
+ * 给其他cell留下余量.
+ * 3.中心也不足时,把所有cell中该方向的额度收回中心后再试,仍不足才拒绝.
+ * 回收过程中其他线程可能同时领走额度,因此在接近上下限时可能保守地拒绝,但不会越界.
+ * <p>
+ * {@link #get()}与LongAdder.sum一样不是原子快照.max-min不能超过Integer.MAX_VALUE.
+ */
+public class BoundedCounter extends Striped {
+
+    private static final AtomicLongFieldUpdater<BoundedCounter> CENTRAL =
+            AtomicLongFieldUpdater.newUpdater(BoundedCounter.class, "central");
+
+    private final long min, max;
+    private volatile long central;
+
+    public BoundedCounter(long min, long max, long initial) {
+        if (max < min || max - min > Integer.MAX_VALUE || initial < min || initial > max)
+            throw new IllegalArgumentException();
+        this.min = min;
+        this.max = max;
+        this.central = pack((int) (max - initial), (int) (initial - min));
+    }
+
+    static long pack(int up, int down) {
+        return ((long) up << 32) | (down & 0xFFFFFFFFL);
+    }
+
+    static int up(long credits) {
+        return (int) (credits >>> 32);
+    }
+
+    static int down(long credits) {
+        return (int) credits;
+    }
+
+    /**
+     * 从credits中把n份额度从一个方向换到另一个方向,额度不足时返回-1.
+     */
+    private static long exchange(long credits, int n, boolean up) {
+        int u = up(credits), d = down(credits);
+        if (up)
+            return u < n ? -1L : pack(u - n, d + n);
+        return d < n ? -1L : pack(u + n, d - n);
+    }
+
+    private static int credit(long credits, boolean up) {
+        return up ? up(credits) : down(credits);
+    }
+
+    private static long adjust(long credits, int n, boolean up) {
+        return up ? pack(up(credits) + n, down(credits)) : pack(up(credits), down(credits) + n);
+    }
+
+    public long min() {
+        return min;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public boolean tryIncrement() {
+        return tryAdd(1L);
+    }
+
+    public boolean tryDecrement() {
+        return tryAdd(-1L);
+    }
+
+    /**
+     * 加上delta,结果会越界时不修改并返回false.
+     */
+    public boolean tryAdd(long delta) {
+        if (delta == 0L)
+            return true;
+        if (delta > max - min || delta < min - max)
+            return false;
+        int n = (int) Math.abs(delta);
+        boolean up = delta > 0L;
+        PaddedAtomicLong[] cs = cells;
+        if (cs == null) {
+            long c = central, r;
+            if ((r = exchange(c, n, up)) == -1L)
+                return false;
+            if (CENTRAL.compareAndSet(this, c, r))
+                return true;
+            cs = initCells();
+        }
+        int h = ThreadProbe.get();
+        boolean reclaimed = false;
+        for (boolean collided = false; ; ) {
+            PaddedAtomicLong cell = cs[h & (cs.length - 1)];
+            long v = cell.get(), r;
+            if ((r = exchange(v, n, up)) != -1L) {
+                if (cell.compareAndSet(v, r))
+                    return true;
+                if (collided) {
+                    cs = grow(cs);
+                    collided = false;
+                } else {
+                    collided = true;
+                }
+                h = ThreadProbe.advance();
+            } else if (!refill(cell, n, up, cs.length)) {
+                if (reclaimed)
+                    return false;
+                reclaim(cs, up);
+                reclaimed = true;
+            }
+        }
+    }
+
+    /**
+     * 从中心领取至少n份额度放入cell,中心不足n时返回false.
+     */
+    private boolean refill(PaddedAtomicLong cell, int n, boolean up, int stripes) {
+        long c;
+        int k;
+        do {
+            c = central;
+            int avail = credit(c, up);
+            if (avail < n)
+                return false;
+            k = Math.max(n, avail / (stripes << 1));
+        } while (!CENTRAL.compareAndSet(this, c, adjust(c, -k, up)));
+        long v;
+        do {
+            v = cell.get();
+        } while (!cell.compareAndSet(v, adjust(v, k, up)));
+        return true;
+    }
+
+    /**
+     * 把所有cell中一个方向的额度收回中心.
+     */
+    private void reclaim(PaddedAtomicLong[] cs, boolean up) {
+        for (PaddedAtomicLong cell : cs) {
+            long v;
+            int k;
+            do {
+                v = cell.get();
+                k = credit(v, up);
+            } while (k > 0 && !cell.compareAndSet(v, adjust(v, -k, up)));
+            if (k > 0) {
+                long c;
+                do {
+                    c = central;
+                } while (!CENTRAL.compareAndSet(this, c, adjust(c, k, up)));
+            }
+        }
+    }
+
+    /**
+     * 当前值,并发更新时不是原子快照,但总在[min,max]内.
+     */
+    public long get() {
+        long s = down(central);
+        PaddedAtomicLong[] cs = cells;
+        if (cs != null) {
+            for (PaddedAtomicLong c : cs) {
+                s += down(c.get());
+            }
+        }
+        return min + Math.min(s, max - min);
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[value = " + get() + ", min = " + min + ", max = " + max + "]";
+    }
+}
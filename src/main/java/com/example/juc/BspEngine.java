@@ -0,0 +1,243 @@
+package com.example.juc;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BinaryOperator;
+
+/**
+ * 基于Phaser的整体同步并行(BSP)计算:所有worker执行一个超步,在屏障处汇合,
+ * 由最后到达的线程在onAdvance中归约本超步各worker的贡献并决定是否继续,然后进入下一超步.
+ * <p>
+ * 与PhaserTest的区别:
+ * 1.每个party对应一个长期运行的worker,由它循环执行全部超步,而不是一个party一个任务.
+ * 2.parties超过TIER_SIZE时使用分层Phaser:worker注册在子Phaser上,子Phaser作为一个party注册在root上,
+ * 每个Phaser上竞争的线程数不超过TIER_SIZE,屏障开销随parties亚线性增长.
+ * 3.等待屏障通过ForkJoinPool.ManagedBlocker,worker运行在ForkJoinPool中时,阻塞的线程会得到补偿.
+ * 完成超步的线程(即执行onAdvance的线程)负责唤醒其他worker.
+ * 调用run的线程只等待结束,不参与超步.
+ * <p>
+ * parties通常取线程池的并行度,数据按parties分片,每个worker负责一片.
+ */
+public class BspEngine<R> {
+
+    /**
+     * 单个Phaser上注册的party上限,超过时分层.
+     */
+    static final int TIER_SIZE = 64;
+
+    /**
+     * 一个worker在一个超步中的计算.
+     */
+    @FunctionalInterface
+    public interface Superstep<R> {
+        /**
+         * @param step   超步序号,从0开始.
+         * @param worker worker序号,[0,parties).
+         * @param last   上一超步的归约结果,第0步为identity.
+         * @return 本worker本超步的贡献.
+         */
+        R compute(int step, int worker, R last);
+    }
+
+    /**
+     * 每个超步结束时在onAdvance中调用.
+     */
+    @FunctionalInterface
+    public interface Advance<R> {
+        /**
+         * @return true代表终止计算.
+         */
+        boolean onAdvance(int step, R reduced);
+    }
+
+    private final ForkJoinPool pool;
+    private final int parties;
+    private final int maxSteps;
+
+    public BspEngine(ForkJoinPool pool, int parties, int maxSteps) {
+        if (parties < 1 || maxSteps < 1)
+            throw new IllegalArgumentException();
+        this.pool = pool;
+        this.parties = parties;
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * 运行直到advance返回true或达到maxSteps,返回最后一个超步的归约结果.
+     * 任一worker抛出异常时终止所有worker并抛出该异常.
+     */
+    public R run(Superstep<R> superstep, R identity, BinaryOperator<R> reducer, Advance<R> advance)
+            throws InterruptedException {
+        Run<R> run = new Run<>(parties, maxSteps, superstep, identity, reducer, advance);
+        for (int i = 0; i < parties; i++) {
+            int worker = i;
+            try {
+                pool.execute(() -> run.work(worker));
+            } catch (RejectedExecutionException e) {
+                //未启动的worker永远不会到达,终止屏障让已启动的worker退出.
+                run.exception.compareAndSet(null, e);
+                run.root.forceTermination();
+                run.release();
+                for (; i < parties; i++) {
+                    run.done.countDown();
+                }
+            }
+        }
+        run.done.await();
+        Throwable ex = run.exception.get();
+        if (ex == null)
+            return run.reduced;
+        if (ex instanceof RuntimeException)
+            throw (RuntimeException) ex;
+        if (ex instanceof Error)
+            throw (Error) ex;
+        throw new RuntimeException(ex);
+    }
+
+    /**
+     * 构建Phaser树,返回每个worker所在的叶子Phaser.
+     */
+    static Phaser[] leaves(Phaser root, int parties) {
+        Phaser[] leaves = new Phaser[parties];
+        if (parties <= TIER_SIZE) {
+            root.bulkRegister(parties);
+            for (int i = 0; i < parties; i++) {
+                leaves[i] = root;
+            }
+            return leaves;
+        }
+        for (int lo = 0; lo < parties; lo += TIER_SIZE) {
+            int hi = Math.min(parties, lo + TIER_SIZE);
+            //带parent的构造在parties大于0时把子Phaser作为一个party注册到parent.
+            Phaser child = new Phaser(root, hi - lo);
+            for (int i = lo; i < hi; i++) {
+                leaves[i] = child;
+            }
+        }
+        return leaves;
+    }
+
+    /**
+     * 一次计算的状态.
+     */
+    private static final class Run<R> {
+        final Superstep<R> superstep;
+        final R identity;
+        final BinaryOperator<R> reducer;
+        final Object[] contributions;
+        final Phaser root;
+        final Phaser[] leaves;
+        final CountDownLatch done;
+        final AtomicReference<Throwable> exception = new AtomicReference<>();
+        final AtomicReferenceArray<Thread> parked;//等待下一超步的worker线程.
+        volatile R reduced;
+
+        Run(int parties, int maxSteps, Superstep<R> superstep, R identity, BinaryOperator<R> reducer,
+            Advance<R> advance) {
+            this.superstep = superstep;
+            this.identity = identity;
+            this.reducer = reducer;
+            this.contributions = new Object[parties];
+            this.done = new CountDownLatch(parties);
+            this.parked = new AtomicReferenceArray<>(parties);
+            this.reduced = identity;
+            this.root = new Phaser() {
+                @Override
+                protected boolean onAdvance(int phase, int registeredParties) {
+                    //各worker在arrive前写入贡献,arrive的CAS保证此处可见.
+                    R r = Run.this.identity;
+                    for (Object c : contributions) {
+                        @SuppressWarnings("unchecked")
+                        R cr = (R) c;
+                        r = Run.this.reducer.apply(r, cr);
+                    }
+                    reduced = r;
+                    return advance.onAdvance(phase, r) || phase + 1 >= maxSteps || registeredParties == 0;
+                }
+            };
+            this.leaves = leaves(root, parties);
+        }
+
+        void work(int worker) {
+            Phaser leaf = leaves[worker];
+            PhaseBlocker blocker = new PhaseBlocker(this, worker, leaf);
+            try {
+                for (int step = 0; ; step++) {
+                    contributions[worker] = superstep.compute(step, worker, reduced);
+                    int phase = leaf.arrive();
+                    if (phase >= 0 && leaf.getPhase() != phase) {
+                        release();//超步已完成,通常本线程就是执行onAdvance的最后到达者.
+                    } else {
+                        blocker.phase = phase;
+                        ForkJoinPool.managedBlock(blocker);
+                    }
+                    if (leaf.isTerminated())
+                        break;
+                }
+            } catch (Throwable ex) {
+                exception.compareAndSet(null, ex);
+                root.forceTermination();
+                release();
+                if (ex instanceof InterruptedException)
+                    Thread.currentThread().interrupt();
+            } finally {
+                done.countDown();
+            }
+        }
+
+        /**
+         * 唤醒所有park的worker.
+         */
+        void release() {
+            for (int i = 0; i < parked.length(); i++) {
+                Thread t = parked.get(i);
+                if (t != null)
+                    LockSupport.unpark(t);
+            }
+        }
+    }
+
+    /**
+     * 等待叶子Phaser越过phase,可重复使用以避免每个超步分配.
+     * 不使用Phaser.awaitAdvance:它内部已经是一个ManagedBlocker,嵌套在本类的block中会让线程池重复补偿,
+     * 超步屏障的耗时成倍增加.本类自己park,由完成超步的线程统一unpark,线程池只补偿一次.
+     */
+    static final class PhaseBlocker implements ForkJoinPool.ManagedBlocker {
+        final Run<?> run;
+        final int worker;
+        final Phaser phaser;
+        int phase;
+
+        PhaseBlocker(Run<?> run, int worker, Phaser phaser) {
+            this.run = run;
+            this.worker = worker;
+            this.phaser = phaser;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            run.parked.set(worker, Thread.currentThread());
+            try {
+                //登记后重查,避免错过登记前的release.
+                while (!isReleasable()) {
+                    LockSupport.park(this);
+                    if (Thread.interrupted())
+                        throw new InterruptedException();
+                }
+            } finally {
+                run.parked.set(worker, null);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return phase < 0 || phaser.getPhase() != phase;
+        }
+    }
+}
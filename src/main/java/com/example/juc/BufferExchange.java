@@ -0,0 +1,149 @@
+package com.example.juc;
+
+import java.util.concurrent.Exchanger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 基于Exchanger的双缓冲,一端生产一端消费,改进ExchangerTest中每轮新建ArrayList的写法.
+ * 构造时创建两个缓冲,生产者写满手中的缓冲后与消费者交换,换回的是消费者已清空的另一个缓冲,
+ * 此后两个缓冲在两端之间循环使用,不再分配.
+ * <p>
+ * 生产者较慢时,手中缓冲的第一个元素写入超过maxDelay仍未写满,则尝试部分刷出:
+ * 只有消费者正在等待交换时才会成功,不阻塞生产者.
+ * <p>
+ * 生产端方法(writable,flushIfStale,flush,close)只能由一个线程调用,
+ * 消费端方法(take,poll)只能由另一个线程调用.
+ */
+public class BufferExchange<B extends ExchangeBuffer> {
+
+    private final Exchanger<B> exchanger = new Exchanger<>();
+    private final long maxDelayNanos;
+    private B producerBuffer;//只由生产者访问.
+    private B consumerBuffer;//只由消费者访问.
+    private long firstWriteNanos;
+    private volatile B last;//close时交出的缓冲.
+    private boolean finished;//消费者已收到last.
+    private volatile long exchanges;
+    private volatile long partialFlushes;
+
+    public BufferExchange(Supplier<B> factory, long maxDelay, TimeUnit unit) {
+        this.producerBuffer = factory.get();
+        this.consumerBuffer = factory.get();
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+    }
+
+    /**
+     * 返回当前可写入的缓冲,保证至少有一个空位.
+     * 缓冲已满时阻塞交换;缓冲中的数据已等待超过maxDelay时尝试部分刷出.
+     */
+    public B writable() throws InterruptedException {
+        B b = producerBuffer;
+        if (b.isFull())
+            exchangeFromProducer();
+        else if (!b.isEmpty())
+            flushIfStale();
+        b = producerBuffer;
+        if (b.isEmpty())
+            firstWriteNanos = System.nanoTime();
+        return b;
+    }
+
+    /**
+     * 手中缓冲非空且已等待超过maxDelay时,尝试与正在等待的消费者交换,不阻塞.
+     * 生产者空闲时应定期调用,保证最后一批数据的延迟有上限.
+     *
+     * @return 是否刷出.
+     */
+    public boolean flushIfStale() throws InterruptedException {
+        B b = producerBuffer;
+        if (b.isEmpty())
+            return false;
+        long now = System.nanoTime();
+        if (now - firstWriteNanos < maxDelayNanos)
+            return false;
+        try {
+            producerBuffer = exchanger.exchange(b, 0L, TimeUnit.NANOSECONDS);
+            exchanges++;
+            partialFlushes++;
+            return true;
+        } catch (TimeoutException e) {
+            //消费者正忙,重新计时,避免每次写入都尝试交换.
+            firstWriteNanos = now;
+            return false;
+        }
+    }
+
+    /**
+     * 手中缓冲非空时阻塞交换给消费者.
+     */
+    public void flush() throws InterruptedException {
+        if (!producerBuffer.isEmpty())
+            exchangeFromProducer();
+    }
+
+    /**
+     * 结束生产,把手中缓冲(可能为空)作为最后一批交给消费者,阻塞直到消费者接收.
+     */
+    public void close() throws InterruptedException {
+        last = producerBuffer;
+        exchangeFromProducer();
+    }
+
+    private void exchangeFromProducer() throws InterruptedException {
+        producerBuffer = exchanger.exchange(producerBuffer);
+        exchanges++;
+    }
+
+    /**
+     * 清空上一批并交换得到下一批,生产者close且最后一批已取走后返回null.
+     * 返回的缓冲归消费者所有,直到下一次take/poll.
+     */
+    public B take() throws InterruptedException {
+        if (finished)
+            return null;
+        consumerBuffer.clear();
+        return received(exchanger.exchange(consumerBuffer));
+    }
+
+    /**
+     * 同take,超时返回null,此时上一批已被清空.
+     */
+    public B poll(long timeout, TimeUnit unit) throws InterruptedException {
+        if (finished)
+            return null;
+        consumerBuffer.clear();
+        try {
+            return received(exchanger.exchange(consumerBuffer, timeout, unit));
+        } catch (TimeoutException e) {
+            return null;
+        }
+    }
+
+    private B received(B b) {
+        consumerBuffer = b;
+        //last在交换前写入,交换建立happens-before,收到的正是last说明是最后一批.
+        if (b == last)
+            finished = true;
+        return b;
+    }
+
+    /**
+     * 消费端是否已收到最后一批.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public long getExchangeCount() {
+        return exchanges;
+    }
+
+    /**
+     * 因超时而部分刷出的次数.
+     */
+    public long getPartialFlushCount() {
+        return partialFlushes;
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.juc;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按排队时间丢弃任务的线程池队列,控制律取自CoDel(Controlled Delay).
+ * 队列长度不能反映排队时间:同样18个任务,执行快时不算积压,执行慢时每个都要等很久.CoDel看的是出队时的排队时间(sojourn):
+ * <p>
+ * 1.排队时间低于target,或出队后队列已空,说明积压能消化,不丢弃.
+ * 2.排队时间持续超过target达到一个interval,进入丢弃状态,丢弃当前任务,取下一个.
+ * 3.丢弃状态下第n次丢弃后,间隔interval/sqrt(n)再丢弃下一个,积压越久丢得越快,直到排队时间回到target以下.
+ * <p>
+ * 被丢弃的任务不会执行,按{@link Backpressure.Reason#SOJOURN}通知调用者(见{@link Backpressure}).
+ * 各任务的排队时间记录在{@link #getSojournHistogram()}中.drainTo用于shutdownNow,不做丢弃.
+ */
+public class CoDelQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private static final class Entry {
+        final Runnable task;
+        final long enqueueNanos;
+
+        Entry(Runnable task) {
+            this.task = task;
+            this.enqueueNanos = System.nanoTime();
+        }
+    }
+
+    private final LinkedBlockingQueue<Entry> queue;
+    private final long targetNanos, intervalNanos;
+    private final Backpressure.Listener listener;
+    private final LatencyHistogram sojournHistogram = new LatencyHistogram();
+    private final LongAdder dropped = new LongAdder();
+    //以下为控制律的状态,由this保护.
+    private long firstAboveTime;//排队时间超过target后,可以开始丢弃的时刻,0代表未超过.
+    private long dropNext;
+    private int count, lastCount;
+    private boolean dropping;
+
+    /**
+     * @param capacity 队列容量.
+     * @param target   可接受的排队时间.
+     * @param interval 排队时间持续超过target多久后开始丢弃,应与任务的正常执行时间相当.
+     * @param listener 可为null.
+     */
+    public CoDelQueue(int capacity, long target, long interval, TimeUnit unit, Backpressure.Listener listener) {
+        if (target <= 0L || interval <= 0L)
+            throw new IllegalArgumentException();
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.targetNanos = unit.toNanos(target);
+        this.intervalNanos = unit.toNanos(interval);
+        this.listener = listener;
+    }
+
+    @Override
+    public boolean offer(Runnable task) {
+        return queue.offer(new Entry(task));
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.offer(new Entry(task), timeout, unit);
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        queue.put(new Entry(task));
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        for (; ; ) {
+            Runnable task = admit(queue.take());
+            if (task != null)
+                return task;
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        for (Entry e; (e = queue.poll()) != null; ) {
+            Runnable task = admit(e);
+            if (task != null)
+                return task;
+        }
+        return null;
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (; ; ) {
+            Entry e = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (e == null)
+                return null;
+            Runnable task = admit(e);
+            if (task != null)
+                return task;
+        }
+    }
+
+    /**
+     * 出队的任务交给控制律判断,丢弃时返回null.
+     */
+    private Runnable admit(Entry e) {
+        long now = System.nanoTime();
+        long sojourn = now - e.enqueueNanos;
+        sojournHistogram.record(sojourn);
+        if (!shouldDrop(sojourn, now, queue.isEmpty()))
+            return e.task;
+        dropped.increment();
+        Backpressure.notifyShed(e.task, Backpressure.Reason.SOJOURN, listener);
+        return null;
+    }
+
+    private synchronized boolean shouldDrop(long sojourn, long now, boolean empty) {
+        if (sojourn < targetNanos || empty) {
+            firstAboveTime = 0L;
+            dropping = false;
+            return false;
+        }
+        if (firstAboveTime == 0L) {
+            firstAboveTime = now + intervalNanos;
+            return false;
+        }
+        if (dropping) {
+            if (now - dropNext < 0L)
+                return false;
+            count++;
+            dropNext = controlLaw(dropNext);
+            return true;
+        }
+        if (now - firstAboveTime < 0L)
+            return false;
+        dropping = true;
+        //刚退出丢弃状态不久又进入时,沿用上次的丢弃频率.
+        int delta = count - lastCount;
+        count = delta > 1 && now - dropNext < 16 * intervalNanos ? delta : 1;
+        lastCount = count;
+        dropNext = controlLaw(now);
+        return true;
+    }
+
+    private long controlLaw(long t) {
+        return t + (long) (intervalNanos / Math.sqrt(count));
+    }
+
+    @Override
+    public Runnable peek() {
+        Entry e = queue.peek();
+        return e == null ? null : e.task;
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return queue.remainingCapacity();
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        int n = 0;
+        for (Entry e; n < maxElements && (e = queue.poll()) != null; n++) {
+            c.add(e.task);
+        }
+        return n;
+    }
+
+    /**
+     * 支持remove,ThreadPoolExecutor.remove和Backpressure的优先级策略依赖它.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        Iterator<Entry> it = queue.iterator();
+        return new Iterator<Runnable>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Runnable next() {
+                return it.next().task;
+            }
+
+            @Override
+            public void remove() {
+                it.remove();
+            }
+        };
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public LatencyHistogram getSojournHistogram() {
+        return sojournHistogram;
+    }
+}
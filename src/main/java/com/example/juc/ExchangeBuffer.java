@@ -0,0 +1,25 @@
+package com.example.juc;
+
+/**
+ * 可在线程间交换并复用的缓冲.
+ * 交换出去的缓冲由对端清空后再换回来,整个生命周期内不重新分配.
+ */
+public interface ExchangeBuffer {
+
+    int size();
+
+    int capacity();
+
+    /**
+     * 清空内容,保留底层数组.
+     */
+    void clear();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    default boolean isFull() {
+        return size() >= capacity();
+    }
+}
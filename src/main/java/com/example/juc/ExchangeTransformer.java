@@ -0,0 +1,50 @@
+package com.example.juc;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多级流水线中的中间级:从上游BufferExchange批量取出,转换后写入下游BufferExchange.
+ * 生产者 -> 转换器 -> 消费者,每一级之间都是双缓冲,缓冲全部复用.
+ * 上游close后,本级处理完最后一批即close下游.
+ */
+public class ExchangeTransformer<I extends ExchangeBuffer, O extends ExchangeBuffer> implements Runnable {
+
+    /**
+     * 转换一批数据,通过out.writable()写入下游.
+     */
+    @FunctionalInterface
+    public interface Transform<I, O extends ExchangeBuffer> {
+        void apply(I input, BufferExchange<O> out) throws InterruptedException;
+    }
+
+    private final BufferExchange<I> in;
+    private final BufferExchange<O> out;
+    private final Transform<? super I, O> transform;
+    private final long pollNanos;
+
+    /**
+     * @param pollTimeout 等待上游的超时,超时后检查下游是否需要部分刷出.
+     */
+    public ExchangeTransformer(BufferExchange<I> in, BufferExchange<O> out,
+                               Transform<? super I, O> transform, long pollTimeout, TimeUnit unit) {
+        this.in = in;
+        this.out = out;
+        this.transform = transform;
+        this.pollNanos = unit.toNanos(pollTimeout);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!in.isFinished()) {
+                I batch = in.poll(pollNanos, TimeUnit.NANOSECONDS);
+                if (batch != null)
+                    transform.apply(batch, out);
+                out.flushIfStale();
+            }
+            out.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.juc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 周期采样ForkJoinPool的状态,保存最近capacity个样本组成的时间序列,用于在线上观察worker饥饿和偷取速率,
+ * 不需要挂调试器.
+ * <p>
+ * 采样在独立的守护线程中进行,不占用被采样线程池的worker.样本保存在定长的循环数组中,
+ * 旧样本被覆盖,内存占用固定.读取方法返回副本,可以与采样并发调用.
+ */
+public class ForkJoinPoolSampler implements Closeable {
+
+    private final ForkJoinPool pool;
+    private final ForkJoinPoolState[] samples;
+    private int next;//下一个写入位置.
+    private long count;//累计采样数.
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> future;
+
+    public ForkJoinPoolSampler(ForkJoinPool pool, int capacity) {
+        if (capacity < 2)
+            throw new IllegalArgumentException("capacity:" + capacity);
+        this.pool = pool;
+        this.samples = new ForkJoinPoolState[capacity];
+    }
+
+    /**
+     * 按固定周期开始采样,重复调用时按新周期重新开始.
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "fork-join-sampler");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        if (future != null)
+            future.cancel(false);
+        future = scheduler.scheduleAtFixedRate(this::sample, 0L, period, unit);
+    }
+
+    /**
+     * 立即采样一次并记录.
+     */
+    public ForkJoinPoolState sample() {
+        ForkJoinPoolState s = ForkJoinPoolState.sample(pool);
+        synchronized (this) {
+            samples[next] = s;
+            next = (next + 1) % samples.length;
+            count++;
+        }
+        return s;
+    }
+
+    /**
+     * 按时间先后返回保存的样本.
+     */
+    public synchronized List<ForkJoinPoolState> series() {
+        int n = (int) Math.min(count, samples.length);
+        List<ForkJoinPoolState> list = new ArrayList<>(n);
+        for (int i = n; i > 0; i--) {
+            list.add(samples[Math.floorMod(next - i, samples.length)]);
+        }
+        return list;
+    }
+
+    public synchronized ForkJoinPoolState latest() {
+        return count == 0 ? null : samples[Math.floorMod(next - 1, samples.length)];
+    }
+
+    public synchronized long getSampleCount() {
+        return count;
+    }
+
+    /**
+     * 保存的时间窗内每秒偷取数,样本不足两个时为0.
+     */
+    public double stealRate() {
+        List<ForkJoinPoolState> list = series();
+        if (list.size() < 2)
+            return 0.0;
+        ForkJoinPoolState first = list.get(0), last = list.get(list.size() - 1);
+        long nanos = last.getNanoTime() - first.getNanoTime();
+        return nanos <= 0L ? 0.0 : (last.getStealCount() - first.getStealCount()) * 1e9 / nanos;
+    }
+
+    /**
+     * 保存的样本中处于饥饿状态的比例.
+     */
+    public double starvedRatio() {
+        List<ForkJoinPoolState> list = series();
+        if (list.isEmpty())
+            return 0.0;
+        int starved = 0;
+        for (ForkJoinPoolState s : list) {
+            if (s.isStarved())
+                starved++;
+        }
+        return (double) starved / list.size();
+    }
+
+    /**
+     * 以csv格式导出保存的样本,时间为相对第一个样本的毫秒数.
+     */
+    public void export(Appendable out) throws IOException {
+        List<ForkJoinPoolState> list = series();
+        out.append("millis,parallelism,active,total,running,blocked,queued,submissions,steals,starved\n");
+        if (list.isEmpty())
+            return;
+        long start = list.get(0).getNanoTime();
+        for (ForkJoinPoolState s : list) {
+            out.append(Long.toString(TimeUnit.NANOSECONDS.toMillis(s.getNanoTime() - start))).append(',')
+                    .append(Integer.toString(s.getParallelism())).append(',')
+                    .append(Integer.toString(s.getActiveCount())).append(',')
+                    .append(Integer.toString(s.getTotalCount())).append(',')
+                    .append(Integer.toString(s.getRunningCount())).append(',')
+                    .append(Integer.toString(s.getBlockedCount())).append(',')
+                    .append(Long.toString(s.getQueuedTaskCount())).append(',')
+                    .append(Integer.toString(s.getQueuedSubmissionCount())).append(',')
+                    .append(Long.toString(s.getStealCount())).append(',')
+                    .append(s.isStarved() ? "1" : "0").append('\n');
+        }
+    }
+
+    /**
+     * 停止周期采样,已保存的样本仍可读取.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            future = null;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.juc;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * ForkJoinPool某一时刻的状态,由ForkJoinTest.testInitCtlAndConfig中手工计算的ctl/config位域整理而来.
+ * <p>
+ * jdk8的ctl布局(高位到低位):
+ * AC(16位,活跃线程数-并行度),TC(16位,总线程数-并行度),SP(32位,空闲worker栈顶的版本和下标).
+ * AC,TC都是有符号short,初始为-parallelism,addWorker时各加1.
+ * config低16位为并行度,第17位为FIFO模式.
+ * <p>
+ * ctl通过反射读取,只是一次volatile读.jdk9以上ctl高16位的含义有变化,且默认不开放java.util.concurrent包,
+ * 因此只在jdk8上读取ctl,其他版本的活跃数和总数改由公开方法得到,{@link #isCtlAvailable()}为false.
+ * getStealCount,getQueuedTaskCount等公开方法需要遍历工作队列,开销与队列数成正比,适合周期采样.
+ */
+public final class ForkJoinPoolState {
+
+    static final int AC_SHIFT = 48;
+    static final int TC_SHIFT = 32;
+    static final int SMASK = 0xffff;
+    static final int FIFO_QUEUE = 1 << 16;
+    static final long SP_MASK = 0xffffffffL;
+
+    private static final Field CTL = accessible("ctl");
+    private static final Field CONFIG = accessible("config");
+
+    private final long nanoTime;
+    private final int parallelism;
+    private final boolean asyncMode;
+    private final boolean ctlAvailable;
+    private final long ctl;
+    private final int activeCount;
+    private final int totalCount;
+    private final int runningCount;
+    private final long queuedTaskCount;
+    private final int queuedSubmissionCount;
+    private final long stealCount;
+
+    private ForkJoinPoolState(ForkJoinPool pool) {
+        this.nanoTime = System.nanoTime();
+        this.parallelism = pool.getParallelism();
+        this.asyncMode = pool.getAsyncMode();
+        long c = 0L;
+        boolean available = CTL != null;
+        if (available) {
+            try {
+                c = CTL.getLong(pool);
+            } catch (IllegalAccessException e) {
+                available = false;
+            }
+        }
+        this.ctlAvailable = available;
+        this.ctl = c;
+        if (available) {
+            this.activeCount = Math.max(0, activeCount(c, parallelism));
+            this.totalCount = Math.max(0, totalCount(c, parallelism));
+        } else {
+            this.activeCount = pool.getActiveThreadCount();
+            this.totalCount = pool.getPoolSize();
+        }
+        this.runningCount = pool.getRunningThreadCount();
+        this.queuedTaskCount = pool.getQueuedTaskCount();
+        this.queuedSubmissionCount = pool.getQueuedSubmissionCount();
+        this.stealCount = pool.getStealCount();
+    }
+
+    /**
+     * 采样,可用于commonPool.
+     */
+    public static ForkJoinPoolState sample(ForkJoinPool pool) {
+        return new ForkJoinPoolState(pool);
+    }
+
+    private static Field accessible(String name) {
+        if (!"1.8".equals(System.getProperty("java.specification.version")))
+            return null;
+        try {
+            Field f = ForkJoinPool.class.getDeclaredField(name);
+            f.setAccessible(true);
+            return f;
+        } catch (NoSuchFieldException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 读取config,反射不可用时返回-1.
+     */
+    public static int readConfig(ForkJoinPool pool) {
+        if (CONFIG == null)
+            return -1;
+        try {
+            return CONFIG.getInt(pool);
+        } catch (IllegalAccessException e) {
+            return -1;
+        }
+    }
+
+    //以下为位域的编解码,与jdk8的ForkJoinPool构造函数和addWorker一致.
+
+    public static long initialCtl(int parallelism) {
+        long np = -parallelism;
+        return ((np << AC_SHIFT) & (0xffffL << AC_SHIFT)) | ((np << TC_SHIFT) & (0xffffL << TC_SHIFT));
+    }
+
+    public static int initialConfig(int parallelism, boolean asyncMode) {
+        return (parallelism & SMASK) | (asyncMode ? FIFO_QUEUE : 0);
+    }
+
+    /**
+     * 新增一个worker后的ctl,即addWorker中的nc.
+     */
+    public static long addWorker(long ctl) {
+        return ((0xffffL << AC_SHIFT) & (ctl + (1L << AC_SHIFT))) | ((0xffffL << TC_SHIFT) & (ctl + (1L << TC_SHIFT)));
+    }
+
+    public static int activeCount(long ctl, int parallelism) {
+        return (short) (ctl >>> AC_SHIFT) + parallelism;
+    }
+
+    public static int totalCount(long ctl, int parallelism) {
+        return (short) (ctl >>> TC_SHIFT) + parallelism;
+    }
+
+    /**
+     * 空闲worker栈顶在workQueues中的下标,没有空闲worker时为-1.
+     */
+    public static int idleTop(long ctl) {
+        int sp = (int) (ctl & SP_MASK);
+        return sp == 0 ? -1 : sp & SMASK;
+    }
+
+    public static int configParallelism(int config) {
+        return config & SMASK;
+    }
+
+    public static boolean configAsyncMode(int config) {
+        return (config & FIFO_QUEUE) != 0;
+    }
+
+    public long getNanoTime() {
+        return nanoTime;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public boolean isAsyncMode() {
+        return asyncMode;
+    }
+
+    public boolean isCtlAvailable() {
+        return ctlAvailable;
+    }
+
+    /**
+     * 原始ctl,反射不可用时为0.
+     */
+    public long getCtl() {
+        return ctl;
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public int getRunningCount() {
+        return runningCount;
+    }
+
+    public long getQueuedTaskCount() {
+        return queuedTaskCount;
+    }
+
+    public int getQueuedSubmissionCount() {
+        return queuedSubmissionCount;
+    }
+
+    public long getStealCount() {
+        return stealCount;
+    }
+
+    /**
+     * 有排队的任务,但活跃线程数小于并行度:worker没有被及时唤醒或创建.
+     */
+    public boolean isStarved() {
+        return queuedTaskCount + queuedSubmissionCount > 0 && activeCount < parallelism;
+    }
+
+    /**
+     * 活跃但未在运行的线程数,即阻塞在join或ManagedBlocker中的线程.
+     */
+    public int getBlockedCount() {
+        return Math.max(0, activeCount - runningCount);
+    }
+
+    @Override
+    public String toString() {
+        return "ForkJoinPoolState{parallelism=" + parallelism + ", asyncMode=" + asyncMode
+                + (ctlAvailable ? ", ctl=" + Long.toHexString(ctl) : "")
+                + ", active=" + activeCount + ", total=" + totalCount + ", running=" + runningCount
+                + ", queued=" + queuedTaskCount + ", submissions=" + queuedSubmissionCount
+                + ", steals=" + stealCount + "}";
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.juc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 直接交接的执行器.QueueTest演示了SynchronousQueue.offer在没有消费者等待时必然失败,
+ * CompleterTest中的ThreadPoolExecutor则相反:核心线程满后任务先进队列,队列满了才加线程,空闲线程也要经过队列.
+ * <p>
+ * 本类提交任务的顺序是:
+ * 1.SynchronousQueue.offer,有空闲worker正在poll时直接交给它,没有排队.
+ * SynchronousQueue的非公平模式是栈,最近空闲的worker先被选中;多核时poll在park前先自旋.
+ * 2.没有空闲worker且worker数未达上限时,新建worker执行该任务.
+ * 3.worker数已达上限时放入有界的溢出环形缓存(MpmcRingBuffer),worker做完手头的任务后先从这里取.
+ * 4.溢出缓存也满时拒绝,抛出RejectedExecutionException.
+ * <p>
+ * worker在溢出缓存为空后才去等待交接.为避免任务刚放入溢出缓存时,最后一个worker恰好在检查缓存和开始poll之间,
+ * 从而空等到keepAlive,worker在检查缓存前先登记为等待中,提交方放入溢出缓存后若看到有等待中的worker,
+ * 就交接一个空任务把它唤醒.
+ * <p>
+ * 超过coreWorkers的worker空闲keepAlive后退出.各路径的次数见getXxxCount,{@link #getHandoffRate()}是直接交接的比例.
+ */
+public class HandoffExecutor extends AbstractExecutorService {
+
+    /**
+     * 只用于唤醒worker的空任务.
+     */
+    private static final Runnable WAKE_UP = () -> {
+    };
+
+    private final int coreWorkers, maxWorkers;
+    private final long keepAliveNanos;
+    private final SynchronousQueue<Runnable> handoff = new SynchronousQueue<>();
+    private final RingBuffer<Runnable> overflow;
+    private final ThreadFactory threadFactory = Threads.factory("handoff");
+    private final AtomicInteger workerCount = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();//即将或正在poll交接的worker数.
+    private final Set<Thread> workers = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch termination = new CountDownLatch(1);
+    private volatile boolean shutdown;
+    private final LongAdder handoffs = new LongAdder();
+    private final LongAdder spawns = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    volatile Runnable retireHook;//空闲超时后,扣除workerCount之前调用,测试用它让worker停在退出前.
+
+    /**
+     * @param coreWorkers      空闲时也保留的worker数.
+     * @param maxWorkers       worker数上限.
+     * @param overflowCapacity 达到上限后的溢出缓存容量,向上取整为2的幂.
+     * @param keepAlive        超过coreWorkers的worker的最长空闲时间.
+     */
+    public HandoffExecutor(int coreWorkers, int maxWorkers, int overflowCapacity, long keepAlive, TimeUnit unit) {
+        if (coreWorkers < 0 || maxWorkers < 1 || maxWorkers < coreWorkers || keepAlive <= 0L)
+            throw new IllegalArgumentException();
+        this.coreWorkers = coreWorkers;
+        this.maxWorkers = maxWorkers;
+        this.keepAliveNanos = unit.toNanos(keepAlive);
+        this.overflow = RingBuffer.mpmc(overflowCapacity, WaitStrategy.yielding());
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null)
+            throw new NullPointerException();
+        if (shutdown)
+            throw reject();
+        if (handoff.offer(command)) {
+            handoffs.increment();
+            return;
+        }
+        if (addWorker(command)) {
+            spawns.increment();
+            return;
+        }
+        if (!overflow.offer(command))
+            throw reject();
+        overflows.increment();
+        //addWorker失败后最后一个worker可能已超时退出,与next中扣除后检查溢出缓存配对.
+        if (workerCount.get() == 0)
+            addWorker(WAKE_UP);
+        //登记为等待中的worker可能还没开始poll,交接一个空任务唤醒它去取溢出缓存.
+        while (waiting.get() > 0 && !overflow.isEmpty() && !handoff.offer(WAKE_UP)) {
+            Thread.yield();
+        }
+    }
+
+    private RejectedExecutionException reject() {
+        rejections.increment();
+        return new RejectedExecutionException(shutdown ? "已关闭" : "worker和溢出缓存已满");
+    }
+
+    /**
+     * worker数未达上限时新建worker执行first.
+     */
+    private boolean addWorker(Runnable first) {
+        for (int c; (c = workerCount.get()) < maxWorkers; ) {
+            if (workerCount.compareAndSet(c, c + 1)) {
+                try {
+                    Thread t = threadFactory.newThread(() -> work(first));
+                    workers.add(t);
+                    t.start();
+                } catch (Throwable e) {
+                    workerCount.decrementAndGet();
+                    throw e;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void work(Runnable first) {
+        Thread self = Thread.currentThread();
+        boolean abrupt = true;
+        try {
+            for (Runnable task = first; task != null; task = next()) {
+                if (task != WAKE_UP)
+                    task.run();
+            }
+            abrupt = false;
+        } finally {
+            workers.remove(self);
+            if (abrupt) {
+                //任务抛出异常,异常交给线程的UncaughtExceptionHandler.溢出缓存中还有任务时补一个worker.
+                workerCount.decrementAndGet();
+                if (!overflow.isEmpty())
+                    addWorker(WAKE_UP);
+            }
+            tryTerminate();
+        }
+    }
+
+    /**
+     * 下一个任务,返回null时worker退出,此时已从workerCount中扣除.
+     */
+    private Runnable next() {
+        for (; ; ) {
+            Runnable task = overflow.poll();
+            if (task != null)
+                return task;
+            if (shutdown) {
+                workerCount.decrementAndGet();
+                return null;
+            }
+            waiting.incrementAndGet();
+            try {
+                //登记后再检查一次,与execute中放入溢出缓存后检查waiting配对.
+                if ((task = overflow.poll()) == null)
+                    task = handoff.poll(keepAliveNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                //shutdownNow,循环开头检查shutdown.
+                continue;
+            } finally {
+                waiting.decrementAndGet();
+            }
+            if (task != null)
+                return task;
+            Runnable hook = retireHook;
+            if (hook != null)
+                hook.run();
+            int c = workerCount.get();
+            if (c > coreWorkers && workerCount.compareAndSet(c, c - 1)) {
+                //扣除后再检查溢出缓存:提交者可能在worker数满时放入了任务,而此时waiting已为0,没有唤醒任何worker.
+                //与ThreadPoolExecutor.processWorkerExit相同,撤销退出继续处理,已满时由其他worker处理.
+                if (!overflow.isEmpty() && !shutdown && reclaimWorker())
+                    continue;
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 撤销退出,重新计入workerCount,不超过maxWorkers.
+     */
+    private boolean reclaimWorker() {
+        for (int c; (c = workerCount.get()) < maxWorkers; ) {
+            if (workerCount.compareAndSet(c, c + 1))
+                return true;
+        }
+        return false;
+    }
+
+    private void tryTerminate() {
+        if (shutdown && workerCount.get() == 0 && overflow.isEmpty())
+            termination.countDown();
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        wakeIdleWorkers();
+        tryTerminate();
+    }
+
+    /**
+     * 唤醒正在等待交接的worker,让它们发现已关闭.
+     */
+    private void wakeIdleWorkers() {
+        while (waiting.get() > 0) {
+            if (!handoff.offer(WAKE_UP))
+                Thread.yield();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> pending = new ArrayList<>();
+        for (Runnable task; (task = overflow.poll()) != null; ) {
+            pending.add(task);
+        }
+        for (Thread t : workers) {
+            t.interrupt();
+        }
+        tryTerminate();
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return termination.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return termination.await(timeout, unit);
+    }
+
+    public int getPoolSize() {
+        return workerCount.get();
+    }
+
+    public int getOverflowSize() {
+        return overflow.size();
+    }
+
+    /**
+     * 直接交给空闲worker的任务数.
+     */
+    public long getHandoffCount() {
+        return handoffs.sum();
+    }
+
+    /**
+     * 新建worker执行的任务数.
+     */
+    public long getSpawnCount() {
+        return spawns.sum();
+    }
+
+    /**
+     * 进入溢出缓存的任务数.
+     */
+    public long getOverflowCount() {
+        return overflows.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * 已接受的任务中直接交接的比例,没有任务时为0.
+     */
+    public double getHandoffRate() {
+        long h = handoffs.sum();
+        long total = h + spawns.sum() + overflows.sum();
+        return total == 0L ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[workers = " + workerCount.get() + ", overflow = " + overflow.size()
+                + ", handoff = " + handoffs.sum() + ", spawn = " + spawns.sum() + ", overflowed = " + overflows.sum()
+                + ", rejected = " + rejections.sum() + "]";
+    }
+}
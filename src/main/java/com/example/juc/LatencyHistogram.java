@@ -0,0 +1,108 @@
+package com.example.juc;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 以2的幂为桶边界的耗时直方图,单位纳秒.
+ * 第0桶记录0,第b桶记录[2^(b-1), 2^b-1],共64个桶覆盖全部非负long.
+ * 每个桶是一个LongAdder,多线程记录时不会在同一个计数上CAS争抢.
+ */
+public class LatencyHistogram {
+
+    static final int BUCKETS = 64;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        counts[bucket(nanos)].increment();
+    }
+
+    /**
+     * 按桶累加计数,用于合并其他线程中按同样分桶记录的计数.
+     */
+    void add(long[] bucketCounts) {
+        for (int b = 0; b < BUCKETS; b++) {
+            if (bucketCounts[b] != 0L)
+                counts[b].add(bucketCounts[b]);
+        }
+    }
+
+    static int bucket(long nanos) {
+        return nanos <= 0L ? 0 : 64 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    /**
+     * 第b桶的上界(含).
+     */
+    static long upperBound(int b) {
+        return b == 0 ? 0L : b >= 63 ? Long.MAX_VALUE : (1L << b) - 1;
+    }
+
+    /**
+     * 各桶计数的快照,并发记录期间各桶之间不保证是同一瞬间.
+     */
+    public long[] snapshot() {
+        long[] result = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            result[i] = counts[i].sum();
+        }
+        return result;
+    }
+
+    public long count() {
+        long n = 0L;
+        for (LongAdder c : counts) {
+            n += c.sum();
+        }
+        return n;
+    }
+
+    /**
+     * 估算百分位数,返回所在桶的上界,p取值(0,100].没有记录时返回0.
+     */
+    public long percentile(double p) {
+        long[] snapshot = snapshot();
+        long total = 0L;
+        for (long c : snapshot) {
+            total += c;
+        }
+        if (total == 0L)
+            return 0L;
+        long rank = (long) Math.ceil(total * p / 100.0);
+        long seen = 0L;
+        for (int b = 0; b < BUCKETS; b++) {
+            if ((seen += snapshot[b]) >= rank)
+                return upperBound(b);
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public void reset() {
+        for (LongAdder c : counts) {
+            c.reset();
+        }
+    }
+
+    /**
+     * 只输出非空桶,形如{<=0ns:10, <=1023ns:3}.
+     */
+    @Override
+    public String toString() {
+        long[] snapshot = snapshot();
+        StringBuilder sb = new StringBuilder("{");
+        for (int b = 0; b < BUCKETS; b++) {
+            if (snapshot[b] == 0L)
+                continue;
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append("<=").append(upperBound(b)).append("ns:").append(snapshot[b]);
+        }
+        return sb.append('}').toString();
+    }
+}
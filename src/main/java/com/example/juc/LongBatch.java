@@ -0,0 +1,42 @@
+package com.example.juc;
+
+/**
+ * long[]承载的缓冲,元素不装箱.
+ */
+public final class LongBatch implements ExchangeBuffer {
+
+    private final long[] values;
+    private int size;
+
+    public LongBatch(int capacity) {
+        this.values = new long[capacity];
+    }
+
+    /**
+     * 调用方保证未满.
+     */
+    public void add(long value) {
+        values[size++] = value;
+    }
+
+    public long get(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("index:" + index + ",size:" + size);
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int capacity() {
+        return values.length;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,367 @@
+package com.example.juc;
+
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * 基于CountedCompleter的通用map reduce.
+ * 由ForkJoinTest.MapReducer演化而来,保留forks/next兄弟链表的归约方式,区别在于:
+ * 1.支持数组,List片段和纯索引区间三种数据源.
+ * 2.mapper的输出类型R可以与元素类型T不同,reducer需要一个identity作为空区间和叶子的初值.
+ * 3.不再一直分到单个元素,而是按ForkJoinTask.getSurplusQueuedTaskCount()自适应决定叶子大小:
+ * 本线程队列中积压的任务已足够别人偷取时,就地顺序计算余下区间.
+ * <p>
+ * reducer需满足结合律,归约顺序保持从左到右,因此不要求满足交换律.
+ */
+public final class MapReduce {
+
+    /**
+     * 本线程积压超过这么多任务时不再分裂,与ForkJoinTask文档中推荐的取值一致.
+     */
+    static final int SURPLUS_LIMIT = 3;
+
+    private MapReduce() {
+    }
+
+    public static <T, R> R mapReduce(T[] array, Function<? super T, ? extends R> mapper,
+                                     R identity, BinaryOperator<R> reducer) {
+        return mapReduce(ForkJoinPool.commonPool(), array, 0, array.length, mapper, identity, reducer);
+    }
+
+    public static <T, R> R mapReduce(ForkJoinPool pool, T[] array, int lo, int hi,
+                                     Function<? super T, ? extends R> mapper,
+                                     R identity, BinaryOperator<R> reducer) {
+        checkRange(array.length, lo, hi);
+        return mapReduce(pool, lo, hi, i -> mapper.apply(array[i]), identity, reducer);
+    }
+
+    public static <T, R> R mapReduce(List<T> list, Function<? super T, ? extends R> mapper,
+                                     R identity, BinaryOperator<R> reducer) {
+        return mapReduce(ForkJoinPool.commonPool(), list, 0, list.size(), mapper, identity, reducer);
+    }
+
+    /**
+     * 对list的[lo,hi)片段做map reduce.
+     * 非RandomAccess的List(如LinkedList)按索引访问代价是线性的,先拷贝该片段到数组再计算.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, R> R mapReduce(ForkJoinPool pool, List<T> list, int lo, int hi,
+                                     Function<? super T, ? extends R> mapper,
+                                     R identity, BinaryOperator<R> reducer) {
+        checkRange(list.size(), lo, hi);
+        if (!(list instanceof RandomAccess)) {
+            T[] copy = (T[]) list.subList(lo, hi).toArray();
+            return mapReduce(pool, copy, 0, copy.length, mapper, identity, reducer);
+        }
+        return mapReduce(pool, lo, hi, i -> mapper.apply(list.get(i)), identity, reducer);
+    }
+
+    public static <R> R mapReduce(int lo, int hi, IntFunction<? extends R> mapper,
+                                  R identity, BinaryOperator<R> reducer) {
+        return mapReduce(ForkJoinPool.commonPool(), lo, hi, mapper, identity, reducer);
+    }
+
+    /**
+     * 对索引区间[lo,hi)做map reduce,mapper接收的是索引本身.
+     */
+    public static <R> R mapReduce(ForkJoinPool pool, int lo, int hi, IntFunction<? extends R> mapper,
+                                  R identity, BinaryOperator<R> reducer) {
+        return mapReduce(pool, lo, hi, mapper, identity, reducer, false);
+    }
+
+    /**
+     * @param excludeCaller 为true时调用者只等待,不参与计算.pool.invoke的调用者在join时会帮助执行子任务
+     *                      (java8中公共池如此,较新的版本中任意池都如此),为false时与之相同.
+     *                      调用者本身是pool的worker时忽略此参数,由它参与计算,否则它所在的worker空等.
+     */
+    static <R> R mapReduce(ForkJoinPool pool, int lo, int hi, IntFunction<? extends R> mapper,
+                           R identity, BinaryOperator<R> reducer, boolean excludeCaller) {
+        if (hi <= lo)
+            return identity;
+        return invoke(pool, new MapReducer<>(null, mapper, identity, reducer, lo, hi,
+                granularity(pool, hi - lo), null), excludeCaller);
+    }
+
+    public static long mapReduceToLong(ForkJoinPool pool, int lo, int hi, IntToLongFunction mapper,
+                                       long identity, LongBinaryOperator reducer) {
+        return mapReduceToLong(pool, lo, hi, mapper, identity, reducer, false);
+    }
+
+    /**
+     * long特化的map reduce,叶子内的计算和子任务之间的归约都不装箱.
+     */
+    static long mapReduceToLong(ForkJoinPool pool, int lo, int hi, IntToLongFunction mapper,
+                                long identity, LongBinaryOperator reducer, boolean excludeCaller) {
+        if (hi <= lo)
+            return identity;
+        LongMapReducer task = new LongMapReducer(null, mapper, identity, reducer, lo, hi,
+                granularity(pool, hi - lo), null);
+        invoke(pool, task, excludeCaller);
+        return task.result;
+    }
+
+    public static double mapReduceToDouble(ForkJoinPool pool, int lo, int hi, IntToDoubleFunction mapper,
+                                           double identity, DoubleBinaryOperator reducer) {
+        return mapReduceToDouble(pool, lo, hi, mapper, identity, reducer, false);
+    }
+
+    /**
+     * double特化的map reduce,叶子内的计算和子任务之间的归约都不装箱.
+     */
+    static double mapReduceToDouble(ForkJoinPool pool, int lo, int hi, IntToDoubleFunction mapper,
+                                    double identity, DoubleBinaryOperator reducer, boolean excludeCaller) {
+        if (hi <= lo)
+            return identity;
+        DoubleMapReducer task = new DoubleMapReducer(null, mapper, identity, reducer, lo, hi,
+                granularity(pool, hi - lo), null);
+        invoke(pool, task, excludeCaller);
+        return task.result;
+    }
+
+    /**
+     * 执行根任务并返回其结果,excludeCaller的含义见{@link #mapReduce(ForkJoinPool, int, int, IntFunction, Object, BinaryOperator, boolean)}.
+     */
+    private static <R> R invoke(ForkJoinPool pool, CountedCompleter<R> task, boolean excludeCaller) {
+        if (!excludeCaller || ForkJoinTask.getPool() == pool)
+            return pool.invoke(task);
+        Detached root = new Detached(task);
+        pool.execute(root);
+        try {
+            ForkJoinPool.managedBlock(root);
+        } catch (InterruptedException e) {
+            //与invoke一致,等待不响应中断,只恢复中断状态.
+            root.awaitInterrupted();
+        }
+        return task.join();
+    }
+
+    /**
+     * 叶子的最小长度.只作为下限,防止区间被分得过细,实际叶子大小由积压任务数决定.
+     */
+    static int granularity(ForkJoinPool pool, int length) {
+        return Math.max(1, length / (pool.getParallelism() << 3));
+    }
+
+    private static void checkRange(int length, int lo, int hi) {
+        if (lo < 0 || hi > length || lo > hi)
+            throw new IndexOutOfBoundsException("lo:" + lo + ",hi:" + hi + ",length:" + length);
+    }
+
+    /**
+     * 不让调用者参与计算的根任务:调用者等待闩锁,而不是join任务.
+     * 任务树在池中完成(包括异常完成)后才打开闩锁,此后join直接返回结果或抛出异常,不再帮助执行.
+     * 以ManagedBlocker等待,调用者是其他池的worker时,那个池可以补偿一个线程.
+     */
+    static final class Detached extends CountedCompleter<Void> implements ForkJoinPool.ManagedBlocker {
+
+        private static final long serialVersionUID = 1L;
+
+        final CountedCompleter<?> task;
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Detached(CountedCompleter<?> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void compute() {
+            try {
+                task.invoke();
+                tryComplete();
+            } finally {
+                done.countDown();
+            }
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            done.await();
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done.getCount() == 0L;
+        }
+
+        /**
+         * 等待已被中断后继续等到完成,返回前恢复中断状态.
+         */
+        void awaitInterrupted() {
+            while (done.getCount() != 0L) {
+                try {
+                    done.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static final class MapReducer<R> extends CountedCompleter<R> {
+
+        private static final long serialVersionUID = 1L;
+
+        final IntFunction<? extends R> mapper;
+        final R identity;
+        final BinaryOperator<R> reducer;
+        final int lo, hi, granularity;
+        MapReducer<R> forks, next; // record subtask forks in list
+        R result;
+
+        MapReducer(CountedCompleter<?> p, IntFunction<? extends R> mapper, R identity,
+                   BinaryOperator<R> reducer, int lo, int hi, int granularity, MapReducer<R> next) {
+            super(p);
+            this.mapper = mapper;
+            this.identity = identity;
+            this.reducer = reducer;
+            this.lo = lo;
+            this.hi = hi;
+            this.granularity = granularity;
+            this.next = next;
+        }
+
+        @Override
+        public void compute() {
+            int l = lo, h = hi;
+            //区间足够大且本线程积压不多时才分裂,否则顺序计算,省去每元素一个任务的开销.
+            while (h - l > granularity && ForkJoinTask.getSurplusQueuedTaskCount() <= SURPLUS_LIMIT) {
+                int mid = (l + h) >>> 1;
+                addToPendingCount(1);
+                (forks = new MapReducer<>(this, mapper, identity, reducer, mid, h, granularity, forks)).fork();
+                h = mid;
+            }
+            R r = identity;
+            for (int i = l; i < h; i++) {
+                r = reducer.apply(r, mapper.apply(i));
+            }
+            result = r;
+            //forks链表头是最后fork的,即紧邻本任务右侧的区间,沿next依次向右,归约顺序从左到右.
+            for (CountedCompleter<?> c = firstComplete(); c != null; c = c.nextComplete()) {
+                @SuppressWarnings("unchecked")
+                MapReducer<R> t = (MapReducer<R>) c;
+                for (MapReducer<R> s = t.forks; s != null; s = t.forks = s.next)
+                    t.result = reducer.apply(t.result, s.result);
+            }
+        }
+
+        @Override
+        public R getRawResult() {
+            return result;
+        }
+    }
+
+    static final class LongMapReducer extends CountedCompleter<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        final IntToLongFunction mapper;
+        final long identity;
+        final LongBinaryOperator reducer;
+        final int lo, hi, granularity;
+        LongMapReducer forks, next;
+        long result;
+
+        LongMapReducer(CountedCompleter<?> p, IntToLongFunction mapper, long identity,
+                       LongBinaryOperator reducer, int lo, int hi, int granularity, LongMapReducer next) {
+            super(p);
+            this.mapper = mapper;
+            this.identity = identity;
+            this.reducer = reducer;
+            this.lo = lo;
+            this.hi = hi;
+            this.granularity = granularity;
+            this.next = next;
+        }
+
+        @Override
+        public void compute() {
+            int l = lo, h = hi;
+            while (h - l > granularity && ForkJoinTask.getSurplusQueuedTaskCount() <= SURPLUS_LIMIT) {
+                int mid = (l + h) >>> 1;
+                addToPendingCount(1);
+                (forks = new LongMapReducer(this, mapper, identity, reducer, mid, h, granularity, forks)).fork();
+                h = mid;
+            }
+            long r = identity;
+            for (int i = l; i < h; i++) {
+                r = reducer.applyAsLong(r, mapper.applyAsLong(i));
+            }
+            result = r;
+            for (CountedCompleter<?> c = firstComplete(); c != null; c = c.nextComplete()) {
+                LongMapReducer t = (LongMapReducer) c;
+                for (LongMapReducer s = t.forks; s != null; s = t.forks = s.next)
+                    t.result = reducer.applyAsLong(t.result, s.result);
+            }
+        }
+
+        /**
+         * 只在根任务join时装箱一次,调用方直接读取result.
+         */
+        @Override
+        public Long getRawResult() {
+            return result;
+        }
+    }
+
+    static final class DoubleMapReducer extends CountedCompleter<Double> {
+
+        private static final long serialVersionUID = 1L;
+
+        final IntToDoubleFunction mapper;
+        final double identity;
+        final DoubleBinaryOperator reducer;
+        final int lo, hi, granularity;
+        DoubleMapReducer forks, next;
+        double result;
+
+        DoubleMapReducer(CountedCompleter<?> p, IntToDoubleFunction mapper, double identity,
+                         DoubleBinaryOperator reducer, int lo, int hi, int granularity, DoubleMapReducer next) {
+            super(p);
+            this.mapper = mapper;
+            this.identity = identity;
+            this.reducer = reducer;
+            this.lo = lo;
+            this.hi = hi;
+            this.granularity = granularity;
+            this.next = next;
+        }
+
+        @Override
+        public void compute() {
+            int l = lo, h = hi;
+            while (h - l > granularity && ForkJoinTask.getSurplusQueuedTaskCount() <= SURPLUS_LIMIT) {
+                int mid = (l + h) >>> 1;
+                addToPendingCount(1);
+                (forks = new DoubleMapReducer(this, mapper, identity, reducer, mid, h, granularity, forks)).fork();
+                h = mid;
+            }
+            double r = identity;
+            for (int i = l; i < h; i++) {
+                r = reducer.applyAsDouble(r, mapper.applyAsDouble(i));
+            }
+            result = r;
+            for (CountedCompleter<?> c = firstComplete(); c != null; c = c.nextComplete()) {
+                DoubleMapReducer t = (DoubleMapReducer) c;
+                for (DoubleMapReducer s = t.forks; s != null; s = t.forks = s.next)
+                    t.result = reducer.applyAsDouble(t.result, s.result);
+            }
+        }
+
+        @Override
+        public Double getRawResult() {
+            return result;
+        }
+    }
+}
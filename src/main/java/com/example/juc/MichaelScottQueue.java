@@ -0,0 +1,99 @@
+package com.example.juc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 节点复用的无锁队列(Michael-Scott队列),容量固定,节点来自{@link NodeArena}.
+ * <p>
+ * 与原论文一样使用带计数的指针:head,tail以及每个节点的后继都是带印戳的下标.
+ * 出队后旧的哑节点立即归还节点池,被复用时印戳已经变化,持有旧head/tail/后继的线程CAS失败后重读.
+ * 出队线程在CAS之前读取的元素可能已属于复用后的节点,只有CAS成功时才使用.
+ * <p>
+ * 出队的元素成为新的哑节点,其引用保留到该节点再次出队归还时才清除.
+ */
+public class MichaelScottQueue<E> {
+
+    private final NodeArena arena;
+    private final AtomicLong head;
+    private final AtomicLong tail;
+
+    /**
+     * 多分配一个节点作为哑节点.
+     */
+    public MichaelScottQueue(int capacity) {
+        if (capacity < 1 || capacity == Integer.MAX_VALUE)
+            throw new IllegalArgumentException();
+        this.arena = new NodeArena(capacity + 1);
+        int dummy = arena.allocate();
+        this.head = new AtomicLong(NodeArena.pack(dummy, 0));
+        this.tail = new AtomicLong(NodeArena.pack(dummy, 0));
+    }
+
+    public int capacity() {
+        return arena.capacity() - 1;
+    }
+
+    /**
+     * 入队,节点用完时返回false.
+     */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        int node = arena.allocate();
+        if (node == NodeArena.NIL)
+            return false;
+        arena.items[node] = e;
+        for (; ; ) {
+            long t = tail.get();
+            int ti = NodeArena.index(t);
+            long n = arena.next.get(ti);
+            if (t != tail.get())
+                continue;
+            if (NodeArena.index(n) == NodeArena.NIL) {
+                if (arena.next.compareAndSet(ti, n, NodeArena.advance(n, node))) {
+                    tail.compareAndSet(t, NodeArena.advance(t, node));
+                    return true;
+                }
+            } else {
+                //尾指针落后,帮助推进.
+                tail.compareAndSet(t, NodeArena.advance(t, NodeArena.index(n)));
+            }
+        }
+    }
+
+    /**
+     * 出队,队列空时返回null.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        for (; ; ) {
+            long h = head.get();
+            long t = tail.get();
+            int hi = NodeArena.index(h);
+            long n = arena.next.get(hi);
+            if (h != head.get())
+                continue;
+            int ni = NodeArena.index(n);
+            if (hi == NodeArena.index(t)) {
+                if (ni == NodeArena.NIL)
+                    return null;
+                tail.compareAndSet(t, NodeArena.advance(t, ni));
+            } else if (ni != NodeArena.NIL) {
+                E e = (E) arena.items[ni];
+                if (head.compareAndSet(h, NodeArena.advance(h, ni))) {
+                    arena.release(hi);
+                    return e;
+                }
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        for (; ; ) {
+            long h = head.get();
+            long n = arena.next.get(NodeArena.index(h));
+            if (h == head.get())
+                return NodeArena.index(n) == NodeArena.NIL;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.juc;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Consumer;
+
+/**
+ * 多生产者多消费者的环形缓存(Vyukov有界队列).
+ * 每个槽位有一个序号:
+ * 序号等于pos,代表槽位空闲,可由拿到tail=pos的生产者写入;
+ * 序号等于pos+1,代表已写入,可由拿到head=pos的消费者读取;
+ * 读取后序号置为pos+容量,留给下一圈的生产者.
+ * 生产者之间只在tail上CAS,消费者之间只在head上CAS,生产者与消费者之间只通过槽位序号交接.
+ * <p>
+ * 批量操作用一次CAS声明连续的n个序号.声明范围由对端的head/tail计算,其中个别槽位可能
+ * 仍在被对端线程交接(已声明但序号尚未更新),此时在该槽位上短暂等待即可.
+ * 批量放入时元素在声明之后才从迭代器取出,迭代器出错时已声明的其余槽位写入SKIP发布,消费者取到SKIP时跳过.
+ */
+public final class MpmcRingBuffer<E> extends MpmcHeadFields<E> {
+
+    /**
+     * 已声明却没有元素可写的槽位,只在批量放入出错时出现.
+     */
+    static final Object SKIP = new Object();
+
+    long p1, p2, p3, p4, p5, p6, p7;
+
+    public MpmcRingBuffer(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        checkNotNull(e);
+        long pos = tail;
+        for (; ; ) {
+            int i = (int) pos & mask;
+            long dif = sequences.get(i) - pos;
+            if (dif == 0L) {
+                if (TAIL.compareAndSet(this, pos, pos + 1)) {
+                    buffer[i] = e;
+                    sequences.lazySet(i, pos + 1);
+                    return true;
+                }
+                pos = tail;
+            } else if (dif < 0L) {
+                //槽位还是上一圈的数据,缓存已满.
+                return false;
+            } else {
+                pos = tail;
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long pos = head;
+        for (; ; ) {
+            int i = (int) pos & mask;
+            long dif = sequences.get(i) - (pos + 1);
+            if (dif == 0L) {
+                if (HEAD.compareAndSet(this, pos, pos + 1)) {
+                    Object e = buffer[i];
+                    buffer[i] = null;
+                    sequences.lazySet(i, pos + buffer.length);
+                    if (e != SKIP)
+                        return (E) e;
+                }
+                pos = head;
+            } else if (dif < 0L) {
+                //槽位尚未写入,缓存为空.
+                return null;
+            } else {
+                pos = head;
+            }
+        }
+    }
+
+    @Override
+    int offerBatch(Iterator<? extends E> it, int max) {
+        long pos, n;
+        do {
+            pos = tail;
+            n = Math.min(max, head + buffer.length - pos);
+            if (n <= 0L)
+                return 0;
+        } while (!TAIL.compareAndSet(this, pos, pos + n));
+        long k = pos, end = pos + n;
+        try {
+            for (; k < end && it.hasNext(); k++) {
+                E e = it.next();
+                checkNotNull(e);
+                int i = (int) k & mask;
+                awaitSequence(i, k);
+                buffer[i] = e;
+                sequences.lazySet(i, k + 1);
+            }
+        } finally {
+            //迭代器提前结束,抛出异常或遇到null时,已声明的序号无法退回,余下槽位以SKIP发布,避免消费者永久等待.
+            for (long s = k; s < end; s++) {
+                int i = (int) s & mask;
+                awaitSequence(i, s);
+                buffer[i] = SKIP;
+                sequences.lazySet(i, s + 1);
+            }
+        }
+        return (int) (k - pos);
+    }
+
+    /**
+     * 一次CAS声明一段元素后逐个交给consumer.consumer抛出异常时,已声明的序号无法退回给其他消费者,
+     * 同批中尚未交出的元素被丢弃,其槽位交还生产者.
+     * 返回交给consumer的个数,一批全是SKIP时重新声明.
+     */
+    @Override
+    public int drainTo(Consumer<? super E> consumer, int max) {
+        long pos, n;
+        int drained;
+        do {
+            do {
+                pos = head;
+                n = Math.min(max, tail - pos);
+                if (n <= 0L)
+                    return 0;
+            } while (!HEAD.compareAndSet(this, pos, pos + n));
+            drained = drain(consumer, pos, pos + n);
+        } while (drained == 0);
+        return drained;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int drain(Consumer<? super E> consumer, long pos, long end) {
+        int drained = 0;
+        long k = pos;
+        try {
+            for (; k < end; k++) {
+                int i = (int) k & mask;
+                awaitSequence(i, k + 1);
+                Object e = buffer[i];
+                buffer[i] = null;
+                sequences.lazySet(i, k + buffer.length);
+                if (e != SKIP) {
+                    drained++;
+                    consumer.accept((E) e);
+                }
+            }
+        } finally {
+            //consumer抛出异常时已声明的序号无法退回,余下元素丢弃并交还槽位,避免生产者永久等待.
+            for (k++; k < end; k++) {
+                int i = (int) k & mask;
+                awaitSequence(i, k + 1);
+                buffer[i] = null;
+                sequences.lazySet(i, k + buffer.length);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * 等待槽位i的序号到达expected,只会等待对端一个正在进行中的交接.
+     */
+    private void awaitSequence(int i, long expected) {
+        for (int c = 0; sequences.get(i) != expected; c++) {
+            if (c > 100)
+                Thread.yield();
+        }
+    }
+
+    @Override
+    public int size() {
+        long h = head;
+        long t = tail;
+        return (int) Math.max(0L, Math.min(t - h, buffer.length));
+    }
+}
+
+abstract class MpmcPad0<E> extends RingBuffer<E> {
+    long p01, p02, p03, p04, p05, p06, p07;
+
+    final AtomicLongArray sequences;
+
+    MpmcPad0(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+        sequences = new AtomicLongArray(buffer.length);
+        for (int i = 0; i < buffer.length; i++) {
+            sequences.lazySet(i, i);
+        }
+    }
+}
+
+abstract class MpmcTailFields<E> extends MpmcPad0<E> {
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<MpmcTailFields> TAIL =
+            AtomicLongFieldUpdater.newUpdater(MpmcTailFields.class, "tail");
+
+    volatile long tail;
+
+    MpmcTailFields(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+    }
+}
+
+abstract class MpmcPad1<E> extends MpmcTailFields<E> {
+    long p11, p12, p13, p14, p15, p16, p17;
+
+    MpmcPad1(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+    }
+}
+
+abstract class MpmcHeadFields<E> extends MpmcPad1<E> {
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<MpmcHeadFields> HEAD =
+            AtomicLongFieldUpdater.newUpdater(MpmcHeadFields.class, "head");
+
+    volatile long head;
+
+    MpmcHeadFields(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.juc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 多生产者单消费者的无界队列,用作actor的邮箱.
+ * ConcurrentLinkedQueueTest中的ConcurrentLinkedQueue是多消费者的,出队也要CAS head,且每个元素分配一个节点.
+ * 只有一个消费者时:
+ * <p>
+ * 1.节点按块(Chunk)分配,一块容纳chunkSize个元素,块与块之间是链表.
+ * 2.生产者对当前块的claim做一次getAndIncrement取得槽位,写入元素即完成,没有CAS重试.
+ * 取到的槽位恰好等于chunkSize的生产者负责分配下一块并链接,超出的生产者等它链接后进入下一块.
+ * 3.消费者的head和读取位置是普通字段,只读槽位,不需要原子操作.
+ * 槽位已被领取但元素还未写入时(生产者在getAndIncrement和写入之间),消费者等待写入,保证先进先出.
+ * <p>
+ * take/poll(timeout)在队列空时park,生产者写入后若看到等待的消费者则unpark它.
+ * 消费者登记等待后再检查一次队列,生产者写入后再读取等待者,两边都是volatile,不会漏掉唤醒.
+ * <p>
+ * 除offer外的方法只能由唯一的消费者线程调用.
+ */
+public final class MpscLinkedQueue<E> extends MpscConsumerFields<E> {
+
+    static final int DEFAULT_CHUNK_SIZE = 256;
+
+    long p1, p2, p3, p4, p5, p6, p7;
+
+    public MpscLinkedQueue() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    public MpscLinkedQueue(int chunkSize) {
+        super(chunkSize);
+    }
+
+    /**
+     * 入队,队列无界,总是返回true.任意线程可调用.
+     */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        Chunk c = tail;
+        for (; ; ) {
+            int i = Chunk.CLAIM.getAndIncrement(c);
+            if (i < chunkSize) {
+                //volatile写,与下面读waiter构成与take的双向检查.
+                c.slots.set(i, e);
+                break;
+            }
+            c = nextChunk(c, i == chunkSize);
+        }
+        Thread w = waiter;
+        if (w != null)
+            LockSupport.unpark(w);
+        return true;
+    }
+
+    /**
+     * 当前块已满,取得下一块.
+     *
+     * @param owner 是否由本线程分配下一块.
+     */
+    private Chunk nextChunk(Chunk c, boolean owner) {
+        Chunk n = c.next;
+        if (n == null) {
+            if (owner) {
+                n = new Chunk(chunkSize);
+                c.next = n;
+            } else {
+                while ((n = c.next) == null) {
+                    Thread.yield();
+                }
+            }
+        }
+        TAIL.compareAndSet(this, c, n);
+        return n;
+    }
+
+    /**
+     * 出队,队列空时返回null.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        Chunk c = head;
+        int i = consumerIndex;
+        if (i == chunkSize) {
+            Chunk n = c.next;
+            if (n == null)
+                return null;
+            head = c = n;
+            consumerIndex = i = 0;
+        }
+        Object e = c.slots.get(i);
+        if (e == null) {
+            if (c.claim <= i)
+                return null;
+            while ((e = c.slots.get(i)) == null) {
+                Thread.yield();
+            }
+        }
+        c.slots.lazySet(i, null);
+        consumerIndex = i + 1;
+        return (E) e;
+    }
+
+    /**
+     * 出队,队列空时park等待.
+     */
+    public E take() throws InterruptedException {
+        E e = poll();
+        if (e != null)
+            return e;
+        waiter = Thread.currentThread();
+        try {
+            while ((e = poll()) == null) {
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+                LockSupport.park(this);
+            }
+        } finally {
+            waiter = null;
+        }
+        return e;
+    }
+
+    /**
+     * 出队,最多等待timeout,超时返回null.
+     */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = poll();
+        if (e != null)
+            return e;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        waiter = Thread.currentThread();
+        try {
+            while ((e = poll()) == null) {
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0L)
+                    return null;
+                LockSupport.parkNanos(this, remaining);
+            }
+        } finally {
+            waiter = null;
+        }
+        return e;
+    }
+
+    /**
+     * 依次交出最多max个元素,返回交出的个数.actor每次调度处理一批消息,减少park/unpark.
+     */
+    public int drain(Consumer<? super E> consumer, int max) {
+        int n = 0;
+        for (E e; n < max && (e = poll()) != null; n++) {
+            consumer.accept(e);
+        }
+        return n;
+    }
+
+    public boolean isEmpty() {
+        Chunk c = head;
+        int i = consumerIndex;
+        if (i == chunkSize) {
+            c = c.next;
+            if (c == null)
+                return true;
+            i = 0;
+        }
+        return c.claim <= i;
+    }
+
+    static final class Chunk {
+        static final AtomicIntegerFieldUpdater<Chunk> CLAIM =
+                AtomicIntegerFieldUpdater.newUpdater(Chunk.class, "claim");
+
+        final AtomicReferenceArray<Object> slots;
+        volatile int claim;//已领取的槽位数,可能超过容量.
+        volatile Chunk next;
+
+        Chunk(int size) {
+            this.slots = new AtomicReferenceArray<>(size);
+        }
+    }
+}
+
+abstract class MpscPad0<E> {
+    long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class MpscProducerFields<E> extends MpscPad0<E> {
+    @SuppressWarnings("rawtypes")
+    static final AtomicReferenceFieldUpdater<MpscProducerFields, MpscLinkedQueue.Chunk> TAIL =
+            AtomicReferenceFieldUpdater.newUpdater(MpscProducerFields.class, MpscLinkedQueue.Chunk.class, "tail");
+
+    final int chunkSize;
+    volatile MpscLinkedQueue.Chunk tail;//生产者写入的块,可能落后于最新的块.
+
+    MpscProducerFields(int chunkSize, MpscLinkedQueue.Chunk first) {
+        this.chunkSize = chunkSize;
+        this.tail = first;
+    }
+}
+
+abstract class MpscPad1<E> extends MpscProducerFields<E> {
+    long p11, p12, p13, p14, p15, p16, p17;
+
+    MpscPad1(int chunkSize, MpscLinkedQueue.Chunk first) {
+        super(chunkSize, first);
+    }
+}
+
+abstract class MpscConsumerFields<E> extends MpscPad1<E> {
+    MpscLinkedQueue.Chunk head;//消费者读取的块,只由消费者读写.
+    int consumerIndex;//下一个读取的槽位.
+    volatile Thread waiter;//park等待的消费者.
+
+    MpscConsumerFields(int chunkSize) {
+        this(chunkSize, newFirst(chunkSize));
+    }
+
+    private MpscConsumerFields(int chunkSize, MpscLinkedQueue.Chunk first) {
+        super(chunkSize, first);
+        this.head = first;
+    }
+
+    private static MpscLinkedQueue.Chunk newFirst(int chunkSize) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException();
+        return new MpscLinkedQueue.Chunk(chunkSize);
+    }
+}
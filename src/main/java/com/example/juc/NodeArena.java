@@ -0,0 +1,98 @@
+package com.example.juc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 预分配的节点池,供TreiberStack和MichaelScottQueue复用节点,运行时不再为节点分配对象.
+ * <p>
+ * 节点用下标表示,元素和后继分别存在items和next两个数组中.指向节点的"指针"是一个long:
+ * 低32位是下标,高32位是印戳,每次CAS成功印戳加一.与AtomicStampedReference相同,
+ * 节点被释放再分配回同一个位置后,持有旧值的线程CAS会因印戳不同而失败,但不需要每次CAS都分配Pair.
+ * 印戳32位,一个线程在读取和CAS之间被挂起期间同一位置又恰好被修改2^32次才会误判.
+ * <p>
+ * next中的后继同样带印戳,且每次修改都加一(包括进出空闲链表),
+ * MichaelScottQueue在过期的尾节点上CAS后继时不会成功.空闲链表本身也是一个带印戳的Treiber栈.
+ */
+final class NodeArena {
+
+    static final int NIL = -1;
+
+    final Object[] items;
+    final AtomicLongArray next;
+    private final AtomicLong free;
+
+    NodeArena(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException();
+        items = new Object[capacity];
+        next = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            next.lazySet(i, pack(i + 1 < capacity ? i + 1 : NIL, 0));
+        }
+        free = new AtomicLong(pack(0, 0));
+    }
+
+    static long pack(int index, int stamp) {
+        return ((long) stamp << 32) | (index & 0xFFFFFFFFL);
+    }
+
+    static int index(long ref) {
+        return (int) ref;
+    }
+
+    static int stamp(long ref) {
+        return (int) (ref >>> 32);
+    }
+
+    /**
+     * 在ref的基础上换成新下标,印戳加一.
+     */
+    static long advance(long ref, int index) {
+        return pack(index, stamp(ref) + 1);
+    }
+
+    int capacity() {
+        return items.length;
+    }
+
+    /**
+     * 取出一个空闲节点,后继置为NIL,池已空时返回NIL.
+     */
+    int allocate() {
+        for (; ; ) {
+            long f = free.get();
+            int i = index(f);
+            if (i == NIL)
+                return NIL;
+            long n = next.get(i);
+            if (free.compareAndSet(f, advance(f, index(n)))) {
+                setNext(i, NIL);
+                return i;
+            }
+        }
+    }
+
+    /**
+     * 归还节点,调用方必须已独占该节点.
+     */
+    void release(int i) {
+        items[i] = null;
+        for (; ; ) {
+            long f = free.get();
+            setNext(i, index(f));
+            if (free.compareAndSet(f, advance(f, i)))
+                return;
+        }
+    }
+
+    /**
+     * 修改独占节点的后继,印戳加一.过期线程可能同时在该位置CAS(必然失败),因此也用CAS.
+     */
+    void setNext(int i, int target) {
+        long n;
+        do {
+            n = next.get(i);
+        } while (!next.compareAndSet(i, n, advance(n, target)));
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.juc;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 独占缓存行的AtomicInteger,填充方式与{@link PaddedAtomicLong}相同.
+ */
+public class PaddedAtomicInteger extends PaddedAtomicIntegerValue {
+
+    long p11, p12, p13, p14, p15, p16, p17;
+
+    public PaddedAtomicInteger() {
+    }
+
+    public PaddedAtomicInteger(int initialValue) {
+        value = initialValue;
+    }
+
+    public int get() {
+        return value;
+    }
+
+    public void set(int newValue) {
+        value = newValue;
+    }
+
+    public void lazySet(int newValue) {
+        VALUE.lazySet(this, newValue);
+    }
+
+    public int getAndSet(int newValue) {
+        return VALUE.getAndSet(this, newValue);
+    }
+
+    public boolean compareAndSet(int expect, int update) {
+        return VALUE.compareAndSet(this, expect, update);
+    }
+
+    public int getAndIncrement() {
+        return VALUE.getAndIncrement(this);
+    }
+
+    public int getAndDecrement() {
+        return VALUE.getAndDecrement(this);
+    }
+
+    public int getAndAdd(int delta) {
+        return VALUE.getAndAdd(this, delta);
+    }
+
+    public int incrementAndGet() {
+        return VALUE.incrementAndGet(this);
+    }
+
+    public int decrementAndGet() {
+        return VALUE.decrementAndGet(this);
+    }
+
+    public int addAndGet(int delta) {
+        return VALUE.addAndGet(this, delta);
+    }
+
+    @Override
+    public String toString() {
+        return Integer.toString(value);
+    }
+}
+
+abstract class PaddedAtomicIntegerPad {
+    long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class PaddedAtomicIntegerValue extends PaddedAtomicIntegerPad {
+    static final AtomicIntegerFieldUpdater<PaddedAtomicIntegerValue> VALUE =
+            AtomicIntegerFieldUpdater.newUpdater(PaddedAtomicIntegerValue.class, "value");
+
+    volatile int value;
+}
@@ -0,0 +1,84 @@
+package com.example.juc;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 元素按步长分开存放的AtomicIntegerArray,步长同样是128字节,见{@link PaddedAtomicLongArray}.
+ */
+public class PaddedAtomicIntegerArray {
+
+    static final int STRIDE = 128 / 4;
+
+    private final AtomicIntegerArray array;
+    private final int length;
+
+    public PaddedAtomicIntegerArray(int length) {
+        if (length < 0 || length > Integer.MAX_VALUE / STRIDE - 1)
+            throw new IllegalArgumentException();
+        this.length = length;
+        this.array = new AtomicIntegerArray((length + 1) * STRIDE);
+    }
+
+    private int offset(int i) {
+        if (i < 0 || i >= length)
+            throw new IndexOutOfBoundsException("index " + i);
+        return (i + 1) * STRIDE;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int get(int i) {
+        return array.get(offset(i));
+    }
+
+    public void set(int i, int newValue) {
+        array.set(offset(i), newValue);
+    }
+
+    /**
+     * 每个元素只有一个写者时用它代替set或incrementAndGet.
+     */
+    public void lazySet(int i, int newValue) {
+        array.lazySet(offset(i), newValue);
+    }
+
+    public boolean compareAndSet(int i, int expect, int update) {
+        return array.compareAndSet(offset(i), expect, update);
+    }
+
+    public int getAndAdd(int i, int delta) {
+        return array.getAndAdd(offset(i), delta);
+    }
+
+    public int addAndGet(int i, int delta) {
+        return array.addAndGet(offset(i), delta);
+    }
+
+    public int incrementAndGet(int i) {
+        return array.incrementAndGet(offset(i));
+    }
+
+    /**
+     * 所有元素之和(按long累加),不是原子快照.
+     */
+    public long sum() {
+        long s = 0L;
+        for (int i = 0; i < length; i++) {
+            s += array.get((i + 1) * STRIDE);
+        }
+        return s;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder().append('[');
+        for (int i = 0; i < length; i++) {
+            if (i > 0)
+                b.append(", ");
+            b.append(array.get((i + 1) * STRIDE));
+        }
+        return b.append(']').toString();
+    }
+}
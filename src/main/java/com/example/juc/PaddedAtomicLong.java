@@ -0,0 +1,85 @@
+package com.example.juc;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * 独占缓存行的AtomicLong,前后各填充56字节.用于各线程分别更新,彼此相邻分配的计数器.
+ * <p>
+ * sun.misc.Contended在jdk的类之外需要-XX:-RestrictContended才生效,且jdk9以后不再可用,
+ * 这里用父子类继承的字段填充:父类PaddedAtomicLongPad声明前7个long,PaddedAtomicLongValue声明value,
+ * 本类再声明后7个long.字段布局时父类的字段总排在子类之前,前后的填充不会被重排到value的同一侧.
+ */
+public class PaddedAtomicLong extends PaddedAtomicLongValue {
+
+    long p11, p12, p13, p14, p15, p16, p17;
+
+    public PaddedAtomicLong() {
+    }
+
+    public PaddedAtomicLong(long initialValue) {
+        value = initialValue;
+    }
+
+    public long get() {
+        return value;
+    }
+
+    public void set(long newValue) {
+        value = newValue;
+    }
+
+    /**
+     * 延迟写,只有写者一个线程时用它代替set,省去StoreLoad屏障.
+     */
+    public void lazySet(long newValue) {
+        VALUE.lazySet(this, newValue);
+    }
+
+    public long getAndSet(long newValue) {
+        return VALUE.getAndSet(this, newValue);
+    }
+
+    public boolean compareAndSet(long expect, long update) {
+        return VALUE.compareAndSet(this, expect, update);
+    }
+
+    public long getAndIncrement() {
+        return VALUE.getAndIncrement(this);
+    }
+
+    public long getAndDecrement() {
+        return VALUE.getAndDecrement(this);
+    }
+
+    public long getAndAdd(long delta) {
+        return VALUE.getAndAdd(this, delta);
+    }
+
+    public long incrementAndGet() {
+        return VALUE.incrementAndGet(this);
+    }
+
+    public long decrementAndGet() {
+        return VALUE.decrementAndGet(this);
+    }
+
+    public long addAndGet(long delta) {
+        return VALUE.addAndGet(this, delta);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(value);
+    }
+}
+
+abstract class PaddedAtomicLongPad {
+    long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class PaddedAtomicLongValue extends PaddedAtomicLongPad {
+    static final AtomicLongFieldUpdater<PaddedAtomicLongValue> VALUE =
+            AtomicLongFieldUpdater.newUpdater(PaddedAtomicLongValue.class, "value");
+
+    volatile long value;
+}
@@ -0,0 +1,88 @@
+package com.example.juc;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 元素按步长分开存放的AtomicLongArray,用于按worker下标分别更新的统计数组.
+ * <p>
+ * 相邻元素间隔128字节而不是一个缓存行(64字节):部分CPU会成对预取相邻的两个缓存行,
+ * 只隔开一行时仍会相互干扰.第0个元素之前也留出一个步长,与数组头和前面的对象隔开.
+ * 代价是每个元素占用128字节,只适合元素数与线程数相当的数组.
+ */
+public class PaddedAtomicLongArray {
+
+    static final int STRIDE = 128 / 8;
+
+    private final AtomicLongArray array;
+    private final int length;
+
+    public PaddedAtomicLongArray(int length) {
+        if (length < 0 || length > Integer.MAX_VALUE / STRIDE - 1)
+            throw new IllegalArgumentException();
+        this.length = length;
+        this.array = new AtomicLongArray((length + 1) * STRIDE);
+    }
+
+    private int offset(int i) {
+        if (i < 0 || i >= length)
+            throw new IndexOutOfBoundsException("index " + i);
+        return (i + 1) * STRIDE;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public long get(int i) {
+        return array.get(offset(i));
+    }
+
+    public void set(int i, long newValue) {
+        array.set(offset(i), newValue);
+    }
+
+    /**
+     * 每个元素只有一个写者时用它代替set或incrementAndGet.
+     */
+    public void lazySet(int i, long newValue) {
+        array.lazySet(offset(i), newValue);
+    }
+
+    public boolean compareAndSet(int i, long expect, long update) {
+        return array.compareAndSet(offset(i), expect, update);
+    }
+
+    public long getAndAdd(int i, long delta) {
+        return array.getAndAdd(offset(i), delta);
+    }
+
+    public long addAndGet(int i, long delta) {
+        return array.addAndGet(offset(i), delta);
+    }
+
+    public long incrementAndGet(int i) {
+        return array.incrementAndGet(offset(i));
+    }
+
+    /**
+     * 所有元素之和,不是原子快照.
+     */
+    public long sum() {
+        long s = 0L;
+        for (int i = 0; i < length; i++) {
+            s += array.get((i + 1) * STRIDE);
+        }
+        return s;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder().append('[');
+        for (int i = 0; i < length; i++) {
+            if (i > 0)
+                b.append(", ");
+            b.append(array.get((i + 1) * STRIDE));
+        }
+        return b.append(']').toString();
+    }
+}
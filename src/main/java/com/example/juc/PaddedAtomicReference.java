@@ -0,0 +1,56 @@
+package com.example.juc;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * 独占缓存行的AtomicReference,填充方式与{@link PaddedAtomicLong}相同.
+ */
+public class PaddedAtomicReference<V> extends PaddedAtomicReferenceValue {
+
+    long p11, p12, p13, p14, p15, p16, p17;
+
+    public PaddedAtomicReference() {
+    }
+
+    public PaddedAtomicReference(V initialValue) {
+        value = initialValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get() {
+        return (V) value;
+    }
+
+    public void set(V newValue) {
+        value = newValue;
+    }
+
+    public void lazySet(V newValue) {
+        VALUE.lazySet(this, newValue);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getAndSet(V newValue) {
+        return (V) VALUE.getAndSet(this, newValue);
+    }
+
+    public boolean compareAndSet(V expect, V update) {
+        return VALUE.compareAndSet(this, expect, update);
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(value);
+    }
+}
+
+abstract class PaddedAtomicReferencePad {
+    long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class PaddedAtomicReferenceValue extends PaddedAtomicReferencePad {
+    static final AtomicReferenceFieldUpdater<PaddedAtomicReferenceValue, Object> VALUE =
+            AtomicReferenceFieldUpdater.newUpdater(PaddedAtomicReferenceValue.class, Object.class, "value");
+
+    volatile Object value;
+}
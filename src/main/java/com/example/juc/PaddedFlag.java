@@ -0,0 +1,55 @@
+package com.example.juc;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 独占缓存行的volatile布尔标记,用于替代SystemOutTest.BooleanHolder中@Contended的写法.
+ * 填充方式与{@link PaddedAtomicLong}相同,标记存为int以便CAS.
+ */
+public class PaddedFlag extends PaddedFlagValue {
+
+    long p11, p12, p13, p14, p15, p16, p17;
+
+    public PaddedFlag() {
+    }
+
+    public PaddedFlag(boolean initialValue) {
+        value = initialValue ? 1 : 0;
+    }
+
+    public boolean get() {
+        return value != 0;
+    }
+
+    public void set(boolean newValue) {
+        value = newValue ? 1 : 0;
+    }
+
+    public void lazySet(boolean newValue) {
+        VALUE.lazySet(this, newValue ? 1 : 0);
+    }
+
+    public boolean compareAndSet(boolean expect, boolean update) {
+        return VALUE.compareAndSet(this, expect ? 1 : 0, update ? 1 : 0);
+    }
+
+    public boolean getAndSet(boolean newValue) {
+        return VALUE.getAndSet(this, newValue ? 1 : 0) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return Boolean.toString(get());
+    }
+}
+
+abstract class PaddedFlagPad {
+    long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class PaddedFlagValue extends PaddedFlagPad {
+    static final AtomicIntegerFieldUpdater<PaddedFlagValue> VALUE =
+            AtomicIntegerFieldUpdater.newUpdater(PaddedFlagValue.class, "value");
+
+    volatile int value;
+}
@@ -0,0 +1,190 @@
+package com.example.juc;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.LongBinaryOperator;
+import java.util.function.Predicate;
+
+/**
+ * 并行流的替代.ForkJoinTest.testParallel演示了list.stream().parallel()总是在公共池中执行,
+ * 且调用线程(main)也会分到元素.公共池被所有库共用,处理请求的线程参与批量计算时,请求的响应时间不可控.
+ * 本类在调用者指定的ForkJoinPool上执行,{@link #excludeCaller()}后调用者只等待结果,不参与计算.
+ * <p>
+ * 管道是不可变的,map/filter返回新的管道,终结操作(reduce/forEach/count)才真正执行.
+ * 各阶段按元素下标融合为一个函数,由{@link MapReduce}的CountedCompleter按区间分裂执行,不产生中间集合.
+ * 过滤掉的元素用内部的哨兵值表示,归约时跳过.
+ * <p>
+ * 数据源为List(非RandomAccess的List先拷贝为数组)和数组.基本类型数组经map/filter时元素在读取时装箱,
+ * 直接对其做reduceAsLong/reduceAsDouble和sumAsLong/sumAsDouble时按原始类型读取和归约,全程不装箱.
+ * reduce的归约顺序从左到右,op只需满足结合律;forEach的执行顺序不确定.
+ */
+public final class ParallelPipeline<T> {
+
+    /**
+     * 被过滤掉的元素.
+     */
+    private static final Object NONE = new Object();
+
+    private final ForkJoinPool pool;
+    private final int size;
+    private final IntFunction<Object> element;//下标到元素,过滤掉时为NONE.
+    private final IntToLongFunction longs;//基本类型数组且未经map/filter时按原始类型读取,否则为null.
+    private final IntToDoubleFunction doubles;
+    private final boolean excludeCaller;
+
+    private ParallelPipeline(ForkJoinPool pool, int size, IntFunction<Object> element, boolean excludeCaller) {
+        this(pool, size, element, null, null, excludeCaller);
+    }
+
+    private ParallelPipeline(ForkJoinPool pool, int size, IntFunction<Object> element,
+                             IntToLongFunction longs, IntToDoubleFunction doubles, boolean excludeCaller) {
+        if (pool == null)
+            throw new NullPointerException();
+        this.pool = pool;
+        this.size = size;
+        this.element = element;
+        this.longs = longs;
+        this.doubles = doubles;
+        this.excludeCaller = excludeCaller;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> ParallelPipeline<T> of(ForkJoinPool pool, List<T> list) {
+        if (!(list instanceof RandomAccess))
+            return of(pool, (T[]) list.toArray());
+        return new ParallelPipeline<>(pool, list.size(), list::get, false);
+    }
+
+    public static <T> ParallelPipeline<T> of(ForkJoinPool pool, T[] array) {
+        return new ParallelPipeline<>(pool, array.length, i -> array[i], false);
+    }
+
+    public static ParallelPipeline<Integer> of(ForkJoinPool pool, int[] array) {
+        return new ParallelPipeline<>(pool, array.length, i -> array[i], i -> array[i], i -> array[i], false);
+    }
+
+    public static ParallelPipeline<Long> of(ForkJoinPool pool, long[] array) {
+        return new ParallelPipeline<>(pool, array.length, i -> array[i], i -> array[i], i -> array[i], false);
+    }
+
+    public static ParallelPipeline<Double> of(ForkJoinPool pool, double[] array) {
+        return new ParallelPipeline<>(pool, array.length, i -> array[i], null, i -> array[i], false);
+    }
+
+    /**
+     * 终结操作的调用者只等待,不执行任何元素.调用者本身是该池的worker时不起作用.
+     */
+    public ParallelPipeline<T> excludeCaller() {
+        return new ParallelPipeline<>(pool, size, element, longs, doubles, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R> ParallelPipeline<R> map(Function<? super T, ? extends R> mapper) {
+        IntFunction<Object> prev = element;
+        return new ParallelPipeline<>(pool, size, i -> {
+            Object e = prev.apply(i);
+            return e == NONE ? NONE : mapper.apply((T) e);
+        }, excludeCaller);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ParallelPipeline<T> filter(Predicate<? super T> predicate) {
+        IntFunction<Object> prev = element;
+        return new ParallelPipeline<>(pool, size, i -> {
+            Object e = prev.apply(i);
+            return e == NONE || !predicate.test((T) e) ? NONE : e;
+        }, excludeCaller);
+    }
+
+    /**
+     * 归约,没有元素时返回identity.
+     */
+    @SuppressWarnings("unchecked")
+    public T reduce(T identity, BinaryOperator<T> op) {
+        Object r = reduceOrNone(op);
+        return r == NONE ? identity : (T) r;
+    }
+
+    /**
+     * 归约,没有元素时返回Optional.empty(),结果为null时抛出NullPointerException.
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<T> reduce(BinaryOperator<T> op) {
+        Object r = reduceOrNone(op);
+        return r == NONE ? Optional.empty() : Optional.of((T) r);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object reduceOrNone(BinaryOperator<T> op) {
+        return run(element, NONE, (a, b) -> a == NONE ? b : b == NONE ? a : op.apply((T) a, (T) b));
+    }
+
+    /**
+     * 按long归约,没有元素时返回identity,identity需是op的单位元.
+     * 数据源是int[]或long[]且未经map/filter时不装箱,否则元素需为Number,读取后取longValue.
+     */
+    public long reduceAsLong(long identity, LongBinaryOperator op) {
+        IntToLongFunction mapper = longs;
+        if (mapper == null) {
+            IntFunction<Object> prev = element;
+            mapper = i -> {
+                Object e = prev.apply(i);
+                return e == NONE ? identity : ((Number) e).longValue();
+            };
+        }
+        return MapReduce.mapReduceToLong(pool, 0, size, mapper, identity, op, excludeCaller);
+    }
+
+    /**
+     * 按double归约,没有元素时返回identity,identity需是op的单位元.
+     * 数据源是基本类型数组且未经map/filter时不装箱,否则元素需为Number,读取后取doubleValue.
+     */
+    public double reduceAsDouble(double identity, DoubleBinaryOperator op) {
+        IntToDoubleFunction mapper = doubles;
+        if (mapper == null) {
+            IntFunction<Object> prev = element;
+            mapper = i -> {
+                Object e = prev.apply(i);
+                return e == NONE ? identity : ((Number) e).doubleValue();
+            };
+        }
+        return MapReduce.mapReduceToDouble(pool, 0, size, mapper, identity, op, excludeCaller);
+    }
+
+    public long sumAsLong() {
+        return reduceAsLong(0L, Long::sum);
+    }
+
+    public double sumAsDouble() {
+        return reduceAsDouble(0.0, Double::sum);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super T> action) {
+        IntFunction<Object> prev = element;
+        run(i -> {
+            Object e = prev.apply(i);
+            if (e != NONE)
+                action.accept((T) e);
+            return NONE;
+        }, NONE, (a, b) -> NONE);
+    }
+
+    public long count() {
+        IntFunction<Object> prev = element;
+        return run(i -> prev.apply(i) == NONE ? 0L : 1L, 0L, Long::sum);
+    }
+
+    private <R> R run(IntFunction<? extends R> mapper, R identity, BinaryOperator<R> reducer) {
+        return MapReduce.mapReduce(pool, 0, size, mapper, identity, reducer, excludeCaller);
+    }
+}
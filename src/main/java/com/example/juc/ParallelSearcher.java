@@ -0,0 +1,273 @@
+package com.example.juc;
+
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+
+/**
+ * 基本类型数组的并行查找.
+ * 由ForkJoinTest.Searcher演化而来,沿用CountedCompleter的提前终止设计(findAny命中即quietlyCompleteRoot),
+ * 但有以下不同:
+ * 1.直接在int[],long[],double[]上查找,不再装箱,匹配器为IntPredicate等基本类型断言.
+ * 2.分治到threshold大小的叶子块即停止,叶子块内顺序扫描,而不是一直分到2个元素.
+ * 3.支持findAny(任一命中即返回)和findFirst(返回最小命中索引)两种语义.
+ * <p>
+ * 所有方法返回命中元素的索引,未命中返回-1.
+ */
+public final class ParallelSearcher {
+
+    /**
+     * 叶子块的最小长度,与Arrays.parallelSort的MIN_ARRAY_SORT_GRAN同量级.
+     */
+    static final int MIN_THRESHOLD = 1 << 13;
+
+    /**
+     * 叶子块内每扫描这么多元素检查一次是否已有结果,使其他叶子的命中能尽快终止本叶子.
+     */
+    static final int CHECK_INTERVAL = 1 << 10;
+
+    private ParallelSearcher() {
+    }
+
+    public static int findAny(int[] array, IntPredicate matcher) {
+        return findAny(ForkJoinPool.commonPool(), array, matcher, defaultThreshold(ForkJoinPool.commonPool(), array.length));
+    }
+
+    public static int findAny(ForkJoinPool pool, int[] array, IntPredicate matcher, int threshold) {
+        return search(pool, new IntSearcher(null, array, matcher, new AtomicInteger(-1), false,
+                0, array.length, threshold));
+    }
+
+    public static int findFirst(int[] array, IntPredicate matcher) {
+        return findFirst(ForkJoinPool.commonPool(), array, matcher, defaultThreshold(ForkJoinPool.commonPool(), array.length));
+    }
+
+    public static int findFirst(ForkJoinPool pool, int[] array, IntPredicate matcher, int threshold) {
+        return search(pool, new IntSearcher(null, array, matcher, new AtomicInteger(-1), true,
+                0, array.length, threshold));
+    }
+
+    public static int findAny(long[] array, LongPredicate matcher) {
+        return findAny(ForkJoinPool.commonPool(), array, matcher, defaultThreshold(ForkJoinPool.commonPool(), array.length));
+    }
+
+    public static int findAny(ForkJoinPool pool, long[] array, LongPredicate matcher, int threshold) {
+        return search(pool, new LongSearcher(null, array, matcher, new AtomicInteger(-1), false,
+                0, array.length, threshold));
+    }
+
+    public static int findFirst(long[] array, LongPredicate matcher) {
+        return findFirst(ForkJoinPool.commonPool(), array, matcher, defaultThreshold(ForkJoinPool.commonPool(), array.length));
+    }
+
+    public static int findFirst(ForkJoinPool pool, long[] array, LongPredicate matcher, int threshold) {
+        return search(pool, new LongSearcher(null, array, matcher, new AtomicInteger(-1), true,
+                0, array.length, threshold));
+    }
+
+    public static int findAny(double[] array, DoublePredicate matcher) {
+        return findAny(ForkJoinPool.commonPool(), array, matcher, defaultThreshold(ForkJoinPool.commonPool(), array.length));
+    }
+
+    public static int findAny(ForkJoinPool pool, double[] array, DoublePredicate matcher, int threshold) {
+        return search(pool, new DoubleSearcher(null, array, matcher, new AtomicInteger(-1), false,
+                0, array.length, threshold));
+    }
+
+    public static int findFirst(double[] array, DoublePredicate matcher) {
+        return findFirst(ForkJoinPool.commonPool(), array, matcher, defaultThreshold(ForkJoinPool.commonPool(), array.length));
+    }
+
+    public static int findFirst(ForkJoinPool pool, double[] array, DoublePredicate matcher, int threshold) {
+        return search(pool, new DoubleSearcher(null, array, matcher, new AtomicInteger(-1), true,
+                0, array.length, threshold));
+    }
+
+    /**
+     * 默认叶子大小:每个并行度约分到8个叶子块,以便窃取平衡负载,但不小于MIN_THRESHOLD.
+     */
+    static int defaultThreshold(ForkJoinPool pool, int length) {
+        int leaves = pool.getParallelism() << 3;
+        return Math.max(MIN_THRESHOLD, length / leaves);
+    }
+
+    private static int search(ForkJoinPool pool, Searcher root) {
+        if (root.hi <= root.lo)
+            return -1;
+        return pool.invoke(root);
+    }
+
+    /**
+     * 查找任务的公共部分:分治,剪枝和结果登记.子类只负责叶子区间内的顺序扫描.
+     */
+    abstract static class Searcher extends CountedCompleter<Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        final AtomicInteger result;//命中的索引,-1代表尚未命中.
+        final boolean first;
+        final int lo, hi, threshold;
+
+        Searcher(CountedCompleter<?> p, AtomicInteger result, boolean first, int lo, int hi, int threshold) {
+            super(p);
+            this.result = result;
+            this.first = first;
+            this.lo = lo;
+            this.hi = hi;
+            this.threshold = Math.max(1, threshold);
+        }
+
+        /**
+         * 创建负责[lo,hi)的子任务.
+         */
+        abstract Searcher child(int lo, int hi);
+
+        /**
+         * 在[lo,hi)内顺序扫描,返回第一个命中的索引,未命中返回-1.
+         */
+        abstract int scan(int lo, int hi);
+
+        @Override
+        public void compute() {
+            int l = this.lo;
+            int h = this.hi;
+            //右半边fork,左半边留给自己,这样findFirst时靠左的区间总是先被执行.
+            while (h - l > threshold && !pruned(l)) {
+                int mid = (l + h) >>> 1;
+                addToPendingCount(1);
+                child(mid, h).fork();
+                h = mid;
+            }
+            for (int b = l; b < h && !pruned(b); b += CHECK_INTERVAL) {
+                int i = scan(b, Math.min(h, b + CHECK_INTERVAL));
+                if (i >= 0) {
+                    if (found(i))
+                        return;
+                    break;
+                }
+            }
+            tryComplete();
+        }
+
+        /**
+         * 当前位置开始的查找是否已无意义.
+         * findAny时任何命中都能终止;findFirst时只有位于from左侧的命中才能终止.
+         */
+        private boolean pruned(int from) {
+            int r = result.get();
+            return r >= 0 && (!first || r < from);
+        }
+
+        /**
+         * 登记命中结果,返回true代表已完结root,当前任务不需要再tryComplete.
+         */
+        private boolean found(int index) {
+            if (!first) {
+                if (result.compareAndSet(-1, index)) {
+                    quietlyCompleteRoot();//得到结果并设置成功立即终止root
+                    return true;
+                }
+                return false;
+            }
+            //findFirst不能提前终止root,左侧可能还有未扫描完的叶子,只能保留最小的索引.
+            int r;
+            while (((r = result.get()) < 0 || index < r) && !result.compareAndSet(r, index)) ;
+            return false;
+        }
+
+        @Override
+        public Integer getRawResult() {
+            return result.get();
+        }
+    }
+
+    static final class IntSearcher extends Searcher {
+
+        private static final long serialVersionUID = 1L;
+
+        final int[] array;
+        final IntPredicate matcher;
+
+        IntSearcher(CountedCompleter<?> p, int[] array, IntPredicate matcher, AtomicInteger result,
+                    boolean first, int lo, int hi, int threshold) {
+            super(p, result, first, lo, hi, threshold);
+            this.array = array;
+            this.matcher = matcher;
+        }
+
+        @Override
+        Searcher child(int lo, int hi) {
+            return new IntSearcher(this, array, matcher, result, first, lo, hi, threshold);
+        }
+
+        @Override
+        int scan(int lo, int hi) {
+            for (int i = lo; i < hi; i++) {
+                if (matcher.test(array[i]))
+                    return i;
+            }
+            return -1;
+        }
+    }
+
+    static final class LongSearcher extends Searcher {
+
+        private static final long serialVersionUID = 1L;
+
+        final long[] array;
+        final LongPredicate matcher;
+
+        LongSearcher(CountedCompleter<?> p, long[] array, LongPredicate matcher, AtomicInteger result,
+                     boolean first, int lo, int hi, int threshold) {
+            super(p, result, first, lo, hi, threshold);
+            this.array = array;
+            this.matcher = matcher;
+        }
+
+        @Override
+        Searcher child(int lo, int hi) {
+            return new LongSearcher(this, array, matcher, result, first, lo, hi, threshold);
+        }
+
+        @Override
+        int scan(int lo, int hi) {
+            for (int i = lo; i < hi; i++) {
+                if (matcher.test(array[i]))
+                    return i;
+            }
+            return -1;
+        }
+    }
+
+    static final class DoubleSearcher extends Searcher {
+
+        private static final long serialVersionUID = 1L;
+
+        final double[] array;
+        final DoublePredicate matcher;
+
+        DoubleSearcher(CountedCompleter<?> p, double[] array, DoublePredicate matcher, AtomicInteger result,
+                       boolean first, int lo, int hi, int threshold) {
+            super(p, result, first, lo, hi, threshold);
+            this.array = array;
+            this.matcher = matcher;
+        }
+
+        @Override
+        Searcher child(int lo, int hi) {
+            return new DoubleSearcher(this, array, matcher, result, first, lo, hi, threshold);
+        }
+
+        @Override
+        int scan(int lo, int hi) {
+            for (int i = lo; i < hi; i++) {
+                if (matcher.test(array[i]))
+                    return i;
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.juc;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 可运行在普通Executor(如ThreadPoolExecutor)上的完成树,由CompleterTest中的原型完成而来.
+ * 用法与CountedCompleter一致:在compute中setPendingCount/addToPendingCount后fork子任务,
+ * 叶子完成时调用tryComplete,pending计数沿completer链向上传递,归零的节点调用onCompletion,
+ * 直到root完成.
+ * <p>
+ * 与ForkJoinPool不同,普通线程池没有工作队列可供调用者帮助,本类的做法是:
+ * 1.fork时任务同时登记在root的forked列表和线程池中,谁先用claim的CAS声明任务谁执行,另一方跳过.
+ * 线程池线程执行完任务后从列表尾部清理已声明的任务,列表不会保留整棵树.
+ * 2.root的invoke在调用者线程执行root自身的compute后,从forked列表中取出尚未被声明的任务帮助执行,
+ * 列表为空且root未完成时park,由root完成或新的fork唤醒,不再自旋占用cpu.
+ * 3.线程池拒绝的任务留在forked列表中由调用者执行,不需要CallerRunsPolicy.
+ * 4.任何任务抛出异常,root异常完成,尚未开始的任务不再执行,invoke抛出第一个异常.
+ */
+public abstract class PoolCompleter<T> implements Runnable {
+
+    static final int NEW = 0, CLAIMED = 1;//claim
+    static final int INCOMPLETE = 0, NORMAL = 1, EXCEPTIONAL = 2;//state,只对root有意义.
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<PoolCompleter> CLAIM =
+            AtomicIntegerFieldUpdater.newUpdater(PoolCompleter.class, "claim");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<PoolCompleter> PENDING =
+            AtomicIntegerFieldUpdater.newUpdater(PoolCompleter.class, "pending");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<PoolCompleter> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(PoolCompleter.class, "state");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<PoolCompleter, Throwable> EXCEPTION =
+            AtomicReferenceFieldUpdater.newUpdater(PoolCompleter.class, Throwable.class, "exception");
+
+    final PoolCompleter<?> completer;
+    final PoolCompleter<?> root;
+    final Executor executor;
+    final ConcurrentLinkedDeque<PoolCompleter<?>> forked;//只有root持有.
+    volatile int claim;
+    volatile int pending;
+    volatile int state;
+    volatile Throwable exception;
+    volatile Thread waiter;
+
+    /**
+     * 创建root,子任务都提交到executor.
+     */
+    protected PoolCompleter(Executor executor) {
+        if (executor == null)
+            throw new NullPointerException();
+        this.completer = null;
+        this.root = this;
+        this.executor = executor;
+        this.forked = new ConcurrentLinkedDeque<>();
+    }
+
+    protected PoolCompleter(PoolCompleter<?> completer) {
+        this(completer, 0);
+    }
+
+    protected PoolCompleter(PoolCompleter<?> completer, int initialPendingCount) {
+        this.completer = completer;
+        this.root = completer.root;
+        this.executor = completer.executor;
+        this.forked = null;
+        this.pending = initialPendingCount;
+    }
+
+    /**
+     * 任务主体.
+     */
+    public abstract void compute();
+
+    /**
+     * pending归零时调用,caller为触发完成的任务(可能是自身).
+     */
+    public void onCompletion(PoolCompleter<?> caller) {
+    }
+
+    public T getRawResult() {
+        return null;
+    }
+
+    public final PoolCompleter<?> getCompleter() {
+        return completer;
+    }
+
+    public final PoolCompleter<?> getRoot() {
+        return root;
+    }
+
+    public final int getPendingCount() {
+        return pending;
+    }
+
+    public final void setPendingCount(int count) {
+        pending = count;
+    }
+
+    public final void addToPendingCount(int delta) {
+        PENDING.addAndGet(this, delta);
+    }
+
+    /**
+     * 提交到线程池,同时登记到root供调用者帮助.线程池拒绝时只留给调用者执行.
+     */
+    public final void fork() {
+        PoolCompleter<?> r = root;
+        r.forked.addFirst(this);
+        try {
+            executor.execute(this);
+        } catch (RejectedExecutionException e) {
+            //留在forked列表中,由invoke的调用者执行.
+        }
+        Thread w = r.waiter;
+        if (w != null)
+            LockSupport.unpark(w);
+    }
+
+    /**
+     * 声明任务的执行权,只有一方能成功.
+     */
+    final boolean claim() {
+        return claim == NEW && CLAIM.compareAndSet(this, NEW, CLAIMED);
+    }
+
+    /**
+     * 线程池调用的入口,已被调用者声明的任务直接跳过.
+     */
+    @Override
+    public final void run() {
+        if (claim()) {
+            exec();
+            trimClaimed(root.forked);
+        }
+    }
+
+    /**
+     * 从forked列表尾部移除已被声明的任务.fork用addFirst,尾部是最早fork的任务,
+     * 线程池大体按提交顺序执行,这些任务通常已被声明;整棵树都在线程池中执行时,列表不会保留全部节点.
+     */
+    private static void trimClaimed(ConcurrentLinkedDeque<PoolCompleter<?>> forked) {
+        for (PoolCompleter<?> t; (t = forked.peekLast()) != null && t.claim != NEW; ) {
+            forked.removeLastOccurrence(t);
+        }
+    }
+
+    private void exec() {
+        if (root.state != INCOMPLETE)
+            return;//root已异常完成,不再执行.
+        try {
+            compute();
+        } catch (Throwable ex) {
+            completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * 与CountedCompleter.tryComplete相同:pending不为0则减一,为0则调用onCompletion并继续向上,
+     * 到达root时完成root.
+     */
+    public final void tryComplete() {
+        PoolCompleter<?> a = this, s = a;
+        for (int c; ; ) {
+            if ((c = a.pending) == 0) {
+                a.onCompletion(s);
+                if ((a = (s = a).completer) == null) {
+                    s.quietlyComplete();
+                    return;
+                }
+            } else if (PENDING.compareAndSet(a, c, c - 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 正常完成root,唤醒等待的调用者.
+     */
+    public final void quietlyComplete() {
+        PoolCompleter<?> r = root;
+        if (STATE.compareAndSet(r, INCOMPLETE, NORMAL))
+            r.signalWaiter();
+    }
+
+    /**
+     * 异常完成root,唤醒等待的调用者.只有第一个异常被记录,root已完成时忽略.
+     */
+    public final void completeExceptionally(Throwable ex) {
+        PoolCompleter<?> r = root;
+        //先赢得exception再改state,invoke看到EXCEPTIONAL时exception已发布且不会再被覆盖.
+        if (r.state == INCOMPLETE && EXCEPTION.compareAndSet(r, null, ex)
+                && STATE.compareAndSet(r, INCOMPLETE, EXCEPTIONAL))
+            r.signalWaiter();
+    }
+
+    private void signalWaiter() {
+        Thread w = waiter;
+        if (w != null)
+            LockSupport.unpark(w);
+    }
+
+    public final boolean isDone() {
+        return root.state != INCOMPLETE;
+    }
+
+    /**
+     * 在调用者线程执行root,帮助执行未被声明的子任务,然后park等待完成.
+     * 只能在root上调用.
+     *
+     * @return root的getRawResult.
+     */
+    public final T invoke() {
+        if (completer != null)
+            throw new IllegalStateException("invoke must be called on root");
+        if (claim())
+            exec();
+        boolean interrupted = false;
+        while (state == INCOMPLETE) {
+            PoolCompleter<?> t = forked.pollFirst();
+            if (t != null) {
+                t.run();
+                continue;
+            }
+            waiter = Thread.currentThread();
+            //登记waiter后重查,避免错过登记前发生的完成或fork.
+            if (state == INCOMPLETE && forked.isEmpty())
+                LockSupport.park(this);
+            waiter = null;
+            //中断标记会让park立即返回,先清除,结束后恢复.
+            if (Thread.interrupted())
+                interrupted = true;
+        }
+        forked.clear();
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        if (state == EXCEPTIONAL) {
+            Throwable ex = exception;
+            if (ex instanceof RuntimeException)
+                throw (RuntimeException) ex;
+            if (ex instanceof Error)
+                throw (Error) ex;
+            throw new RuntimeException(ex);
+        }
+        return getRawResult();
+    }
+}
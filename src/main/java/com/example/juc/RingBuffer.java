@@ -0,0 +1,172 @@
+package com.example.juc;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 预分配数组实现的有界缓存,用于替代ConditionTest中LinkedList+ReentrantLock+notFull/notEmpty的写法.
+ * 容量向上取整为2的幂,下标用位与计算;put/take不加锁也不分配节点,条件不满足时按WaitStrategy等待.
+ * <p>
+ * 两种实现:
+ * 1.{@link SpscRingBuffer}:仅一个生产者线程和一个消费者线程,head/tail只由各自一方写入.
+ * 2.{@link MpmcRingBuffer}:多生产者多消费者,每个槽位带序号,用CAS争夺head/tail.
+ * 元素不允许为null,null在内部代表空槽位.
+ * <p>
+ * 突发写入/批量消费可使用{@link #putAll(Collection, int)}和{@link #drainTo(Consumer, int)},
+ * 一批元素只占用一次序号声明和一次发布,而不是每个元素各一次.
+ */
+public abstract class RingBuffer<E> {
+
+    static final int MAX_CAPACITY = 1 << 30;
+
+    final Object[] buffer;
+    final int mask;
+    final WaitStrategy waitStrategy;
+
+    RingBuffer(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 1 || capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("capacity:" + capacity);
+        if (waitStrategy == null)
+            throw new NullPointerException();
+        int size = 1 << (32 - Integer.numberOfLeadingZeros(capacity - 1));
+        this.buffer = new Object[size];
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    public static <E> RingBuffer<E> spsc(int capacity, WaitStrategy waitStrategy) {
+        return new SpscRingBuffer<>(capacity, waitStrategy);
+    }
+
+    public static <E> RingBuffer<E> mpmc(int capacity, WaitStrategy waitStrategy) {
+        return new MpmcRingBuffer<>(capacity, waitStrategy);
+    }
+
+    /**
+     * 非阻塞放入,缓存已满时返回false.
+     */
+    public abstract boolean offer(E e);
+
+    /**
+     * 非阻塞取出,缓存为空时返回null.
+     */
+    public abstract E poll();
+
+    /**
+     * 非阻塞地从it中取出至多max个元素直接写入槽位,返回实际放入的个数,已满时返回0.
+     * 每个元素在发布前检查null.it提前结束,抛出异常或返回null时,之前的元素照常发布,
+     * 已声明而未写入的槽位也要发布或交还,不能让对端永久等待.
+     */
+    abstract int offerBatch(Iterator<? extends E> it, int max);
+
+    /**
+     * 非阻塞地取出至多max个元素交给consumer,返回实际取出的个数,为空时返回0.
+     * 一次声明连续的一段元素,consumer在声明之后逐个调用.
+     * consumer抛出异常时,SPSC实现中未交出的元素留在缓存里,MPMC实现中同批未交出的元素被丢弃.
+     */
+    public abstract int drainTo(Consumer<? super E> consumer, int max);
+
+    /**
+     * 近似大小,并发修改期间只代表某一瞬间.
+     */
+    public abstract int size();
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * 阻塞放入,直到有空位或被中断.
+     */
+    public void put(E e) throws InterruptedException {
+        checkNotNull(e);
+        for (int c = 0; !offer(e); c++) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            waitStrategy.idle(c);
+        }
+    }
+
+    /**
+     * 阻塞取出,直到有元素或被中断.
+     */
+    public E take() throws InterruptedException {
+        E e;
+        for (int c = 0; (e = poll()) == null; c++) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            waitStrategy.idle(c);
+        }
+        return e;
+    }
+
+    /**
+     * 限时放入,超时返回false.
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        checkNotNull(e);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int c = 0; !offer(e); c++) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (deadline - System.nanoTime() <= 0L)
+                return false;
+            waitStrategy.idle(c);
+        }
+        return true;
+    }
+
+    /**
+     * 限时取出,超时返回null.
+     */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        E e;
+        for (int c = 0; (e = poll()) == null; c++) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (deadline - System.nanoTime() <= 0L)
+                return null;
+            waitStrategy.idle(c);
+        }
+        return e;
+    }
+
+    /**
+     * 阻塞地放入c中前max个元素,返回放入的个数.
+     * 每次按当前空位数成批声明,直接从迭代器取元素写入槽位后发布,不拷贝,空位不足时按WaitStrategy等待,
+     * 直到全部放入或被中断.
+     * 被中断,遇到null元素(抛出NullPointerException)或迭代器抛出异常时,已放入的元素不会回滚.
+     */
+    public int putAll(Collection<? extends E> c, int max) throws InterruptedException {
+        int remaining = Math.min(max, c.size());
+        if (remaining <= 0)
+            return 0;
+        int count = 0;
+        Iterator<? extends E> it = c.iterator();
+        for (int idle = 0; remaining > 0 && it.hasNext(); ) {
+            int n = offerBatch(it, remaining);
+            if (n > 0) {
+                count += n;
+                remaining -= n;
+                idle = 0;
+                continue;
+            }
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            waitStrategy.idle(idle++);
+        }
+        return count;
+    }
+
+    static void checkNotNull(Object e) {
+        if (e == null)
+            throw new NullPointerException();
+    }
+}
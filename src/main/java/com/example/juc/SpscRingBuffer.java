@@ -0,0 +1,163 @@
+package com.example.juc;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Consumer;
+
+/**
+ * 单生产者单消费者的环形缓存.
+ * tail只由生产者写,head只由消费者写,均用lazySet发布,不需要CAS.
+ * 双方各自缓存对端的序号(headCache/tailCache),只有缓存值显示满/空时才去读对端的volatile字段,
+ * 减少缓存行在两个核之间来回传递.
+ * 生产者字段与消费者字段之间用继承层次插入填充,避免伪共享.
+ */
+public final class SpscRingBuffer<E> extends SpscConsumerFields<E> {
+
+    long p1, p2, p3, p4, p5, p6, p7;
+
+    public SpscRingBuffer(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+    }
+
+    /**
+     * 只能由唯一的生产者线程调用.
+     */
+    @Override
+    public boolean offer(E e) {
+        checkNotNull(e);
+        long t = tail;
+        if (t - headCache >= buffer.length) {
+            headCache = head;
+            if (t - headCache >= buffer.length)
+                return false;
+        }
+        buffer[(int) t & mask] = e;
+        TAIL.lazySet(this, t + 1);
+        return true;
+    }
+
+    /**
+     * 只能由唯一的消费者线程调用.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long h = head;
+        if (h >= tailCache) {
+            tailCache = tail;
+            if (h >= tailCache)
+                return null;
+        }
+        int i = (int) h & mask;
+        E e = (E) buffer[i];
+        buffer[i] = null;
+        HEAD.lazySet(this, h + 1);
+        return e;
+    }
+
+    /**
+     * 只能由唯一的生产者线程调用,整批写完后只发布一次tail.
+     * 发布之前槽位对消费者不可见,迭代器抛出异常或遇到null时只发布之前写入的元素.
+     */
+    @Override
+    int offerBatch(Iterator<? extends E> it, int max) {
+        long t = tail;
+        long free = buffer.length - (t - headCache);
+        if (free < max) {
+            headCache = head;
+            free = buffer.length - (t - headCache);
+        }
+        int n = (int) Math.min(free, max);
+        int k = 0;
+        try {
+            for (; k < n && it.hasNext(); k++) {
+                E e = it.next();
+                checkNotNull(e);
+                buffer[(int) (t + k) & mask] = e;
+            }
+        } finally {
+            if (k > 0)
+                TAIL.lazySet(this, t + k);
+        }
+        return k;
+    }
+
+    /**
+     * 只能由唯一的消费者线程调用,整批读完后只发布一次head.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int drainTo(Consumer<? super E> consumer, int max) {
+        long h = head;
+        long available = tailCache - h;
+        if (available < max) {
+            tailCache = tail;
+            available = tailCache - h;
+        }
+        int n = (int) Math.min(available, max);
+        if (n <= 0)
+            return 0;
+        int k = 0;
+        try {
+            for (; k < n; k++) {
+                int i = (int) (h + k) & mask;
+                E e = (E) buffer[i];
+                buffer[i] = null;
+                consumer.accept(e);
+            }
+        } finally {
+            //consumer抛出异常时只发布已交出的元素,余下元素留在缓存中.
+            HEAD.lazySet(this, h + Math.min(n, k + 1));
+        }
+        return n;
+    }
+
+    @Override
+    public int size() {
+        long h = head;
+        long t = tail;
+        return (int) Math.max(0L, Math.min(t - h, buffer.length));
+    }
+}
+
+abstract class SpscPad0<E> extends RingBuffer<E> {
+    long p01, p02, p03, p04, p05, p06, p07;
+
+    SpscPad0(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+    }
+}
+
+abstract class SpscProducerFields<E> extends SpscPad0<E> {
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<SpscProducerFields> TAIL =
+            AtomicLongFieldUpdater.newUpdater(SpscProducerFields.class, "tail");
+
+    volatile long tail;//下一个写入的序号.
+    long headCache;//生产者看到的head,只由生产者读写.
+
+    SpscProducerFields(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+    }
+}
+
+abstract class SpscPad1<E> extends SpscProducerFields<E> {
+    long p11, p12, p13, p14, p15, p16, p17;
+
+    SpscPad1(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+    }
+}
+
+abstract class SpscConsumerFields<E> extends SpscPad1<E> {
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<SpscConsumerFields> HEAD =
+            AtomicLongFieldUpdater.newUpdater(SpscConsumerFields.class, "head");
+
+    volatile long head;//下一个读取的序号.
+    long tailCache;//消费者看到的tail,只由消费者读写.
+
+    SpscConsumerFields(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.juc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 带印戳的int,用于替代CASTest.testAbaByRefer中的AtomicStampedReference&lt;Integer&gt;:
+ * 后者每次compareAndSet成功都分配一个新的Pair,超出Integer缓存的值也要装箱.
+ * <p>
+ * 值和印戳打包在一个AtomicLong中(高32位印戳,低32位值),读写都不分配对象.
+ * 需要同时读出值和印戳时用{@link #getPair()}取一次,再用{@link #valueOf}和{@link #stampOf}拆开,
+ * 或者像AtomicStampedReference一样传入可复用的int[1].
+ */
+public class StampedInt {
+
+    private final AtomicLong pair;
+
+    public StampedInt(int initialValue, int initialStamp) {
+        this.pair = new AtomicLong(pack(initialValue, initialStamp));
+    }
+
+    static long pack(int value, int stamp) {
+        return ((long) stamp << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    public static int valueOf(long pair) {
+        return (int) pair;
+    }
+
+    public static int stampOf(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    /**
+     * 值和印戳的原子快照.
+     */
+    public long getPair() {
+        return pair.get();
+    }
+
+    public int getValue() {
+        return valueOf(pair.get());
+    }
+
+    public int getStamp() {
+        return stampOf(pair.get());
+    }
+
+    /**
+     * 返回值,印戳写入stampHolder[0].
+     */
+    public int get(int[] stampHolder) {
+        long p = pair.get();
+        stampHolder[0] = stampOf(p);
+        return valueOf(p);
+    }
+
+    public boolean compareAndSet(int expectedValue, int newValue, int expectedStamp, int newStamp) {
+        return pair.compareAndSet(pack(expectedValue, expectedStamp), pack(newValue, newStamp));
+    }
+
+    /**
+     * 值等于expectedValue时只修改印戳.
+     */
+    public boolean attemptStamp(int expectedValue, int newStamp) {
+        long p = pair.get();
+        return valueOf(p) == expectedValue
+                && (stampOf(p) == newStamp || pair.compareAndSet(p, pack(expectedValue, newStamp)));
+    }
+
+    public void set(int newValue, int newStamp) {
+        pair.set(pack(newValue, newStamp));
+    }
+
+    @Override
+    public String toString() {
+        long p = pair.get();
+        return "[value = " + valueOf(p) + ", stamp = " + stampOf(p) + "]";
+    }
+}
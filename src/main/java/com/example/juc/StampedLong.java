@@ -0,0 +1,92 @@
+package com.example.juc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 带印戳的long,与{@link StampedInt}相同,值和印戳打包在一个AtomicLong中.
+ * <p>
+ * 64位放不下long值和32位印戳,因此值限制为48位有符号数(约±1.4*10^14),印戳只保留低16位.
+ * 印戳按65536取模比较,读取和CAS之间被其他线程修改恰好65536次的倍数才会误判,
+ * 版本号变化更频繁的场景应使用StampedInt或拆成两个字段.
+ */
+public class StampedLong {
+
+    public static final long MAX_VALUE = (1L << 47) - 1;
+    public static final long MIN_VALUE = -(1L << 47);
+    static final int STAMP_MASK = 0xFFFF;
+
+    private final AtomicLong pair;
+
+    public StampedLong(long initialValue, int initialStamp) {
+        this.pair = new AtomicLong(pack(initialValue, initialStamp));
+    }
+
+    static long pack(long value, int stamp) {
+        if (value < MIN_VALUE || value > MAX_VALUE)
+            throw new IllegalArgumentException("超出48位:" + value);
+        return ((long) (stamp & STAMP_MASK) << 48) | (value & 0xFFFFFFFFFFFFL);
+    }
+
+    public static long valueOf(long pair) {
+        return pair << 16 >> 16;
+    }
+
+    public static int stampOf(long pair) {
+        return (int) (pair >>> 48);
+    }
+
+    /**
+     * 值和印戳的原子快照.
+     */
+    public long getPair() {
+        return pair.get();
+    }
+
+    public long getValue() {
+        return valueOf(pair.get());
+    }
+
+    /**
+     * 印戳的低16位.
+     */
+    public int getStamp() {
+        return stampOf(pair.get());
+    }
+
+    /**
+     * 返回值,印戳写入stampHolder[0].
+     */
+    public long get(int[] stampHolder) {
+        long p = pair.get();
+        stampHolder[0] = stampOf(p);
+        return valueOf(p);
+    }
+
+    /**
+     * 印戳只比较低16位.expectedValue超出48位时必然不相等,返回false.
+     */
+    public boolean compareAndSet(long expectedValue, long newValue, int expectedStamp, int newStamp) {
+        if (expectedValue < MIN_VALUE || expectedValue > MAX_VALUE)
+            return false;
+        return pair.compareAndSet(pack(expectedValue, expectedStamp), pack(newValue, newStamp));
+    }
+
+    /**
+     * 值等于expectedValue时只修改印戳.
+     */
+    public boolean attemptStamp(long expectedValue, int newStamp) {
+        long p = pair.get();
+        return valueOf(p) == expectedValue
+                && (stampOf(p) == (newStamp & STAMP_MASK) || pair.compareAndSet(p, pack(expectedValue, newStamp)));
+    }
+
+    public void set(long newValue, int newStamp) {
+        pair.set(pack(newValue, newStamp));
+    }
+
+    @Override
+    public String toString() {
+        long p = pair.get();
+        return "[value = " + valueOf(p) + ", stamp = " + stampOf(p) + "]";
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.juc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 不分配Pair的AtomicStampedReference,接口相同.
+ * <p>
+ * 引用先登记到一个按对象身份(identityHashCode,==)查找的开放寻址表中,换成表中的下标,
+ * 下标和印戳打包在一个AtomicLong中:高32位印戳,低32位中低位是下标(全1代表null),高位是表的纪元(epoch).
+ * 同一个对象第一次出现时CAS占用一个空槽,此后查找不分配.
+ * <p>
+ * 登记的对象超过tableCapacity时回收:换一张纪元加一的新表,只重新登记当前引用,不再持有旧的对象.
+ * 旧表不清空,持有旧表的线程读到的下标仍然有效.读写前比较pair中的纪元与所读的表是否一致,不一致说明回收正在进行,重读;
+ * 修改用一次CAS写入下标和纪元,旧表的下标只能在纪元未变时写入,因此修改路径只有一次CAS,不需要锁.
+ * 回收之间由锁串行,回收时新分配一张表.
+ * 引用在有限集合中轮换时(如乐观版本控制中复用的状态对象,池化对象,枚举)不会触发回收;
+ * 每次都是新对象时每tableCapacity次修改回收一次,最多持有tableCapacity个旧对象.
+ */
+public class StampedReference<V> {
+
+    static final int FULL = -2;
+    static final int DEFAULT_TABLE_CAPACITY = 64;
+    static final int MAX_TABLE_CAPACITY = 1 << 20;
+
+    private final int mask, capacity;
+    private final int indexBits, nullIndex, epochMask;
+    private final AtomicLong pair;
+    private final Object reclaimLock = new Object();
+    private volatile Table<V> table;
+
+    /**
+     * 一个纪元的对象表,只登记,不清空.
+     */
+    private static final class Table<V> {
+        final AtomicReferenceArray<V> slots;
+        final AtomicInteger count = new AtomicInteger();//已登记的对象数.
+        final int epoch;
+
+        Table(int length, int epoch) {
+            this.slots = new AtomicReferenceArray<>(length);
+            this.epoch = epoch;
+        }
+    }
+
+    public StampedReference(V initialRef, int initialStamp) {
+        this(initialRef, initialStamp, DEFAULT_TABLE_CAPACITY);
+    }
+
+    /**
+     * @param tableCapacity 回收前最多登记的对象数,表的实际大小是它的两倍以上的2的幂.
+     *                      不超过2^20,下标最多占23位,纪元至少9位.
+     */
+    public StampedReference(V initialRef, int initialStamp, int tableCapacity) {
+        if (tableCapacity < 1 || tableCapacity > MAX_TABLE_CAPACITY)
+            throw new IllegalArgumentException();
+        int n = Integer.highestOneBit(tableCapacity) << 2;
+        this.mask = n - 1;
+        this.capacity = tableCapacity;
+        this.indexBits = Integer.numberOfTrailingZeros(n) + 1;//多一位留给null.
+        this.nullIndex = (1 << indexBits) - 1;
+        this.epochMask = (1 << (32 - indexBits)) - 1;
+        Table<V> t = new Table<>(n, 0);
+        this.table = t;
+        this.pair = new AtomicLong(pack(indexOf(t, initialRef), 0, initialStamp));
+    }
+
+    private long pack(int index, int epoch, int stamp) {
+        return ((long) stamp << 32) | (((long) epoch << indexBits) | index) & 0xFFFFFFFFL;
+    }
+
+    private int epochOf(long p) {
+        return ((int) p >>> indexBits) & epochMask;
+    }
+
+    private int indexOf(long p) {
+        return (int) p & nullIndex;
+    }
+
+    static int stampOf(long p) {
+        return (int) (p >>> 32);
+    }
+
+    /**
+     * 对象在表中的下标,不存在时登记,已登记满tableCapacity个时返回FULL.
+     */
+    private int indexOf(Table<V> t, V ref) {
+        if (ref == null)
+            return nullIndex;
+        int start = mix(System.identityHashCode(ref)) & mask;
+        for (int i = start; ; ) {
+            V v = t.slots.get(i);
+            if (v == ref)
+                return i;
+            if (v == null) {
+                if (t.count.get() >= capacity)
+                    return FULL;
+                if (t.slots.compareAndSet(i, null, ref)) {
+                    t.count.incrementAndGet();
+                    return i;
+                }
+                continue;//槽被其他线程占用,重新检查同一个槽.
+            }
+            if ((i = (i + 1) & mask) == start)
+                return FULL;
+        }
+    }
+
+    /**
+     * 换一张新表,只重新登记当前引用.先发布新表再CAS纪元,期间读到新表的线程因纪元不一致而重读,
+     * 读到旧表的线程仍能按旧纪元完成修改,回收的CAS失败后按新的当前引用重试.
+     */
+    private void reclaim(Table<V> full) {
+        synchronized (reclaimLock) {
+            if (table != full)
+                return;//其他线程已回收.
+            int epoch = full.epoch;
+            for (; ; ) {
+                epoch = (epoch + 1) & epochMask;
+                Table<V> next = new Table<>(mask + 1, epoch);
+                table = next;
+                long p;
+                int index;
+                do {
+                    p = pair.get();//纪元只由持有锁的回收修改,这里总是full的纪元.
+                    index = indexOf(next, refAt(full, p));
+                } while (index != FULL && !pair.compareAndSet(p, pack(index, epoch, stampOf(p))));
+                if (index != FULL)
+                    return;
+                //重试时登记了多个旧的当前引用,新表已满,换一个纪元重来.
+            }
+        }
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private V refAt(Table<V> t, long p) {
+        int index = indexOf(p);
+        return index == nullIndex ? null : t.slots.get(index);
+    }
+
+    public V getReference() {
+        for (; ; ) {
+            Table<V> t = table;
+            long p = pair.get();
+            if (epochOf(p) == t.epoch)
+                return refAt(t, p);
+            Thread.yield();//回收正在进行,等它CAS纪元.
+        }
+    }
+
+    public int getStamp() {
+        return stampOf(pair.get());
+    }
+
+    /**
+     * 返回引用,印戳写入stampHolder[0].
+     */
+    public V get(int[] stampHolder) {
+        for (; ; ) {
+            Table<V> t = table;
+            long p = pair.get();
+            if (epochOf(p) == t.epoch) {
+                stampHolder[0] = stampOf(p);
+                return refAt(t, p);
+            }
+            Thread.yield();//回收正在进行,等它CAS纪元.
+        }
+    }
+
+    /**
+     * 期望值直接与当前下标上的对象比较,只有新引用需要查表.
+     */
+    public boolean compareAndSet(V expectedReference, V newReference, int expectedStamp, int newStamp) {
+        for (; ; ) {
+            Table<V> t = table;
+            long p = pair.get();
+            if (epochOf(p) != t.epoch) {
+                Thread.yield();//回收正在进行,等它CAS纪元.
+                continue;
+            }
+            if (stampOf(p) != expectedStamp || refAt(t, p) != expectedReference)
+                return false;
+            int index = indexOf(t, newReference);
+            if (index != FULL)
+                return pair.compareAndSet(p, pack(index, t.epoch, newStamp));
+            reclaim(t);
+        }
+    }
+
+    /**
+     * 引用等于expectedReference时只修改印戳.
+     */
+    public boolean attemptStamp(V expectedReference, int newStamp) {
+        for (; ; ) {
+            Table<V> t = table;
+            long p = pair.get();
+            if (epochOf(p) != t.epoch) {
+                Thread.yield();//回收正在进行,等它CAS纪元.
+                continue;
+            }
+            return refAt(t, p) == expectedReference
+                    && (stampOf(p) == newStamp || pair.compareAndSet(p, ((long) newStamp << 32) | (p & 0xFFFFFFFFL)));
+        }
+    }
+
+    public void set(V newReference, int newStamp) {
+        for (; ; ) {
+            Table<V> t = table;
+            long p = pair.get();
+            if (epochOf(p) != t.epoch) {
+                Thread.yield();//回收正在进行,等它CAS纪元.
+                continue;
+            }
+            int index = indexOf(t, newReference);
+            if (index == FULL)
+                reclaim(t);
+            else if (pair.compareAndSet(p, pack(index, t.epoch, newStamp)))
+                return;
+        }
+    }
+
+    /**
+     * 当前表中已登记的不同对象数.
+     */
+    int registered() {
+        AtomicReferenceArray<V> slots = table.slots;
+        int n = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null)
+                n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,524 @@
+package com.example.juc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分阶段并行启动,由CyclicBarrierTest.testEnm的写法(先初始化vpp,5个vsd线程在CyclicBarrier处会合后启动服务发现)推广而来.
+ * <p>
+ * 1.启动过程描述为阶段的有向无环图,一个阶段可以有多个并行实例(如5个vsd),只等它自己依赖的阶段完成后就开始,
+ * 与它无关的阶段不影响它:a(1s)->b与c(3s)无关时,b在1s时开始,不等c.
+ * 2.每个阶段一个CountDownLatch,阶段结束(完成,失败或跳过)时打开,依赖它的阶段的实例线程在上面等待.
+ * 多实例阶段按实例倒数,最后一个结束的实例打开闩锁,与testEnm中5个vsd会合后才启动服务发现相同.
+ * 实例之间不互相等待,中止时没有实例停在会合点上,不会因为其他实例不再到达而永远等待.
+ * 3.每个实例一个线程,同时执行初始化逻辑的实例数由Semaphore限制为maxParallelism,等待依赖时不占用许可.
+ * 4.实例抛出异常时重试,超过maxAttempts次后该阶段失败,启动中止:尚未开始的阶段跳过,正在执行的阶段照常结束.
+ * 5.调用start的线程充当看门狗:一个阶段从开始起超过stageTimeout没有结束时,标记超时并中止启动,
+ * 中断所有实例线程.中止后等实例线程退出(最多再等stageTimeout)才返回,
+ * 抛出StartupException时阶段代码不会仍在后台运行(除非它不响应中断).
+ * <p>
+ * 启动成功或失败都返回/携带{@link Report},包含每个阶段的依赖深度(level),状态,尝试次数,开始时间和耗时,
+ * 以及总耗时与所有实例耗时之和,两者之差即并行节省的时间.
+ */
+public class StartupOrchestrator {
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED, TIMED_OUT, SKIPPED
+    }
+
+    /**
+     * 单实例阶段的初始化逻辑.
+     */
+    @FunctionalInterface
+    public interface Init {
+        void init() throws Exception;
+    }
+
+    /**
+     * 多实例阶段的初始化逻辑,instance从0开始.
+     */
+    @FunctionalInterface
+    public interface InstanceInit {
+        void init(int instance) throws Exception;
+    }
+
+    private final long stageTimeoutNanos;
+    private final int maxParallelism, maxAttempts;
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private final ThreadFactory threadFactory = Threads.factory("startup");
+    private boolean started;
+
+    public StartupOrchestrator(long stageTimeout, TimeUnit unit) {
+        this(stageTimeout, unit, 16, 1);
+    }
+
+    /**
+     * @param stageTimeout   每个阶段从开始到结束允许的最长时间,也是中止后等待实例线程退出的最长时间.
+     * @param maxParallelism 最多同时执行初始化逻辑的实例数.
+     * @param maxAttempts    每个实例最多尝试的次数.
+     */
+    public StartupOrchestrator(long stageTimeout, TimeUnit unit, int maxParallelism, int maxAttempts) {
+        if (stageTimeout <= 0L || maxParallelism < 1 || maxAttempts < 1)
+            throw new IllegalArgumentException();
+        this.stageTimeoutNanos = unit.toNanos(stageTimeout);
+        this.maxParallelism = maxParallelism;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public StartupOrchestrator stage(String name, Init init, String... dependsOn) {
+        return stage(name, 1, instance -> init.init(), dependsOn);
+    }
+
+    public synchronized StartupOrchestrator stage(String name, int instances, InstanceInit init, String... dependsOn) {
+        if (started)
+            throw new IllegalStateException("已经启动");
+        if (instances < 1 || stages.containsKey(name))
+            throw new IllegalArgumentException(name);
+        stages.put(name, new Stage(name, instances, init, dependsOn));
+        return this;
+    }
+
+    /**
+     * 执行所有阶段,全部完成后返回报告.只能调用一次.
+     *
+     * @throws StartupException 有阶段失败或超时,报告中是各阶段当时的状态.
+     */
+    public Report start() throws InterruptedException, StartupException {
+        List<Stage> ordered;
+        synchronized (this) {
+            if (started)
+                throw new IllegalStateException("已经启动");
+            started = true;
+            ordered = resolve();
+        }
+        Run run = new Run(ordered);
+        run.await();
+        Report report = run.report();
+        if (run.failure != null)
+            throw new StartupException(run.failure, report);
+        return report;
+    }
+
+    /**
+     * 解析依赖并计算依赖深度,检查未知依赖和环,返回按深度排列的阶段.
+     */
+    private List<Stage> resolve() {
+        Map<String, Integer> depth = new HashMap<>();
+        List<List<Stage>> levels = new ArrayList<>();
+        for (Stage s : stages.values()) {
+            int d = depth(s, depth, new ArrayList<>());
+            while (levels.size() <= d) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(d).add(s);
+        }
+        List<Stage> ordered = new ArrayList<>();
+        for (List<Stage> l : levels) {
+            ordered.addAll(l);
+        }
+        return ordered;
+    }
+
+    private int depth(Stage s, Map<String, Integer> depth, List<String> path) {
+        Integer known = depth.get(s.name);
+        if (known != null)
+            return known;
+        if (path.contains(s.name))
+            throw new IllegalArgumentException("循环依赖:" + path + "->" + s.name);
+        path.add(s.name);
+        int d = 0;
+        for (String dep : s.dependsOn) {
+            Stage parent = stages.get(dep);
+            if (parent == null)
+                throw new IllegalArgumentException("阶段" + s.name + "依赖的" + dep + "不存在");
+            d = Math.max(d, depth(parent, depth, path) + 1);
+            s.parents.add(parent);
+        }
+        path.remove(path.size() - 1);
+        depth.put(s.name, d);
+        s.level = d;
+        return d;
+    }
+
+    private final class Run {
+        final List<Stage> stages;
+        final List<Thread> workers = new ArrayList<>();
+        final Semaphore permits = new Semaphore(maxParallelism);
+        final CountDownLatch done = new CountDownLatch(1);//所有实例线程都已退出.
+        final AtomicInteger running;
+        final long startNanos = System.nanoTime();
+        volatile boolean aborted;
+        volatile Throwable failure;
+
+        Run(List<Stage> stages) {
+            this.stages = stages;
+            for (Stage s : stages) {
+                for (int instance = 0; instance < s.instances; instance++) {
+                    int index = instance;
+                    workers.add(threadFactory.newThread(() -> work(s, index)));
+                }
+            }
+            this.running = new AtomicInteger(workers.size());
+            for (Thread t : workers) {
+                t.start();
+            }
+        }
+
+        /**
+         * 一个实例:等依赖的阶段结束,依赖都完成且未中止时执行,结束后倒数本阶段的实例.
+         */
+        void work(Stage s, int instance) {
+            try {
+                for (Stage p : s.parents) {
+                    p.done.await();
+                }
+                if (aborted || !s.parentsCompleted()) {
+                    s.finish();//依赖失败或已中止,本阶段保持PENDING,报告为SKIPPED.
+                    return;
+                }
+                permits.acquire();
+                try {
+                    if (aborted) {
+                        s.finish();
+                        return;
+                    }
+                    s.run(instance, maxAttempts);
+                } finally {
+                    permits.release();
+                }
+                if (s.status() == Status.FAILED) {
+                    fail(s.failure());
+                    abort(false);
+                } else {
+                    s.arrive();
+                }
+            } catch (InterruptedException e) {
+                //超时或start被中断时看门狗中断实例线程.
+            } finally {
+                if (running.decrementAndGet() == 0)
+                    done.countDown();
+            }
+        }
+
+        /**
+         * 只记录第一个失败,实例线程和看门狗可能同时调用.
+         */
+        synchronized void fail(Throwable t) {
+            if (failure == null)
+                failure = t;
+        }
+
+        /**
+         * 中止启动:打开所有闩锁,让等待依赖的实例看到aborted后跳过.
+         *
+         * @param interrupt 是否中断实例线程.阶段失败时正在执行的阶段照常结束,超时或start被中断时中断它们.
+         */
+        void abort(boolean interrupt) {
+            aborted = true;
+            for (Stage s : stages) {
+                s.finish();
+            }
+            if (interrupt) {
+                for (Thread t : workers) {
+                    t.interrupt();
+                }
+            }
+        }
+
+        /**
+         * 看门狗:等待所有实例线程结束,有阶段超时则中止并中断实例线程,之后最多再等stageTimeout,等实例线程退出.
+         * 阶段失败引起的中止不中断,仍在执行的阶段继续受超时监视.
+         */
+        void await() throws InterruptedException {
+            try {
+                while (!done.await(nextDeadline() - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    Stage late = expired(System.nanoTime());
+                    if (late != null) {
+                        fail(new TimeoutException("阶段" + late.name + "在"
+                                + TimeUnit.NANOSECONDS.toMillis(stageTimeoutNanos) + "ms内未完成"));
+                        late.timeout();
+                        abort(true);
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                fail(e);
+                abort(true);
+                awaitWorkers();
+                throw e;
+            }
+            if (aborted)
+                awaitWorkers();
+        }
+
+        /**
+         * 最早超时的执行中阶段的截止时间,没有执行中的阶段时等待一个stageTimeout后再检查.
+         */
+        long nextDeadline() {
+            long now = System.nanoTime();
+            long next = now + stageTimeoutNanos;
+            for (Stage s : stages) {
+                long start = s.runningSince();
+                if (start != 0L && start + stageTimeoutNanos - next < 0L)
+                    next = start + stageTimeoutNanos;
+            }
+            return next;
+        }
+
+        Stage expired(long now) {
+            for (Stage s : stages) {
+                long start = s.runningSince();
+                if (start != 0L && now - (start + stageTimeoutNanos) >= 0L)
+                    return s;
+            }
+            return null;
+        }
+
+        /**
+         * 中止后等待实例线程退出,最多等stageTimeout.期间被中断时继续等,返回前恢复中断状态.
+         */
+        void awaitWorkers() {
+            long deadline = System.nanoTime() + stageTimeoutNanos;
+            boolean interrupted = Thread.interrupted();
+            for (long left; (left = deadline - System.nanoTime()) > 0L; ) {
+                try {
+                    if (done.await(left, TimeUnit.NANOSECONDS))
+                        break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+
+        Report report() {
+            long total = System.nanoTime() - startNanos;
+            List<StageTiming> timings = new ArrayList<>();
+            for (Stage s : stages) {
+                timings.add(s.timing(startNanos));
+            }
+            return new Report(timings, total);
+        }
+    }
+
+    private static final class Stage {
+        final String name;
+        final int instances;
+        final InstanceInit init;
+        final String[] dependsOn;
+        final List<Stage> parents = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);//阶段结束时打开,无论成功与否.
+        final AtomicInteger pending;//尚未结束的实例数,倒数到0时打开闩锁.
+        int level;
+        private int completed, attempts;
+        private long firstStart, lastEnd, busy;
+        private Status status = Status.PENDING;
+        private Throwable failure;
+
+        Stage(String name, int instances, InstanceInit init, String[] dependsOn) {
+            this.name = name;
+            this.instances = instances;
+            this.pending = new AtomicInteger(instances);
+            this.init = init;
+            this.dependsOn = dependsOn.clone();
+        }
+
+        boolean parentsCompleted() {
+            for (Stage p : parents) {
+                if (p.status() != Status.COMPLETED)
+                    return false;
+            }
+            return true;
+        }
+
+        void finish() {
+            done.countDown();
+        }
+
+        /**
+         * 一个实例成功结束,最后一个实例结束时打开闩锁.
+         */
+        void arrive() {
+            if (pending.decrementAndGet() == 0)
+                finish();
+        }
+
+        void run(int instance, int maxAttempts) {
+            synchronized (this) {
+                if (status == Status.PENDING) {
+                    status = Status.RUNNING;
+                    firstStart = System.nanoTime();
+                }
+            }
+            long begin = System.nanoTime();
+            for (int attempt = 1; ; attempt++) {
+                synchronized (this) {
+                    attempts++;
+                }
+                try {
+                    init.init(instance);
+                    synchronized (this) {
+                        lastEnd = System.nanoTime();
+                        busy += lastEnd - begin;
+                        if (++completed == instances && status == Status.RUNNING)
+                            status = Status.COMPLETED;
+                    }
+                    return;
+                } catch (Exception e) {
+                    if (e instanceof InterruptedException)
+                        Thread.currentThread().interrupt();
+                    if (attempt >= maxAttempts || Thread.currentThread().isInterrupted()) {
+                        synchronized (this) {
+                            lastEnd = System.nanoTime();
+                            busy += lastEnd - begin;
+                            if (status == Status.RUNNING) {
+                                status = Status.FAILED;
+                                failure = e;
+                            }
+                        }
+                        return;
+                    }
+                }
+            }
+        }
+
+        synchronized Status status() {
+            return status;
+        }
+
+        synchronized Throwable failure() {
+            return failure;
+        }
+
+        /**
+         * 执行中时返回开始时间,否则返回0.
+         */
+        synchronized long runningSince() {
+            return status == Status.RUNNING ? firstStart : 0L;
+        }
+
+        synchronized void timeout() {
+            if (status == Status.RUNNING) {
+                status = Status.TIMED_OUT;
+                lastEnd = System.nanoTime();
+            }
+        }
+
+        synchronized StageTiming timing(long origin) {
+            Status s = status == Status.PENDING ? Status.SKIPPED : status;
+            long start = status == Status.PENDING ? 0L : firstStart - origin;
+            long duration = status == Status.PENDING || status == Status.RUNNING ? 0L : lastEnd - firstStart;
+            return new StageTiming(name, level, instances, s, attempts, start, duration, busy, failure);
+        }
+    }
+
+    /**
+     * 单个阶段的结果,时间以纳秒计,开始时间相对于start被调用的时刻,level是依赖深度.
+     * duration是第一个实例开始到最后一个实例结束,busy是各实例耗时之和.
+     */
+    public static final class StageTiming {
+        public final String name;
+        public final int level, instances, attempts;
+        public final Status status;
+        public final long startNanos, durationNanos, busyNanos;
+        public final Throwable failure;
+
+        StageTiming(String name, int level, int instances, Status status, int attempts,
+                    long startNanos, long durationNanos, long busyNanos, Throwable failure) {
+            this.name = name;
+            this.level = level;
+            this.instances = instances;
+            this.status = status;
+            this.attempts = attempts;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.busyNanos = busyNanos;
+            this.failure = failure;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s[level=%d,instances=%d,%s,attempts=%d,start=%dms,took=%dms]", name, level,
+                    instances, status, attempts, TimeUnit.NANOSECONDS.toMillis(startNanos),
+                    TimeUnit.NANOSECONDS.toMillis(durationNanos));
+        }
+    }
+
+    public static final class Report {
+        private final List<StageTiming> stages;
+        private final long totalNanos;
+
+        Report(List<StageTiming> stages, long totalNanos) {
+            this.stages = Collections.unmodifiableList(stages);
+            this.totalNanos = totalNanos;
+        }
+
+        /**
+         * 按依赖深度排列的各阶段结果.
+         */
+        public List<StageTiming> getStages() {
+            return stages;
+        }
+
+        public StageTiming getStage(String name) {
+            for (StageTiming t : stages) {
+                if (t.name.equals(name))
+                    return t;
+            }
+            return null;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * 所有实例耗时之和,即串行启动大约需要的时间.
+         */
+        public long getSerialNanos() {
+            long s = 0L;
+            for (StageTiming t : stages) {
+                s += t.busyNanos;
+            }
+            return s;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder b = new StringBuilder(String.format("启动耗时%dms,串行约需%dms",
+                    TimeUnit.NANOSECONDS.toMillis(totalNanos), TimeUnit.NANOSECONDS.toMillis(getSerialNanos())));
+            for (StageTiming t : stages) {
+                b.append(System.lineSeparator()).append("  ").append(t);
+            }
+            return b.toString();
+        }
+    }
+
+    /**
+     * 启动失败,cause是第一个失败阶段的异常,超时时是TimeoutException.
+     */
+    public static class StartupException extends Exception {
+        private static final long serialVersionUID = 1L;
+        private final transient Report report;
+
+        StartupException(Throwable cause, Report report) {
+            super(cause.getMessage(), cause);
+            this.report = report;
+        }
+
+        public Report getReport() {
+            return report;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.juc;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 有容量上限的库存计数,用于替代VolatileTest中蜜蜂与熊的写法:
+ * 双重检查volatile的honey后加锁,库存空/满时sleep一秒,既空转又带来最长1秒的延迟.
+ * <p>
+ * 1.库存只有一个int,put/take都是对它的CAS,不加锁.
+ * 2.库存不足(take)或已满(put)时,线程排入对应的等待队列后再检查一次库存,然后park.
+ * 库存变化的一方在CAS成功后按当前可用量依次unpark对侧能被满足的等待者,
+ * 等待者入队后的再次检查与CAS后读队列之间没有丢失唤醒的窗口.
+ * 3.被唤醒后仍未取到(被快路径插队,或排在前面的等待者需要的量更大)时,先唤醒同侧其他能被满足的等待者再park,
+ * 超时或中断退出时同样如此,避免一份库存被记在已离开的等待者名下而无人认领.
+ * <p>
+ * 非公平:快路径可以插队,等待者之间也不保证先来先得.多核时park前先自旋若干次,交接通常在微秒级完成.
+ */
+public class StockCounter {
+
+    private static final AtomicIntegerFieldUpdater<StockCounter> COUNT =
+            AtomicIntegerFieldUpdater.newUpdater(StockCounter.class, "count");
+
+    static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 64 : 0;
+
+    private final int capacity;
+    private volatile int count;
+    private final ConcurrentLinkedQueue<Waiter> takers = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Waiter> putters = new ConcurrentLinkedQueue<>();
+
+    public StockCounter(int capacity) {
+        this(capacity, 0);
+    }
+
+    public StockCounter(int capacity, int initial) {
+        if (capacity < 1 || initial < 0 || initial > capacity)
+            throw new IllegalArgumentException();
+        this.capacity = capacity;
+        this.count = initial;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 当前库存,只是瞬时值.
+     */
+    public int available() {
+        return count;
+    }
+
+    /**
+     * 当前剩余空间,只是瞬时值.
+     */
+    public int remaining() {
+        return capacity - count;
+    }
+
+    public boolean hasWaitingTakers() {
+        return !takers.isEmpty();
+    }
+
+    public boolean hasWaitingPutters() {
+        return !putters.isEmpty();
+    }
+
+    /**
+     * 不等待,库存不足n时返回false.
+     */
+    public boolean tryTake(int n) {
+        checkAmount(n);
+        for (int c; (c = count) >= n; ) {
+            if (COUNT.compareAndSet(this, c, c - n)) {
+                signal(putters, false);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 不等待,剩余空间不足n时返回false.
+     */
+    public boolean tryPut(int n) {
+        checkAmount(n);
+        for (int c; capacity - (c = count) >= n; ) {
+            if (COUNT.compareAndSet(this, c, c + n)) {
+                signal(takers, true);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 等待直到取到n份库存.
+     */
+    public void take(int n) throws InterruptedException {
+        await(true, n, false, 0L);
+    }
+
+    public boolean tryTake(int n, long timeout, TimeUnit unit) throws InterruptedException {
+        return await(true, n, true, unit.toNanos(timeout));
+    }
+
+    /**
+     * 等待直到放入n份库存.
+     */
+    public void put(int n) throws InterruptedException {
+        await(false, n, false, 0L);
+    }
+
+    public boolean tryPut(int n, long timeout, TimeUnit unit) throws InterruptedException {
+        return await(false, n, true, unit.toNanos(timeout));
+    }
+
+    private void checkAmount(int n) {
+        if (n < 1 || n > capacity)
+            throw new IllegalArgumentException("数量必须在1到" + capacity + "之间:" + n);
+    }
+
+    private boolean attempt(boolean take, int n) {
+        return take ? tryTake(n) : tryPut(n);
+    }
+
+    private boolean await(boolean take, int n, boolean timed, long nanos) throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        if (attempt(take, n))
+            return true;
+        for (int i = 0; i < SPINS; i++) {
+            if (attempt(take, n))
+                return true;
+        }
+        ConcurrentLinkedQueue<Waiter> queue = take ? takers : putters;
+        Waiter w = new Waiter(Thread.currentThread(), n);
+        queue.offer(w);
+        long deadline = timed ? System.nanoTime() + nanos : 0L;
+        boolean parked = false;
+        for (; ; ) {
+            if (attempt(take, n)) {
+                queue.remove(w);
+                return true;
+            }
+            if (parked)
+                signal(queue, take);
+            if (timed && (nanos = deadline - System.nanoTime()) <= 0L) {
+                cancel(queue, w, take);
+                return false;
+            }
+            if (timed)
+                LockSupport.parkNanos(this, nanos);
+            else
+                LockSupport.park(this);
+            parked = true;
+            if (Thread.interrupted()) {
+                cancel(queue, w, take);
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    private void cancel(ConcurrentLinkedQueue<Waiter> queue, Waiter w, boolean take) {
+        queue.remove(w);
+        signal(queue, take);
+    }
+
+    /**
+     * 按队列顺序唤醒能被当前可用量满足的等待者,需要量更大的跳过.
+     */
+    private void signal(ConcurrentLinkedQueue<Waiter> queue, boolean take) {
+        if (queue.isEmpty())
+            return;
+        int c = count;
+        int avail = take ? c : capacity - c;
+        for (Waiter w : queue) {
+            if (avail <= 0)
+                break;
+            if (w.amount <= avail) {
+                avail -= w.amount;
+                LockSupport.unpark(w.thread);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[count = " + count + ", capacity = " + capacity + "]";
+    }
+
+    static final class Waiter {
+        final Thread thread;
+        final int amount;
+
+        Waiter(Thread thread, int amount) {
+            this.thread = thread;
+            this.amount = amount;
+        }
+    }
+}
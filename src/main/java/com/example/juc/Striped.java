@@ -0,0 +1,71 @@
+package com.example.juc;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 条带计数的公共部分:按需创建的cell数组和线程到cell的映射,做法与LongAdder的Striped64相同.
+ * <p>
+ * 1.没有竞争时子类只操作自己的中心字段,第一次CAS失败才创建cell数组.
+ * 2.线程按自己的探针值({@link ThreadProbe})选cell,CAS失败说明与其他线程撞在同一个cell上,换一个探针值重试,
+ * 连续撞上时把数组扩大一倍,上限为不小于CPU数的2的幂.
+ * 3.cell是{@link PaddedAtomicLong},前后各填充一个缓存行,不同cell的更新互不影响.
+ */
+abstract class Striped {
+
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+    static final int MAX_CELLS = Integer.highestOneBit(Math.max(2, NCPU) - 1) << 1;
+
+    private static final AtomicIntegerFieldUpdater<Striped> BUSY =
+            AtomicIntegerFieldUpdater.newUpdater(Striped.class, "busy");
+
+    volatile PaddedAtomicLong[] cells;
+    private volatile int busy;//创建或扩容cell数组时的自旋锁.
+
+    /**
+     * 创建cell数组,已存在时直接返回.
+     */
+    final PaddedAtomicLong[] initCells() {
+        PaddedAtomicLong[] cs;
+        while ((cs = cells) == null) {
+            if (busy == 0 && BUSY.compareAndSet(this, 0, 1)) {
+                try {
+                    if ((cs = cells) == null)
+                        cells = cs = newCells(null, 2);
+                } finally {
+                    busy = 0;
+                }
+                return cs;
+            }
+            Thread.yield();
+        }
+        return cs;
+    }
+
+    /**
+     * 尝试把cell数组扩大一倍,返回当前数组.其他线程正在扩容或已达上限时不等待.
+     */
+    final PaddedAtomicLong[] grow(PaddedAtomicLong[] old) {
+        if (old.length < MAX_CELLS && cells == old && BUSY.compareAndSet(this, 0, 1)) {
+            try {
+                if (cells == old)
+                    cells = newCells(old, old.length << 1);
+            } finally {
+                busy = 0;
+            }
+        }
+        return cells;
+    }
+
+    private static PaddedAtomicLong[] newCells(PaddedAtomicLong[] old, int n) {
+        PaddedAtomicLong[] cs = new PaddedAtomicLong[n];
+        int i = 0;
+        if (old != null) {
+            System.arraycopy(old, 0, cs, 0, old.length);
+            i = old.length;
+        }
+        for (; i < n; i++) {
+            cs[i] = new PaddedAtomicLong();
+        }
+        return cs;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.juc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * 条带计数器,用于替代CASTest中的单个AtomicInteger和VolatileTest中加锁的honey计数:
+ * 写线程多时,所有线程在同一个变量上CAS,失败重试占满总线.
+ * <p>
+ * 无竞争时与AtomicLong一样只更新base,出现竞争后各线程更新自己的cell,读取时求和.
+ * {@link #sum()}不是原子快照,并发更新时返回的是求和过程中的某个中间值.
+ * <p>
+ * 读取频繁的场景(如监控每次请求都读一次总数)可以用{@link #approximateSum()}:
+ * 在maxStaleness内返回缓存的和,过期后只有一个读线程重新求和,其他读线程仍返回旧值.
+ * 每次读取要调用一次System.nanoTime(几十纳秒),cell数多(核数多)时才比直接求和划算.
+ */
+public class StripedCounter extends Striped {
+
+    private static final AtomicLongFieldUpdater<StripedCounter> BASE =
+            AtomicLongFieldUpdater.newUpdater(StripedCounter.class, "base");
+    private static final AtomicLongFieldUpdater<StripedCounter> SNAPSHOT_TIME =
+            AtomicLongFieldUpdater.newUpdater(StripedCounter.class, "snapshotTime");
+
+    private volatile long base;
+    private final long maxStalenessNanos;
+    private volatile long snapshot;
+    private volatile long snapshotTime;
+
+    /**
+     * approximateSum与sum相同.
+     */
+    public StripedCounter() {
+        this(0L, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param maxStaleness approximateSum返回值允许的最长缓存时间.
+     */
+    public StripedCounter(long maxStaleness, TimeUnit unit) {
+        this.maxStalenessNanos = Math.max(0L, unit.toNanos(maxStaleness));
+        this.snapshotTime = System.nanoTime() - maxStalenessNanos - 1L;
+    }
+
+    public void increment() {
+        add(1L);
+    }
+
+    public void decrement() {
+        add(-1L);
+    }
+
+    public void add(long x) {
+        PaddedAtomicLong[] cs = cells;
+        long b;
+        if (cs == null) {
+            if (BASE.compareAndSet(this, b = base, b + x))
+                return;
+            cs = initCells();
+        }
+        int h = ThreadProbe.get();
+        for (boolean collided = false; ; ) {
+            PaddedAtomicLong c = cs[h & (cs.length - 1)];
+            long v = c.get();
+            if (c.compareAndSet(v, v + x))
+                return;
+            if (collided) {
+                cs = grow(cs);
+                collided = false;
+            } else {
+                collided = true;
+            }
+            h = ThreadProbe.advance();
+        }
+    }
+
+    public long sum() {
+        long s = base;
+        PaddedAtomicLong[] cs = cells;
+        if (cs != null) {
+            for (PaddedAtomicLong c : cs) {
+                s += c.get();
+            }
+        }
+        return s;
+    }
+
+    /**
+     * 最多过期maxStaleness的和.
+     */
+    public long approximateSum() {
+        if (maxStalenessNanos == 0L)
+            return sum();
+        long now = System.nanoTime();
+        long t = snapshotTime;
+        if (now - t > maxStalenessNanos && SNAPSHOT_TIME.compareAndSet(this, t, now))
+            snapshot = sum();
+        return snapshot;
+    }
+
+    /**
+     * 清零,只在没有并发更新时结果才准确.
+     */
+    public void reset() {
+        base = 0L;
+        PaddedAtomicLong[] cs = cells;
+        if (cs != null) {
+            for (PaddedAtomicLong c : cs) {
+                c.set(0L);
+            }
+        }
+    }
+
+    /**
+     * 返回当前的和并清零,并发更新不会丢失,只会计入下一次.
+     */
+    public long sumThenReset() {
+        long s = BASE.getAndSet(this, 0L);
+        PaddedAtomicLong[] cs = cells;
+        if (cs != null) {
+            for (PaddedAtomicLong c : cs) {
+                s += c.getAndSet(0L);
+            }
+        }
+        return s;
+    }
+
+    /**
+     * 当前cell数,0代表还没有出现过竞争.
+     */
+    int stripes() {
+        PaddedAtomicLong[] cs = cells;
+        return cs == null ? 0 : cs.length;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.juc;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * fork-join任务的偷取与外部帮助跟踪,替代ForkJoinTest.testInvokerAndOwner/testParallel中
+ * 按线程名匹配并逐元素打日志的做法.
+ * <p>
+ * 任务继承{@link TracedRecursiveTask}或{@link TracedCountedCompleter},构造时记下创建线程(owner),
+ * 执行时按执行线程分为四类:
+ * 1.本地:执行线程就是owner.
+ * 2.偷取:执行线程和owner是不同的ForkJoinWorkerThread.
+ * 3.外部提交:owner不是ForkJoinWorkerThread,执行线程是worker,如main线程pool.invoke的根任务.
+ * 这类任务本来就只能由worker从提交队列中取走,不计为偷取,否则每个外部提交的根任务都会抬高偷取率.
+ * 4.外部帮助:执行线程不是ForkJoinWorkerThread,如join时帮助执行的主线程.
+ * 另外记录排队耗时(创建到开始执行),执行耗时(包含在其中直接调用的子任务)和任务规模的分布.
+ * <p>
+ * 每个线程的统计只由该线程写,没有CAS和锁,{@link #report()}汇总各线程的统计.
+ * 已终止线程的统计在report或新线程登记时并入一个汇总,并从列表中移除,线程池回收线程不会使列表无限增长.
+ * 分类计数和规模每个任务都记录;耗时需要三次nanoTime,可按2^sampleShift个任务采样一个,以控制开销.
+ * 计算在join返回或线程池awaitQuiescence后,报告是准确的;计算过程中报告是近似值.
+ */
+public class TaskTracer {
+
+    /**
+     * 默认每16个任务记录一次耗时.nanoTime在虚拟机中一次约40ns,每个任务都记录时开销在100ns以上.
+     */
+    static final int DEFAULT_SAMPLE_SHIFT = 4;
+
+    private final int sampleMask;
+    final List<ThreadStats> stats = new CopyOnWriteArrayList<>();
+    private final ThreadStats retired = new ThreadStats(null);//已终止线程的汇总,由this保护.
+    private final ThreadLocal<ThreadStats> local = ThreadLocal.withInitial(this::register);
+
+    public TaskTracer() {
+        this(DEFAULT_SAMPLE_SHIFT);
+    }
+
+    /**
+     * @param sampleShift 每2^sampleShift个任务记录一次耗时,0代表每个任务都记录.
+     */
+    public TaskTracer(int sampleShift) {
+        if (sampleShift < 0 || sampleShift > 30)
+            throw new IllegalArgumentException("sampleShift:" + sampleShift);
+        this.sampleMask = (1 << sampleShift) - 1;
+    }
+
+    private ThreadStats register() {
+        ThreadStats s = new ThreadStats(Thread.currentThread());
+        synchronized (this) {
+            expunge();
+        }
+        stats.add(s);
+        return s;
+    }
+
+    /**
+     * 把已终止线程的统计并入retired并移除.isAlive返回false之后,该线程之前的写都可见.
+     */
+    private void expunge() {
+        for (ThreadStats s : stats) {
+            if (!s.thread.isAlive()) {
+                retired.merge(s);
+                stats.remove(s);
+            }
+        }
+    }
+
+    /**
+     * 任务构造时调用,返回创建时间,本任务不采样耗时时返回0.
+     */
+    long onCreate() {
+        ThreadStats s = local.get();
+        return (s.created++ & sampleMask) == 0 ? nonZeroNanoTime() : 0L;
+    }
+
+    private static long nonZeroNanoTime() {
+        long t = System.nanoTime();
+        return t == 0L ? 1L : t;
+    }
+
+    /**
+     * 任务开始执行时调用,按owner分类计数.
+     */
+    ThreadStats onStart(Thread owner, long size) {
+        ThreadStats s = local.get();
+        Thread t = Thread.currentThread();
+        if (t == owner)
+            s.local++;
+        else if (!(t instanceof ForkJoinWorkerThread))
+            s.external++;
+        else if (owner instanceof ForkJoinWorkerThread)
+            s.stolen++;
+        else
+            s.submitted++;
+        s.size[LatencyHistogram.bucket(size)]++;
+        return s;
+    }
+
+    /**
+     * 所有线程统计的汇总.
+     */
+    public Report report() {
+        Report r = new Report();
+        synchronized (this) {
+            expunge();
+            r.add(retired);
+            for (ThreadStats s : stats) {
+                r.add(s);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * 一个线程的统计,只由该线程写.
+     */
+    static final class ThreadStats {
+        private static final AtomicLongFieldUpdater<ThreadStats> TASKS =
+                AtomicLongFieldUpdater.newUpdater(ThreadStats.class, "tasks");
+
+        final Thread thread;//统计所属的线程,retired汇总为null.
+        long created;//本线程创建的任务数,用于采样.
+        long local, stolen, submitted, external, sampled;
+        final long[] wait = new long[LatencyHistogram.BUCKETS];
+        final long[] exec = new long[LatencyHistogram.BUCKETS];
+        final long[] size = new long[LatencyHistogram.BUCKETS];
+        volatile long tasks;//最后写,报告读到它时能看到之前的计数.
+
+        ThreadStats(Thread thread) {
+            this.thread = thread;
+        }
+
+        /**
+         * 任务执行结束时调用,created为0代表不记录耗时.
+         */
+        void onEnd(long created, long start) {
+            if (created != 0L) {
+                long end = System.nanoTime();
+                wait[LatencyHistogram.bucket(start - created)]++;
+                exec[LatencyHistogram.bucket(end - start)]++;
+                sampled++;
+            }
+            TASKS.lazySet(this, tasks + 1);
+        }
+
+        /**
+         * 并入已终止线程的统计.
+         */
+        void merge(ThreadStats s) {
+            local += s.local;
+            stolen += s.stolen;
+            submitted += s.submitted;
+            external += s.external;
+            sampled += s.sampled;
+            for (int b = 0; b < LatencyHistogram.BUCKETS; b++) {
+                wait[b] += s.wait[b];
+                exec[b] += s.exec[b];
+                size[b] += s.size[b];
+            }
+            tasks += s.tasks;
+        }
+    }
+
+    public static final class Report {
+        long tasks, local, stolen, submitted, external, sampled;
+        final LatencyHistogram wait = new LatencyHistogram();
+        final LatencyHistogram exec = new LatencyHistogram();
+        final long[] size = new long[LatencyHistogram.BUCKETS];
+
+        void add(ThreadStats s) {
+            long tasks = s.tasks;//先读,之前的写对本线程可见.
+            this.tasks += tasks;
+            local += s.local;
+            stolen += s.stolen;
+            submitted += s.submitted;
+            external += s.external;
+            sampled += s.sampled;
+            wait.add(s.wait);
+            exec.add(s.exec);
+            for (int b = 0; b < LatencyHistogram.BUCKETS; b++) {
+                size[b] += s.size[b];
+            }
+        }
+
+        public long getTaskCount() {
+            return tasks;
+        }
+
+        public long getLocalCount() {
+            return local;
+        }
+
+        public long getStolenCount() {
+            return stolen;
+        }
+
+        /**
+         * 由非worker线程创建,worker执行的任务数,即外部提交的根任务.
+         */
+        public long getSubmittedCount() {
+            return submitted;
+        }
+
+        public long getExternalCount() {
+            return external;
+        }
+
+        /**
+         * 被其他worker偷走执行的任务比例.
+         */
+        public double stealRatio() {
+            long n = local + stolen + submitted + external;
+            return n == 0L ? 0.0 : (double) stolen / n;
+        }
+
+        /**
+         * 由非worker线程帮助执行的任务比例.
+         */
+        public double externalRatio() {
+            long n = local + stolen + submitted + external;
+            return n == 0L ? 0.0 : (double) external / n;
+        }
+
+        /**
+         * 采样任务的排队耗时,从创建到开始执行.
+         */
+        public LatencyHistogram getWaitHistogram() {
+            return wait;
+        }
+
+        /**
+         * 采样任务的执行耗时,包含在compute中直接调用的子任务.
+         */
+        public LatencyHistogram getExecHistogram() {
+            return exec;
+        }
+
+        /**
+         * 任务规模的分布,分桶同LatencyHistogram.
+         */
+        public long[] getSizeHistogram() {
+            return size.clone();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("Report{tasks=").append(tasks)
+                    .append(", local=").append(local).append(", stolen=").append(stolen)
+                    .append(", submitted=").append(submitted).append(", external=").append(external)
+                    .append(String.format(", stealRatio=%.3f, externalRatio=%.3f", stealRatio(), externalRatio()))
+                    .append(", sampled=").append(sampled)
+                    .append(", wait=").append(wait).append(", exec=").append(exec).append(", size={");
+            boolean first = true;
+            for (int b = 0; b < LatencyHistogram.BUCKETS; b++) {
+                if (size[b] == 0L)
+                    continue;
+                if (!first)
+                    sb.append(", ");
+                first = false;
+                sb.append("<=").append(LatencyHistogram.upperBound(b)).append(':').append(size[b]);
+            }
+            return sb.append("}}").toString();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.juc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程探针与线程内的xorshift随机数,用于选择条带(StripedCounter,BoundedCounter,AdmissionController的条带Semaphore)
+ * 和选择偷取的对象.
+ * <p>
+ * ForkJoinTest.testThreadLocalRandom反射Thread.threadLocalRandomProbe读取ThreadLocalRandom的探针,
+ * 反射本身慢,且jdk9以后的模块系统默认禁止setAccessible访问java.lang中的私有字段.
+ * 本类的状态放在自己的ThreadLocal中,不依赖Thread的内部字段:
+ * <p>
+ * 1.探针{@link #get()}在线程第一次使用时分配,之后不变,除非调用{@link #advance()}.
+ * 与Striped64的用法一致:CAS失败说明与其他线程撞在同一条带上,advance换一个探针值.
+ * 2.随机数{@link #nextInt()}有独立的状态,不改变探针.
+ * 3.两者的初值由黄金分割数递增的种子经过混合得到,相邻创建的线程初值也相差很大,且不为0(xorshift的不动点).
+ * <p>
+ * xorshift按ForkJoinTest中分析的形式x^=x<<a;x^=x>>>b;x^=x<<c迭代,这里用13/17/5.
+ * ForkJoinPool用到的三组参数13/17/5,1/3/10,6/21/7都经{@link #isFullPeriod}检验,周期为2^32-1,
+ * 即遍历除0外的所有int值.随机数只用于调度决策,不适合统计用途.
+ */
+public final class ThreadProbe {
+
+    private static final int SEED_INCREMENT = 0x9E3779B9;
+
+    /**
+     * 2^32-1的素因子,用于检验周期.
+     */
+    private static final long[] PERIOD_FACTORS = {3L, 5L, 17L, 257L, 65537L};
+
+    private static final AtomicInteger SEEDER = new AtomicInteger(mix((int) System.nanoTime()));
+
+    /**
+     * [0]为探针,[1]为随机数状态.
+     */
+    private static final ThreadLocal<int[]> STATE = ThreadLocal.withInitial(() -> {
+        int seed = SEEDER.getAndAdd(SEED_INCREMENT);
+        return new int[]{nonZero(mix(seed)), nonZero(mix(seed + SEED_INCREMENT))};
+    });
+
+    private ThreadProbe() {
+    }
+
+    /**
+     * 当前线程的探针值,不为0.
+     */
+    public static int get() {
+        return STATE.get()[0];
+    }
+
+    /**
+     * 更换当前线程的探针值并返回新值.
+     */
+    public static int advance() {
+        int[] s = STATE.get();
+        return s[0] = xorshift(s[0]);
+    }
+
+    /**
+     * 当前线程的下一个随机数,不为0.
+     */
+    public static int nextInt() {
+        int[] s = STATE.get();
+        return s[1] = xorshift(s[1]);
+    }
+
+    /**
+     * [0,bound)内的随机数,如随机选择偷取的对象.用乘法代替取模,bound不必是2的幂.
+     */
+    public static int nextInt(int bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException();
+        return (int) (((nextInt() & 0xFFFFFFFFL) * bound) >>> 32);
+    }
+
+    public static int xorshift(int x) {
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        return x;
+    }
+
+    static int xorshift(int x, int a, int b, int c) {
+        x ^= x << a;
+        x ^= x >>> b;
+        x ^= x << c;
+        return x;
+    }
+
+    /**
+     * murmur3的32位混合函数.
+     */
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int nonZero(int h) {
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * 检验x^=x<<a;x^=x>>>b;x^=x<<c的周期是否为2^32-1.
+     * 该变换在GF(2)上是线性的,记为32x32的矩阵T.周期为2^32-1当且仅当T^(2^32-1)=I,
+     * 且对2^32-1的每个素因子p,T^((2^32-1)/p)!=I.用平方求幂,不需要真的迭代40亿次.
+     */
+    static boolean isFullPeriod(int a, int b, int c) {
+        int[] t = new int[32];
+        for (int i = 0; i < 32; i++) {
+            t[i] = xorshift(1 << i, a, b, c);
+        }
+        long period = 0xFFFFFFFFL;
+        if (!isIdentity(power(t, period)))
+            return false;
+        for (long p : PERIOD_FACTORS) {
+            if (isIdentity(power(t, period / p)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * 矩阵按列存储,第i列是第i位为1的向量的像.
+     */
+    private static int apply(int[] m, int v) {
+        int r = 0;
+        for (int i = 0; v != 0; i++, v >>>= 1) {
+            if ((v & 1) != 0)
+                r ^= m[i];
+        }
+        return r;
+    }
+
+    private static int[] multiply(int[] a, int[] b) {
+        int[] r = new int[32];
+        for (int i = 0; i < 32; i++) {
+            r[i] = apply(a, b[i]);
+        }
+        return r;
+    }
+
+    private static int[] power(int[] m, long e) {
+        int[] r = new int[32];
+        for (int i = 0; i < 32; i++) {
+            r[i] = 1 << i;
+        }
+        for (int[] base = m; e != 0L; e >>>= 1) {
+            if ((e & 1L) != 0L)
+                r = multiply(r, base);
+            base = multiply(base, base);
+        }
+        return r;
+    }
+
+    private static boolean isIdentity(int[] m) {
+        for (int i = 0; i < 32; i++) {
+            if (m[i] != 1 << i)
+                return false;
+        }
+        return true;
+    }
+}
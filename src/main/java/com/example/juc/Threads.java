@@ -0,0 +1,121 @@
+package com.example.juc;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 阻塞型任务(SemaphoreTest的vpp客户端,CyclicBarrierTest的vsd初始化,PhaserTest的线程池)的线程来源,
+ * 可在平台线程和虚拟线程之间切换,调用方的Semaphore,CyclicBarrier,Phaser用法不变.
+ * <p>
+ * 通过系统属性juc.threads=virtual选择虚拟线程.虚拟线程的实现{@code VirtualThreadSupport}只在jdk21以上
+ * 的java21 profile中编译,运行在更低版本或未编译该类时回退到平台线程,{@link #mode()}返回实际使用的模式.
+ * 虚拟线程阻塞在I/O,sleep,j.u.c的锁和同步器上时会让出载体线程(载体是一个ForkJoinPool),
+ * 但在synchronized块中阻塞会钉住载体,热点路径上应使用ReentrantLock.
+ */
+public final class Threads {
+
+    public static final String MODE_PROPERTY = "juc.threads";
+
+    public enum Mode {
+        PLATFORM, VIRTUAL
+    }
+
+    private static final Support SUPPORT = load();
+    private static final ThreadFactory THREAD_FACTORY = SUPPORT.factory("thread");
+
+    private Threads() {
+    }
+
+    private static Support load() {
+        if (!"virtual".equalsIgnoreCase(System.getProperty(MODE_PROPERTY)))
+            return new PlatformSupport();
+        Support s = virtualSupport();
+        return s != null ? s : new PlatformSupport();
+    }
+
+    private static Support virtualSupport() {
+        try {
+            return (Support) Class.forName("com.example.juc.VirtualThreadSupport").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            //未编译或运行在jdk21以下.
+            return null;
+        }
+    }
+
+    public static Mode mode() {
+        return SUPPORT.mode();
+    }
+
+    /**
+     * 当前运行环境能否使用虚拟线程,与juc.threads的设置无关.
+     */
+    public static boolean isVirtualAvailable() {
+        return SUPPORT.mode() == Mode.VIRTUAL || virtualSupport() != null;
+    }
+
+    /**
+     * 以prefix-序号命名线程的工厂.
+     */
+    public static ThreadFactory factory(String prefix) {
+        return SUPPORT.factory(prefix);
+    }
+
+    /**
+     * 创建未启动的线程,替代new Thread(task).线程共用一个工厂,依次命名为thread-0,thread-1...
+     */
+    public static Thread newThread(Runnable task) {
+        return THREAD_FACTORY.newThread(task);
+    }
+
+    /**
+     * 替代Executors.newFixedThreadPool.虚拟线程模式下每个任务一个线程,不限制并发数,
+     * 需要限制并发时由调用方使用Semaphore等同步器.
+     */
+    public static ExecutorService newPool(int nThreads) {
+        return SUPPORT.newPool(nThreads);
+    }
+
+    /**
+     * 每个任务一个线程的执行器.平台线程模式下是可复用空闲线程的cached线程池.
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        return SUPPORT.newPerTaskExecutor();
+    }
+
+    abstract static class Support {
+        abstract Mode mode();
+
+        abstract ThreadFactory factory(String prefix);
+
+        ExecutorService newPool(int nThreads) {
+            return newPerTaskExecutor();
+        }
+
+        abstract ExecutorService newPerTaskExecutor();
+    }
+
+    static final class PlatformSupport extends Support {
+        @Override
+        Mode mode() {
+            return Mode.PLATFORM;
+        }
+
+        @Override
+        ThreadFactory factory(String prefix) {
+            AtomicInteger count = new AtomicInteger();
+            return r -> new Thread(r, prefix + "-" + count.getAndIncrement());
+        }
+
+        @Override
+        ExecutorService newPool(int nThreads) {
+            return Executors.newFixedThreadPool(nThreads, factory("pool"));
+        }
+
+        @Override
+        ExecutorService newPerTaskExecutor() {
+            return Executors.newCachedThreadPool(factory("task"));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.juc;
+
+import java.util.concurrent.CountedCompleter;
+
+/**
+ * 被{@link TaskTracer}跟踪的CountedCompleter,子类实现{@link #computeTraced()}代替compute.
+ * 子任务不指定tracer时沿用completer的tracer.执行耗时只包含compute本身,不包含onCompletion.
+ */
+public abstract class TracedCountedCompleter<T> extends CountedCompleter<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    final transient TaskTracer tracer;
+    final transient Thread owner;
+    final long size;
+    final long created;
+
+    protected TracedCountedCompleter(TaskTracer tracer, long size) {
+        this(null, 0, tracer, size);
+    }
+
+    protected TracedCountedCompleter(TracedCountedCompleter<?> completer, long size) {
+        this(completer, 0, completer.tracer, size);
+    }
+
+    protected TracedCountedCompleter(CountedCompleter<?> completer, int initialPendingCount, TaskTracer tracer,
+                                     long size) {
+        super(completer, initialPendingCount);
+        this.tracer = tracer;
+        this.owner = Thread.currentThread();
+        this.size = size;
+        this.created = tracer.onCreate();
+    }
+
+    protected abstract void computeTraced();
+
+    @Override
+    public final void compute() {
+        TaskTracer.ThreadStats s = tracer.onStart(owner, size);
+        long start = created == 0L ? 0L : System.nanoTime();
+        try {
+            computeTraced();
+        } finally {
+            s.onEnd(created, start);
+        }
+    }
+}
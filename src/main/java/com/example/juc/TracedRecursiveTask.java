@@ -0,0 +1,40 @@
+package com.example.juc;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 被{@link TaskTracer}跟踪的RecursiveTask,子类实现{@link #computeTraced()}代替compute.
+ * 通常在创建后立即fork,因此以构造时间作为入队时间.
+ */
+public abstract class TracedRecursiveTask<V> extends RecursiveTask<V> {
+
+    private static final long serialVersionUID = 1L;
+
+    final transient TaskTracer tracer;
+    final transient Thread owner;
+    final long size;
+    final long created;
+
+    /**
+     * @param size 任务规模,如负责的元素个数,用于规模分布.
+     */
+    protected TracedRecursiveTask(TaskTracer tracer, long size) {
+        this.tracer = tracer;
+        this.owner = Thread.currentThread();
+        this.size = size;
+        this.created = tracer.onCreate();
+    }
+
+    protected abstract V computeTraced();
+
+    @Override
+    protected final V compute() {
+        TaskTracer.ThreadStats s = tracer.onStart(owner, size);
+        long start = created == 0L ? 0L : System.nanoTime();
+        try {
+            return computeTraced();
+        } finally {
+            s.onEnd(created, start);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.juc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 节点复用的无锁栈(Treiber栈),容量固定,节点来自{@link NodeArena}.
+ * <p>
+ * CASTest演示了AtomicInteger的ABA问题:节点复用后,pop读到head=A,next=B之后被挂起,
+ * 其他线程弹出A,B,又把A压回,此时head仍是A,不带印戳的CAS会把已释放的B设为栈顶.
+ * 这里head是带印戳的下标,A被压回时印戳已经变化,挂起线程的CAS失败后重读.
+ */
+public class TreiberStack<E> {
+
+    private final NodeArena arena;
+    private final AtomicLong head = new AtomicLong(NodeArena.pack(NodeArena.NIL, 0));
+
+    public TreiberStack(int capacity) {
+        this.arena = new NodeArena(capacity);
+    }
+
+    public int capacity() {
+        return arena.capacity();
+    }
+
+    /**
+     * 压栈,节点用完时返回false.
+     */
+    public boolean push(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        int node = arena.allocate();
+        if (node == NodeArena.NIL)
+            return false;
+        arena.items[node] = e;
+        for (; ; ) {
+            long h = head.get();
+            arena.setNext(node, NodeArena.index(h));
+            if (head.compareAndSet(h, NodeArena.advance(h, node)))
+                return true;
+        }
+    }
+
+    /**
+     * 弹栈,栈空时返回null.
+     */
+    @SuppressWarnings("unchecked")
+    public E pop() {
+        for (; ; ) {
+            long h = head.get();
+            int i = NodeArena.index(h);
+            if (i == NodeArena.NIL)
+                return null;
+            //节点可能已被其他线程弹出并复用,读到的后继由下面的CAS校验.
+            long n = arena.next.get(i);
+            if (head.compareAndSet(h, NodeArena.advance(h, NodeArena.index(n)))) {
+                E e = (E) arena.items[i];
+                arena.release(i);
+                return e;
+            }
+        }
+    }
+
+    /**
+     * 栈顶元素,栈空时返回null.
+     */
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        for (; ; ) {
+            long h = head.get();
+            int i = NodeArena.index(h);
+            if (i == NodeArena.NIL)
+                return null;
+            E e = (E) arena.items[i];
+            if (head.get() == h && e != null)
+                return e;
+        }
+    }
+
+    public boolean isEmpty() {
+        return NodeArena.index(head.get()) == NodeArena.NIL;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.juc;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程的实现,只在java21 profile中编译,由{@link Threads}按名字加载.
+ */
+final class VirtualThreadSupport extends Threads.Support {
+
+    @Override
+    Threads.Mode mode() {
+        return Threads.Mode.VIRTUAL;
+    }
+
+    @Override
+    ThreadFactory factory(String prefix) {
+        return Thread.ofVirtual().name(prefix + "-", 0).factory();
+    }
+
+    @Override
+    ExecutorService newPerTaskExecutor() {
+        return Executors.newThreadPerTaskExecutor(factory("task"));
+    }
+}
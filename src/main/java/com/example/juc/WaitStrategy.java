@@ -0,0 +1,74 @@
+package com.example.juc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 无锁结构在条件不满足(如缓存满/空)时的等待策略.
+ * 调用方在一次等待过程中从0开始递增counter并反复调用idle,条件满足后counter归零.
+ * 策略本身不持有状态,可被多个线程共享.
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+
+    /**
+     * 等待一轮.
+     *
+     * @param counter 本次等待中已经调用idle的次数.
+     */
+    void idle(int counter);
+
+    /**
+     * 纯自旋,延迟最低,但会一直占用一个核.
+     */
+    static WaitStrategy spin() {
+        return counter -> {
+        };
+    }
+
+    /**
+     * 每轮让出cpu,适合线程数不超过核数的场景.
+     */
+    static WaitStrategy yielding() {
+        return counter -> Thread.yield();
+    }
+
+    /**
+     * 先自旋再让出,最后park,park时间从1微秒开始倍增到maxParkNanos.
+     * 等待方不依赖对端unpark,靠超时醒来重新检查条件,因此对端不需要额外的通知开销.
+     */
+    static WaitStrategy parking(long maxParkNanos) {
+        return new ParkingWaitStrategy(100, 100, maxParkNanos);
+    }
+
+    static WaitStrategy parking() {
+        return parking(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    final class ParkingWaitStrategy implements WaitStrategy {
+
+        private static final long MIN_PARK_NANOS = 1000L;
+
+        private final int spinTries;
+        private final int yieldTries;
+        private final long maxParkNanos;
+
+        ParkingWaitStrategy(int spinTries, int yieldTries, long maxParkNanos) {
+            this.spinTries = spinTries;
+            this.yieldTries = spinTries + yieldTries;
+            this.maxParkNanos = Math.max(MIN_PARK_NANOS, maxParkNanos);
+        }
+
+        @Override
+        public void idle(int counter) {
+            if (counter < spinTries)
+                return;
+            if (counter < yieldTries) {
+                Thread.yield();
+                return;
+            }
+            int shift = Math.min(counter - yieldTries, 20);
+            LockSupport.parkNanos(this, Math.min(maxParkNanos, MIN_PARK_NANOS << shift));
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 自适应拆分测试.
+ */
+public class AdaptiveRecursiveTaskTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveRecursiveTaskTest.class);
+
+    /**
+     * 区间[lo,hi)上的任务,叶子计数.
+     */
+    private abstract static class RangeTask<R> extends AdaptiveRecursiveTask<R> {
+        final AtomicInteger leaves;
+        int lo, hi;
+
+        RangeTask(AtomicInteger leaves, int lo, int hi) {
+            this.leaves = leaves;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected long size() {
+            return hi - lo;
+        }
+
+        @Override
+        protected AdaptiveRecursiveTask<R> trySplit() {
+            if (hi - lo < 2)
+                return null;
+            int mid = (lo + hi) >>> 1;
+            RangeTask<R> right = create(mid, hi);
+            hi = mid;
+            return right;
+        }
+
+        abstract RangeTask<R> create(int lo, int hi);
+
+        @Override
+        protected R computeDirectly() {
+            leaves.incrementAndGet();
+            return leaf();
+        }
+
+        abstract R leaf();
+    }
+
+    private static class Collect extends RangeTask<List<Integer>> {
+        Collect(AtomicInteger leaves, int lo, int hi) {
+            super(leaves, lo, hi);
+        }
+
+        @Override
+        RangeTask<List<Integer>> create(int lo, int hi) {
+            return new Collect(leaves, lo, hi);
+        }
+
+        @Override
+        List<Integer> leaf() {
+            List<Integer> list = new ArrayList<>(hi - lo);
+            for (int i = lo; i < hi; i++) {
+                list.add(i);
+            }
+            return list;
+        }
+
+        @Override
+        protected List<Integer> combine(List<Integer> left, List<Integer> right) {
+            left.addAll(right);
+            return left;
+        }
+    }
+
+    /**
+     * 合并保持顺序.
+     */
+    @Test
+    public void testOrder() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        AtomicInteger leaves = new AtomicInteger();
+        List<Integer> result = pool.invoke(new Collect(leaves, 0, 100000));
+        LOGGER.info("叶子数:{}", leaves.get());
+        Assert.assertEquals(100000, result.size());
+        for (int i = 0; i < result.size(); i++) {
+            Assert.assertEquals(i, (int) result.get(i));
+        }
+        pool.shutdown();
+    }
+
+    private static class CountPrimes extends RangeTask<Integer> {
+        CountPrimes(AtomicInteger leaves, int lo, int hi) {
+            super(leaves, lo, hi);
+        }
+
+        @Override
+        RangeTask<Integer> create(int lo, int hi) {
+            return new CountPrimes(leaves, lo, hi);
+        }
+
+        @Override
+        Integer leaf() {
+            int n = 0;
+            for (int i = lo; i < hi; i++) {
+                if (isPrime(i))
+                    n++;
+            }
+            return n;
+        }
+
+        @Override
+        protected Integer combine(Integer left, Integer right) {
+            return left + right;
+        }
+
+        static boolean isPrime(int n) {
+            if (n < 2)
+                return false;
+            for (int d = 2; d * d <= n; d++) {
+                if (n % d == 0)
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 叶子耗时不均匀(越往后越慢)的计算,结果与顺序计算一致.
+     */
+    @Test
+    public void testCountPrimes() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        AtomicInteger leaves = new AtomicInteger();
+        long start = System.nanoTime();
+        int count = pool.invoke(new CountPrimes(leaves, 0, 1000000));
+        LOGGER.info("素数个数:{},叶子数:{},耗时:{}ms", count, leaves.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        Assert.assertEquals(78498, count);
+        Assert.assertTrue(leaves.get() >= 1);
+        pool.shutdown();
+    }
+
+    /**
+     * 包含最后一个元素的叶子抛出异常.
+     */
+    private static class FailLast extends CountPrimes {
+        final int end;
+
+        FailLast(AtomicInteger leaves, int lo, int hi, int end) {
+            super(leaves, lo, hi);
+            this.end = end;
+        }
+
+        @Override
+        RangeTask<Integer> create(int lo, int hi) {
+            return new FailLast(leaves, lo, hi, end);
+        }
+
+        @Override
+        Integer leaf() {
+            if (hi == end)
+                throw new IllegalStateException("最后一段出错");
+            return super.leaf();
+        }
+    }
+
+    /**
+     * 叶子的异常原样抛出,不需要处理ExecutionException.
+     */
+    @Test
+    public void testException() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            pool.invoke(new FailLast(new AtomicInteger(), 0, 100000, 100000));
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            LOGGER.info("异常:{}", e.getMessage());
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 准入控制测试,场景同SemaphoreTest:vpp同时只能服务10个客户端.
+ */
+public class AdmissionControllerTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdmissionControllerTest.class);
+
+    /**
+     * 50个客户端争抢10个许可,任一时刻服务中的客户端不超过10个.
+     */
+    @Test
+    public void testVpp() throws InterruptedException {
+        AdmissionController controller = new AdmissionController(10);
+        AtomicInteger serving = new AtomicInteger();
+        AtomicInteger maxServing = new AtomicInteger();
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Thread client = new Thread(() -> {
+                for (int j = 0; j < 20; j++) {
+                    try {
+                        controller.acquire();
+                        try {
+                            int s = serving.incrementAndGet();
+                            maxServing.accumulateAndGet(s, Math::max);
+                            TimeUnit.MILLISECONDS.sleep(1);
+                        } finally {
+                            serving.decrementAndGet();
+                            controller.release();
+                        }
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                }
+            });
+            clients.add(client);
+            client.start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        LOGGER.info("最大同时服务数:{},等待耗时分布:{}", maxServing.get(), controller.getWaitHistogram());
+        Assert.assertTrue(maxServing.get() <= 10);
+        Assert.assertEquals(1000, controller.getWaitHistogram().count());
+        //许可全部归还.
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(controller.tryAcquire());
+        }
+        Assert.assertFalse(controller.tryAcquire());
+    }
+
+    /**
+     * 只有1个许可时大量线程反复获取释放:等待者登记与release交错时许可不会留在条带里无人领取,
+     * 所有acquire都能返回.
+     */
+    @Test
+    public void testSinglePermitStress() throws InterruptedException {
+        AdmissionController controller = new AdmissionController(1);
+        AtomicInteger serving = new AtomicInteger();
+        AtomicInteger maxServing = new AtomicInteger();
+        int threads = 16, rounds = 20000;
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread client = new Thread(() -> {
+                for (int j = 0; j < rounds; j++) {
+                    try {
+                        controller.acquire();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    maxServing.accumulateAndGet(serving.incrementAndGet(), Math::max);
+                    serving.decrementAndGet();
+                    controller.release();
+                }
+            });
+            clients.add(client);
+            client.start();
+        }
+        for (Thread client : clients) {
+            client.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        boolean stuck = false;
+        for (Thread client : clients) {
+            stuck |= client.isAlive();
+            client.interrupt();
+        }
+        LOGGER.info("等待耗时分布:{}", controller.getWaitHistogram());
+        Assert.assertFalse("有acquire永远不返回", stuck);
+        Assert.assertEquals(1, maxServing.get());
+        Assert.assertEquals((long) threads * rounds, controller.getWaitHistogram().count());
+        Assert.assertTrue(controller.tryAcquire());
+        Assert.assertFalse(controller.tryAcquire());
+    }
+
+    /**
+     * 排队人数达到上限后,限时获取直接被拒绝.
+     */
+    @Test
+    public void testShedding() throws InterruptedException {
+        AdmissionController controller = new AdmissionController(1, 1, 1, 1, 0L, TimeUnit.NANOSECONDS);
+        Assert.assertTrue(controller.tryAcquire(0, TimeUnit.SECONDS));
+        Thread waiter = new Thread(() -> {
+            try {
+                controller.tryAcquire(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                LOGGER.info("等待者被中断");
+            }
+        });
+        waiter.start();
+        while (controller.getQueueLength() == 0) {
+            Thread.yield();
+        }
+        Assert.assertFalse(controller.tryAcquire(1, TimeUnit.SECONDS));
+        Assert.assertEquals(1, controller.getShedCount());
+        //交接给等待者.
+        controller.release();
+        waiter.join();
+        Assert.assertFalse(controller.tryAcquire());
+    }
+
+    /**
+     * 慢样本收缩许可数,正常样本缓慢增长.
+     */
+    @Test
+    public void testAdaptiveLimit() throws InterruptedException {
+        AdmissionController controller = new AdmissionController(10, 2, 20, 100, 1, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(controller.tryAcquire());
+        controller.release(10, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(9, controller.getLimit());
+        for (int i = 0; i < 9; i++) {
+            Assert.assertTrue(controller.tryAcquire());
+            controller.release(100, TimeUnit.MICROSECONDS);
+        }
+        Assert.assertEquals(10, controller.getLimit());
+        //许可数与limit一致.
+        int acquired = 0;
+        while (controller.tryAcquire()) {
+            acquired++;
+        }
+        Assert.assertEquals(10, acquired);
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步日志测试.
+ */
+public class AsyncLogTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncLogTest.class);
+
+    /**
+     * 4个线程各写10000条,阻塞策略下一条不丢,关闭后全部落盘.
+     */
+    @Test
+    public void testBlock() throws IOException, InterruptedException {
+        File file = File.createTempFile("async-log", ".log");
+        file.deleteOnExit();
+        AsyncLog log = new AsyncLog(Files.newOutputStream(file.toPath()), AsyncLog.Level.INFO, 256,
+                AsyncLog.Overflow.BLOCK);
+        AsyncLogger logger = log.getLogger(AsyncLogTest.class);
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            int number = i;
+            Thread t = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    logger.info("线程{}第{}条", number, j);
+                    logger.debug("不输出{}", j);
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        long logged = System.nanoTime() - start;
+        log.close();
+        LOGGER.info("打日志耗时:{}ms,写出耗时:{}ms", TimeUnit.NANOSECONDS.toMillis(logged),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals(40000, lines.size());
+        Assert.assertEquals(40000, log.getWrittenCount());
+        Assert.assertEquals(0, log.getDroppedCount());
+        Assert.assertTrue(lines.get(0), lines.get(0).matches(
+                "\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2},\\d{3} INFO \\[com.example.juc.AsyncLogTest] - 线程\\d第0条"));
+    }
+
+    /**
+     * 输出很慢时丢弃策略不阻塞调用者,写出数加丢弃数等于总数.
+     */
+    @Test
+    public void testDrop() throws IOException {
+        OutputStream slow = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        AsyncLog log = new AsyncLog(slow, AsyncLog.Level.INFO, 16, AsyncLog.Overflow.DROP_BELOW_WARN);
+        AsyncLogger logger = log.getLogger("slow");
+        for (int i = 0; i < 10000; i++) {
+            logger.info("第{}条", i);
+        }
+        logger.warn("警告不丢");
+        log.close();
+        LOGGER.info("写出:{},丢弃:{}", log.getWrittenCount(), log.getDroppedCount());
+        Assert.assertTrue(log.getDroppedCount() > 0);
+        Assert.assertEquals(10001, log.getWrittenCount() + log.getDroppedCount());
+    }
+
+    /**
+     * BLOCK策略的线程等待时关闭:已入队的事件不能计为丢弃,也不能被回收复用,
+     * 写出的每一行都完整且不重复,写出数加丢弃数不超过总数.
+     */
+    @Test
+    public void testCloseWhileBlocked() throws IOException, InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(b, off, len);
+            }
+        };
+        AsyncLog log = new AsyncLog(out, AsyncLog.Level.INFO, 4, AsyncLog.Overflow.BLOCK);
+        AsyncLogger logger = log.getLogger("close");
+        int total = 5000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < total; i++) {
+                logger.info("第{}条", i);
+            }
+        });
+        producer.start();
+        TimeUnit.MILLISECONDS.sleep(50);
+        log.close();
+        producer.join();
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        LOGGER.info("写出:{},丢弃:{}", log.getWrittenCount(), log.getDroppedCount());
+        Assert.assertEquals(log.getWrittenCount(), lines.length);
+        Assert.assertEquals(total, log.getWrittenCount() + log.getDroppedCount());
+        Set<String> seen = new HashSet<>();
+        for (String line : lines) {
+            Assert.assertTrue(line, line.matches(".* INFO \\[close] - 第\\d+条"));
+            Assert.assertTrue(line, seen.add(line.substring(line.indexOf(" - "))));
+        }
+    }
+
+    /**
+     * 关闭与打日志并发:每条日志要么写出,要么计为丢弃,不会入队后无人处理.重复多次以覆盖不同的交错.
+     */
+    @Test
+    public void testCloseRace() throws IOException, InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            AsyncLog log = new AsyncLog(new ByteArrayOutputStream(), AsyncLog.Level.INFO, 64, AsyncLog.Overflow.DROP);
+            AsyncLogger logger = log.getLogger("race");
+            int perThread = 2000;
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Thread t = new Thread(() -> {
+                    for (int j = 0; j < perThread; j++) {
+                        logger.info("第{}条", j);
+                    }
+                });
+                threads.add(t);
+                t.start();
+            }
+            log.close();
+            for (Thread t : threads) {
+                t.join();
+            }
+            Assert.assertEquals(4 * perThread, log.getWrittenCount() + log.getDroppedCount());
+        }
+    }
+
+    /**
+     * 多参数,转义和异常堆栈.
+     */
+    @Test
+    public void testFormat() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncLog log = new AsyncLog(out, AsyncLog.Level.DEBUG, 8, AsyncLog.Overflow.BLOCK);
+        AsyncLogger logger = log.getLogger("format");
+        logger.debug("{}+{}={}", 1, 2, 3);
+        logger.info("原样输出\\{}", "x");
+        logger.error("出错了:{}", "原因", new IllegalStateException("异常"));
+        log.close();
+        String text = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        LOGGER.info("输出:\n{}", text);
+        Assert.assertTrue(text.contains("DEBUG [format] - 1+2=3\n"));
+        Assert.assertTrue(text.contains("INFO [format] - 原样输出{}\n"));
+        Assert.assertTrue(text.contains("ERROR [format] - 出错了:原因\njava.lang.IllegalStateException: 异常"));
+    }
+
+    /**
+     * 可变参数的重载收到显式或转发的数组,一个或两个元素时也要按数组中的值格式化,null数组不抛异常.
+     */
+    @Test
+    public void testArrayArgs() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncLog log = new AsyncLog(out, AsyncLog.Level.DEBUG, 8, AsyncLog.Overflow.BLOCK);
+        AsyncLogger logger = log.getLogger("array");
+        logger.info("{} {}", new Object[]{"a", "b"});
+        logger.warn("单个{}", new Object[]{"c"});
+        logger.error("空数组", new Object[0]);
+        logger.debug("null数组{}", (Object[]) null);
+        log.close();
+        String text = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        LOGGER.info("输出:\n{}", text);
+        Assert.assertTrue(text.contains("INFO [array] - a b\n"));
+        Assert.assertTrue(text.contains("WARN [array] - 单个c\n"));
+        Assert.assertTrue(text.contains("ERROR [array] - 空数组\n"));
+        Assert.assertTrue(text.contains("DEBUG [array] - null数组{}\n"));
+        Assert.assertEquals(4, log.getWrittenCount());
+    }
+}
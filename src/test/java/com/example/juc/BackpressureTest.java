@@ -0,0 +1,212 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 背压与削峰策略测试.
+ */
+public class BackpressureTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackpressureTest.class);
+
+    private static Runnable await(CountDownLatch latch) {
+        return () -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    /**
+     * 队列满时提交线程最多等待给定时间,超时被拒绝,不会自己执行任务.
+     */
+    @Test
+    public void testBoundedWait() throws Exception {
+        List<Backpressure.Reason> reasons = new CopyOnWriteArrayList<>();
+        Backpressure policy = Backpressure.boundedWait(50, TimeUnit.MILLISECONDS, (task, reason) -> reasons.add(reason));
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1), policy);
+        CountDownLatch release = new CountDownLatch(1);
+        pool.execute(await(release));
+        pool.execute(() -> {
+        });
+        long start = System.nanoTime();
+        try {
+            pool.execute(() -> Assert.fail("不应在提交线程执行"));
+            Assert.fail();
+        } catch (RejectedExecutionException e) {
+            LOGGER.info(e.getMessage());
+        }
+        long waited = System.nanoTime() - start;
+        Assert.assertTrue(waited >= TimeUnit.MILLISECONDS.toNanos(50) && waited < TimeUnit.SECONDS.toNanos(2));
+        Assert.assertEquals(1, policy.getShedCount(Backpressure.Reason.TIMEOUT));
+        Assert.assertEquals(Backpressure.Reason.TIMEOUT, reasons.get(0));
+        //等待期间队列腾出位置则入队.
+        AtomicInteger done = new AtomicInteger();
+        new Thread(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(10);
+            } catch (InterruptedException ignored) {
+            }
+            release.countDown();
+        }).start();
+        Backpressure waitLonger = Backpressure.boundedWait(5, TimeUnit.SECONDS, null);
+        pool.setRejectedExecutionHandler(waitLonger);
+        pool.execute(done::incrementAndGet);
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, done.get());
+        LOGGER.info("{}", policy);
+    }
+
+    /**
+     * 队列满时挤出优先级最低的任务,被挤出的任务被cancel;新任务优先级不高于队列中任何任务时被拒绝.
+     */
+    @Test
+    public void testPriorityShedding() throws Exception {
+        List<Runnable> shed = new CopyOnWriteArrayList<>();
+        Backpressure policy = Backpressure.shedLowestPriority((task, reason) -> shed.add(task));
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(3), policy);
+        CountDownLatch release = new CountDownLatch(1);
+        pool.execute(await(release));
+        Backpressure.PriorityTask<Integer> low = new Backpressure.PriorityTask<>(1, () -> 1);
+        Backpressure.PriorityTask<Integer> mid = new Backpressure.PriorityTask<>(5, () -> 5);
+        Backpressure.PriorityTask<Integer> mid2 = new Backpressure.PriorityTask<>(5, () -> 5);
+        Backpressure.PriorityTask<Integer> high = new Backpressure.PriorityTask<>(9, () -> 9);
+        pool.execute(mid);
+        pool.execute(low);
+        pool.execute(mid2);
+        pool.execute(high);
+        Assert.assertEquals(1, shed.size());
+        Assert.assertSame(low, shed.get(0));
+        try {
+            low.get();
+            Assert.fail();
+        } catch (CancellationException e) {
+            LOGGER.info("低优先级任务被挤出");
+        }
+        try {
+            pool.execute(new Backpressure.PriorityTask<>(5, () -> 5));
+            Assert.fail();
+        } catch (RejectedExecutionException e) {
+            LOGGER.info(e.getMessage());
+        }
+        release.countDown();
+        Assert.assertEquals(9, (int) high.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(5, (int) mid.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(5, (int) mid2.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, policy.getShedCount(Backpressure.Reason.PREEMPTED));
+        Assert.assertEquals(1, policy.getShedCount(Backpressure.Reason.REJECTED));
+        pool.shutdown();
+    }
+
+    /**
+     * 多个提交者同时挤占已满的队列:每次提交最多挤出一个任务,每个被接受的新任务对应一个被挤出的任务.
+     */
+    @Test
+    public void testConcurrentShedding() throws Exception {
+        ThreadLocal<int[]> preempted = ThreadLocal.withInitial(() -> new int[1]);
+        Backpressure policy = Backpressure.shedLowestPriority((task, reason) -> {
+            if (reason == Backpressure.Reason.PREEMPTED)
+                preempted.get()[0]++;
+        });
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(8), policy);
+        CountDownLatch release = new CountDownLatch(1);
+        pool.execute(await(release));
+        for (int i = 0; i < 8; i++) {
+            pool.execute(new Backpressure.PriorityTask<>(0, () -> 0));
+        }
+        int threads = 4, perThread = 200;
+        AtomicInteger accepted = new AtomicInteger(), rejected = new AtomicInteger(), maxPerCall = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1), done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 1; i <= perThread; i++) {
+                        preempted.get()[0] = 0;
+                        try {
+                            pool.execute(new Backpressure.PriorityTask<>(i, () -> 0));
+                            accepted.incrementAndGet();
+                        } catch (RejectedExecutionException e) {
+                            rejected.incrementAndGet();
+                        }
+                        maxPerCall.accumulateAndGet(preempted.get()[0], Math::max);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        LOGGER.info("接受:{},拒绝:{},挤出:{},单次提交最多挤出:{}", accepted.get(), rejected.get(),
+                policy.getShedCount(Backpressure.Reason.PREEMPTED), maxPerCall.get());
+        Assert.assertEquals(threads * perThread, accepted.get() + rejected.get());
+        Assert.assertTrue(maxPerCall.get() <= 1);
+        Assert.assertEquals(accepted.get(), policy.getShedCount(Backpressure.Reason.PREEMPTED));
+        Assert.assertEquals(8, pool.getQueue().size());
+        release.countDown();
+        pool.shutdownNow();
+    }
+
+    /**
+     * 执行变慢导致排队时间持续超过target时,CoDelQueue开始丢弃,存活任务的排队时间受到控制;
+     * 排队时间恢复后不再丢弃.
+     */
+    @Test
+    public void testCoDel() throws Exception {
+        AtomicInteger dropped = new AtomicInteger();
+        CoDelQueue queue = new CoDelQueue(1000, 5, 20, TimeUnit.MILLISECONDS,
+                (task, reason) -> dropped.incrementAndGet());
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, queue,
+                Backpressure.abort(null));
+        AtomicInteger done = new AtomicInteger();
+        int n = 200;
+        for (int i = 0; i < n; i++) {
+            pool.execute(() -> {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.incrementAndGet();
+            });
+        }
+        for (int i = 0; i < 500 && done.get() + dropped.get() < n; i++) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        LOGGER.info("执行:{},丢弃:{},排队时间:{}", done.get(), dropped.get(), queue.getSojournHistogram());
+        Assert.assertEquals(n, done.get() + dropped.get());
+        Assert.assertEquals(dropped.get(), queue.getDroppedCount());
+        Assert.assertTrue(dropped.get() > 0);
+        //不积压时不丢弃.
+        int before = dropped.get();
+        for (int i = 0; i < 10; i++) {
+            pool.submit(() -> {
+            }).get();
+        }
+        Assert.assertEquals(before, dropped.get());
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+}
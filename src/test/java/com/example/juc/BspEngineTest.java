@@ -0,0 +1,112 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BSP计算测试.与PhaserTest.testForkJoin不同,parties多于线程池并行度时依靠ManagedBlocker补偿,不会卡死.
+ */
+public class BspEngineTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BspEngineTest.class);
+
+    /**
+     * 每个超步各worker贡献step+worker,onAdvance记录每步的归约结果.
+     */
+    @Test
+    public void testSupersteps() throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        BspEngine<Long> engine = new BspEngine<>(pool, 8, 10);
+        List<Long> sums = new ArrayList<>();
+        long result = engine.run((step, worker, last) -> (long) (step + worker), 0L, Long::sum,
+                (step, reduced) -> {
+                    sums.add(reduced);
+                    return false;
+                });
+        LOGGER.info("各超步归约结果:{}", sums);
+        Assert.assertEquals(10, sums.size());
+        for (int step = 0; step < 10; step++) {
+            Assert.assertEquals(8L * step + 28, (long) sums.get(step));
+        }
+        Assert.assertEquals(8L * 9 + 28, result);
+        pool.shutdown();
+    }
+
+    /**
+     * 分层Phaser:200个party分到4个子Phaser上,线程池只有2个线程,迭代求平均值直到收敛.
+     * 每个worker每步向上一步的全局平均值靠近一半,onAdvance在变化小于阈值时终止.
+     */
+    @Test
+    public void testTieredConvergence() throws InterruptedException {
+        int parties = 200;
+        ForkJoinPool pool = new ForkJoinPool(2);
+        double[] values = new double[parties];
+        for (int i = 0; i < parties; i++) {
+            values[i] = i;
+        }
+        int[] steps = {0};
+        BspEngine<Double> engine = new BspEngine<>(pool, parties, 1000);
+        long start = System.nanoTime();
+        double sum = engine.run((step, worker, last) -> {
+            if (step > 0)
+                values[worker] = (values[worker] + last / parties) / 2;
+            return values[worker];
+        }, 0.0, Double::sum, (step, reduced) -> {
+            steps[0] = step + 1;
+            double spread = 0;
+            for (double v : values) {
+                spread = Math.max(spread, Math.abs(v - reduced / parties));
+            }
+            return spread < 1e-6;
+        });
+        LOGGER.info("{}个超步后收敛,平均值:{},耗时:{}ms", steps[0], sum / parties,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        Assert.assertEquals(99.5, sum / parties, 1e-6);
+        Assert.assertTrue(steps[0] < 1000);
+        pool.shutdown();
+    }
+
+    /**
+     * 任一worker异常,其他worker退出,run抛出该异常.
+     */
+    @Test
+    public void testException() throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        BspEngine<Integer> engine = new BspEngine<>(pool, 4, 100);
+        try {
+            engine.run((step, worker, last) -> {
+                if (step == 3 && worker == 2)
+                    throw new IllegalStateException("worker" + worker + "在超步" + step + "异常");
+                return 1;
+            }, 0, Integer::sum, (step, reduced) -> false);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            LOGGER.info("计算终止:{}", e.getMessage());
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testLeaves() {
+        Assert.assertEquals(1, distinct(BspEngine.leaves(new Phaser(), 64)));
+        Assert.assertEquals(2, distinct(BspEngine.leaves(new Phaser(), 65)));
+        Assert.assertEquals(4, distinct(BspEngine.leaves(new Phaser(), 200)));
+    }
+
+    private static int distinct(Object[] leaves) {
+        int n = 0;
+        for (int i = 0; i < leaves.length; i++) {
+            if (i == 0 || leaves[i] != leaves[i - 1])
+                n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exchanger双缓冲测试,场景同ExchangerTest:一个线程生产,另一个线程消费.
+ */
+public class BufferExchangeTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BufferExchangeTest.class);
+
+    /**
+     * 整个过程只有两个缓冲在两端之间循环.
+     */
+    @Test
+    public void testRecycle() throws InterruptedException {
+        BufferExchange<LongBatch> exchange = new BufferExchange<>(() -> new LongBatch(64), 1, TimeUnit.SECONDS);
+        Thread producer = new Thread(() -> {
+            try {
+                for (long i = 1; i <= 10000; i++) {
+                    exchange.writable().add(i);
+                }
+                exchange.close();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        });
+        producer.start();
+        Set<LongBatch> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        long sum = 0L;
+        LongBatch batch;
+        while ((batch = exchange.take()) != null) {
+            seen.add(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                sum += batch.get(i);
+            }
+        }
+        producer.join();
+        LOGGER.info("交换次数:{},使用的缓冲数:{}", exchange.getExchangeCount(), seen.size());
+        Assert.assertEquals(50005000L, sum);
+        Assert.assertEquals(2, seen.size());
+    }
+
+    /**
+     * 生产者很慢,未写满的缓冲超时后被部分刷出.
+     */
+    @Test
+    public void testPartialFlush() throws InterruptedException {
+        BufferExchange<LongBatch> exchange = new BufferExchange<>(() -> new LongBatch(64), 10, TimeUnit.MILLISECONDS);
+        Thread producer = new Thread(() -> {
+            try {
+                for (long i = 0; i < 3; i++) {
+                    exchange.writable().add(i);
+                }
+                while (!exchange.flushIfStale()) {
+                    TimeUnit.MILLISECONDS.sleep(5);
+                }
+                exchange.close();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        });
+        producer.start();
+        LongBatch batch = exchange.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull(batch);
+        Assert.assertEquals(3, batch.size());
+        Assert.assertEquals(0, exchange.take().size());
+        Assert.assertNull(exchange.take());
+        producer.join();
+        Assert.assertEquals(1, exchange.getPartialFlushCount());
+    }
+
+    /**
+     * 生产者 -> 转换器 -> 消费者:字符串在转换器中解析为long.
+     */
+    @Test
+    public void testChain() throws InterruptedException {
+        BufferExchange<ArrayBatch<String>> raw = new BufferExchange<>(() -> new ArrayBatch<>(32), 5, TimeUnit.MILLISECONDS);
+        BufferExchange<LongBatch> parsed = new BufferExchange<>(() -> new LongBatch(16), 5, TimeUnit.MILLISECONDS);
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 1; i <= 1000; i++) {
+                    raw.writable().add(String.valueOf(i));
+                }
+                raw.close();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        });
+        Thread transformer = new Thread(new ExchangeTransformer<ArrayBatch<String>, LongBatch>(raw, parsed, (in, out) -> {
+            for (int i = 0; i < in.size(); i++) {
+                out.writable().add(Long.parseLong(in.get(i)));
+            }
+        }, 1, TimeUnit.MILLISECONDS));
+        producer.start();
+        transformer.start();
+        AtomicLong sum = new AtomicLong();
+        LongBatch batch;
+        while ((batch = parsed.take()) != null) {
+            for (int i = 0; i < batch.size(); i++) {
+                sum.addAndGet(batch.get(i));
+            }
+        }
+        producer.join();
+        transformer.join();
+        LOGGER.info("第一级交换:{}次,第二级交换:{}次", raw.getExchangeCount(), parsed.getExchangeCount());
+        Assert.assertEquals(500500L, sum.get());
+    }
+}
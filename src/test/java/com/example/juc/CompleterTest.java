@@ -1,17 +1,16 @@
 package com.example.juc;
 
+import org.junit.Assert;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
 
 /**
  * 模仿ForkJoin框架的CountedCompleter和并行流，用以分析低版本java中的应对策略。
@@ -32,95 +31,223 @@ import java.util.stream.Collectors;
  * 7.子任务不再分裂，线程池中的线程不需要自行维护队列，也不存在互相偷取。
  * <p>
  * 模仿相关的反偷和分治两大策略，不模仿补偿策略。
+ * <p>
+ * 原型已完成为{@link PoolCompleter}:子任务用claim的CAS声明,调用者帮助执行未声明的子任务,
+ * 等待时park而不是自旋.线程池的拒绝策略由CallerRunsPolicy改为{@link Backpressure#boundedWait}:
+ * 被拒绝的子任务本来就留给调用者执行,不需要拒绝策略再让提交线程执行一次.
  */
 public class CompleterTest {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompleterTest.class);
+
     private ExecutorService pool = new ThreadPoolExecutor(Runtime.getRuntime().availableProcessors(),
             10, 10, TimeUnit.SECONDS,
-            new LinkedBlockingQueue<>(18), new ThreadPoolExecutor.CallerRunsPolicy());
-
-    private class Completer {
-        Completer completer;
-        AtomicInteger status = new AtomicInteger(0);//小于0代表完成，等于0代表未取，等于1代表已取走，等于2代表异常。
-        AtomicInteger count = new AtomicInteger(0);//只有root维护。
-        //存放要split的子任务列表，存放它的原因，是反偷时不需要利用线程池构造的队列进行获取，而是可以用
-        //task.claim的方式将队列声明到本线程。阻塞队列使用remove方式需要加全局锁，目测会伤性能。
-        //另外，当出现拒绝策略被触发时，很可能当前父任务已经压入队列2个任务，结果外部线程自身快速执行完另外两个
-        //任务，却要等提交到线程池中的其他任务完成的情况，因此需要一个快速的反偷机制，且反偷后是否要从线程池中
-        //移除相应的任务，待定。（如果能删除，意味着一开始就不需要tasks字段。
-        List<CompleteTask> tasks = new ArrayList<>();
-
-
-        void reduceCount() {
-            int c, s;
-            while (!count.compareAndSet((c = count.get()), c - 1) && c >= 0) ;
-            if (c == 1 && (s = status.get()) == 0) {
-                status.set(1 << 31);
-            }
-
+            new LinkedBlockingQueue<>(18), Backpressure.boundedWait(10, TimeUnit.MILLISECONDS, null));
+
+    /**
+     * 折半求和,写法同ForkJoinTest.MapRed:右半fork,左半直接compute,叶子tryComplete.
+     */
+    private static class SumTask extends PoolCompleter<Long> {
+        final int[] array;
+        final int lo, hi;
+        SumTask sibling;
+        long result;
+
+        SumTask(ExecutorService pool, int[] array) {
+            super(pool);
+            this.array = array;
+            this.lo = 0;
+            this.hi = array.length;
         }
 
-        boolean shouldSplit() {
-            return !this.tasks.stream().allMatch(CompleteTask::claimed);
+        SumTask(SumTask parent, int[] array, int lo, int hi) {
+            super(parent);
+            this.array = array;
+            this.lo = lo;
+            this.hi = hi;
         }
 
-        CompleteTask claim() {
-            for (CompleteTask t : tasks) {
-                if (t.claimed())
-                    return t;
+        @Override
+        public void compute() {
+            if (hi - lo > 1000) {
+                int mid = (lo + hi) >>> 1;
+                SumTask left = new SumTask(this, array, lo, mid);
+                SumTask right = new SumTask(this, array, mid, hi);
+                left.sibling = right;
+                right.sibling = left;
+                setPendingCount(1);
+                right.fork();
+                left.compute();
+            } else {
+                for (int i = lo; i < hi; i++) {
+                    result += array[i];
+                }
+                tryComplete();
             }
-            return null;
         }
 
-        Integer invoke() {
-
-            CompleteTask task = claim();
-            tasks.forEach(t -> {
-                if (!t.claimed())
-                    pool.submit(t);
-            });
-            //runTask,并减掉一个count.且当count到0时完成status
-            //运行任务后，再尝试反窃。
-            while (status.get() == 0) {
-                if ((task = claim()) != null) {
-                    //runTask并减掉一个count，且当count到0时完成status。
-                } else {
-                    //说明没有task了，从池中取任务？或者直接await一个闭锁？
-                }
+        @Override
+        public void onCompletion(PoolCompleter<?> caller) {
+            if (caller != this) {
+                SumTask child = (SumTask) caller;
+                result = child.result + child.sibling.result;
             }
-            //从循环中走出，要么异常，要么子任务都完成。
-            //进入异常处理逻辑。
-            return 0;
+        }
+
+        @Override
+        public Long getRawResult() {
+            return result;
         }
     }
 
     @Test
     public void testCompleter() {
-        Completer root = new Completer();
-        root.count = new AtomicInteger(4);
-
-
+        int[] array = new int[100000];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i;
+        }
+        long result = new SumTask(pool, array).invoke();
+        LOGGER.info("求和结果:{}", result);
+        Assert.assertEquals(4999950000L, result);
     }
 
-    private int running() {
-        return 0;
+    /**
+     * 线程池的线程全部被占用时,调用者自己执行全部子任务,不会空等.
+     */
+    @Test
+    public void testCallerHelps() {
+        ThreadPoolExecutor single = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        CountDownLatch blocker = new CountDownLatch(1);
+        single.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        });
+        AtomicInteger byCaller = new AtomicInteger();
+        Thread caller = Thread.currentThread();
+        PoolCompleter<Void> root = new PoolCompleter<Void>(single) {
+            @Override
+            public void compute() {
+                setPendingCount(4);
+                for (int i = 0; i < 4; i++) {
+                    new PoolCompleter<Void>(this) {
+                        @Override
+                        public void compute() {
+                            if (Thread.currentThread() == caller)
+                                byCaller.incrementAndGet();
+                            tryComplete();
+                        }
+                    }.fork();
+                }
+                tryComplete();
+            }
+        };
+        root.invoke();
+        LOGGER.info("调用者执行的子任务数:{}", byCaller.get());
+        Assert.assertEquals(4, byCaller.get());
+        blocker.countDown();
+        single.shutdown();
     }
 
-    private class CompleteTask extends FutureTask<Integer> {
-        volatile AtomicInteger status = new AtomicInteger(0);
-
-        public CompleteTask(Callable<Integer> callable) {
-            super(callable);
+    /**
+     * 任一子任务异常,root异常完成,未开始的子任务不再执行.
+     */
+    @Test
+    public void testException() {
+        AtomicInteger executed = new AtomicInteger();
+        PoolCompleter<Void> root = new PoolCompleter<Void>(Runnable::run) {
+            @Override
+            public void compute() {
+                setPendingCount(3);
+                for (int i = 0; i < 3; i++) {
+                    int number = i;
+                    new PoolCompleter<Void>(this) {
+                        @Override
+                        public void compute() {
+                            executed.incrementAndGet();
+                            if (number == 0)
+                                throw new IllegalStateException("子任务" + number + "异常");
+                            tryComplete();
+                        }
+                    }.fork();
+                }
+                tryComplete();
+            }
+        };
+        try {
+            root.invoke();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            LOGGER.info("root异常完成:{}", e.getMessage());
         }
+        Assert.assertEquals(1, executed.get());
+        Assert.assertTrue(root.isDone());
+    }
 
-        boolean claimed() {
-            int s;
-            return (s = status.get()) != 0;
+    /**
+     * 只记录第一个异常;已正常完成的root不再被异常完成.
+     */
+    @Test
+    public void testFirstException() {
+        PoolCompleter<Void> failed = new PoolCompleter<Void>(Runnable::run) {
+            @Override
+            public void compute() {
+                completeExceptionally(new IllegalStateException("第一个异常"));
+                completeExceptionally(new IllegalArgumentException("第二个异常"));
+            }
+        };
+        try {
+            failed.invoke();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            LOGGER.info("保留的异常:{}", e.getMessage());
         }
+        PoolCompleter<Void> completed = new PoolCompleter<Void>(Runnable::run) {
+            @Override
+            public void compute() {
+                tryComplete();
+                completeExceptionally(new IllegalStateException("完成后的异常"));
+            }
+        };
+        completed.invoke();
+        Assert.assertNull(completed.exception);
+    }
 
-        boolean claim() {
-            return status.compareAndSet(0, 1);
-        }
+    /**
+     * 线程池执行的子任务从root的forked列表中移除,整棵树在线程池中执行时列表不随节点数增长.
+     */
+    @Test
+    public void testForkedTrimmed() {
+        AtomicInteger max = new AtomicInteger();
+        PoolCompleter<Void> root = new PoolCompleter<Void>(Runnable::run) {
+            @Override
+            public void compute() {
+                split(this, 12, max);
+                tryComplete();
+            }
+        };
+        root.invoke();
+        LOGGER.info("forked列表的最大长度:{}", max.get());
+        Assert.assertTrue(max.get() < 64);
     }
 
+    private static void split(PoolCompleter<?> parent, int depth, AtomicInteger max) {
+        if (depth == 0) {
+            max.accumulateAndGet(parent.root.forked.size(), Math::max);
+            return;
+        }
+        parent.setPendingCount(2);
+        for (int i = 0; i < 2; i++) {
+            new PoolCompleter<Void>(parent) {
+                @Override
+                public void compute() {
+                    split(this, depth - 1, max);
+                    tryComplete();
+                }
+            }.fork();
+        }
+    }
 }
@@ -22,7 +22,7 @@ public class CyclicBarrierTest {
         barrier = new CyclicBarrier(5,this::startVirtualDiscoveryServices);
         for(int i=0;i<5;i++){
             int number = i;
-            new Thread(()->{
+            Threads.newThread(()->{
                 initVsd(number);
                 try {
                     barrier.await();
@@ -0,0 +1,102 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ForkJoinPool的ctl/config解码与周期采样.
+ */
+public class ForkJoinPoolSamplerTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ForkJoinPoolSamplerTest.class);
+
+    /**
+     * 与ForkJoinTest.testInitCtlAndConfig的手工计算结果一致,并且与真实线程池中的值一致.
+     */
+    @Test
+    public void testDecode() {
+        long ctl = ForkJoinPoolState.initialCtl(4);
+        Assert.assertEquals(0xfffcfffc00000000L, ctl);
+        Assert.assertEquals(0, ForkJoinPoolState.activeCount(ctl, 4));
+        Assert.assertEquals(0, ForkJoinPoolState.totalCount(ctl, 4));
+        Assert.assertEquals(-1, ForkJoinPoolState.idleTop(ctl));
+        long nc = ForkJoinPoolState.addWorker(ctl);
+        LOGGER.info("新增一个worker后的ctl:{}", Long.toHexString(nc));
+        Assert.assertEquals(1, ForkJoinPoolState.activeCount(nc, 4));
+        Assert.assertEquals(1, ForkJoinPoolState.totalCount(nc, 4));
+        Assert.assertEquals(0x10004, ForkJoinPoolState.initialConfig(4, true));
+        Assert.assertEquals(4, ForkJoinPoolState.configParallelism(0x10004));
+        Assert.assertTrue(ForkJoinPoolState.configAsyncMode(0x10004));
+
+        ForkJoinPool lifo = new ForkJoinPool(4);
+        ForkJoinPool fifo = new ForkJoinPool(4, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        ForkJoinPoolState state = ForkJoinPoolState.sample(lifo);
+        LOGGER.info("未启动worker的线程池:{}", state);
+        if (state.isCtlAvailable()) {
+            Assert.assertEquals(ForkJoinPoolState.initialCtl(4), state.getCtl());
+            Assert.assertEquals(ForkJoinPoolState.initialConfig(4, false), ForkJoinPoolState.readConfig(lifo));
+            Assert.assertEquals(ForkJoinPoolState.initialConfig(4, true), ForkJoinPoolState.readConfig(fifo));
+        }
+        Assert.assertEquals(0, state.getTotalCount());
+        Assert.assertTrue(ForkJoinPoolState.sample(fifo).isAsyncMode());
+        lifo.shutdown();
+        fifo.shutdown();
+    }
+
+    static class Fib extends RecursiveTask<Long> {
+        final int n;
+
+        Fib(int n) {
+            this.n = n;
+        }
+
+        @Override
+        protected Long compute() {
+            if (n <= 15)
+                return slow(n);
+            Fib f1 = new Fib(n - 1);
+            f1.fork();
+            return new Fib(n - 2).compute() + f1.join();
+        }
+
+        static long slow(int n) {
+            return n <= 1 ? n : slow(n - 1) + slow(n - 2);
+        }
+    }
+
+    /**
+     * 计算期间周期采样,导出时间序列.
+     */
+    @Test
+    public void testSampling() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        ForkJoinPoolSampler sampler = new ForkJoinPoolSampler(pool, 64);
+        sampler.start(5, TimeUnit.MILLISECONDS);
+        long result = pool.invoke(new Fib(32));
+        sampler.sample();
+        sampler.close();
+        Assert.assertEquals(2178309L, result);
+        List<ForkJoinPoolState> series = sampler.series();
+        Assert.assertFalse(series.isEmpty());
+        Assert.assertTrue(series.size() <= 64);
+        Assert.assertSame(sampler.latest(), series.get(series.size() - 1));
+        for (int i = 1; i < series.size(); i++) {
+            Assert.assertTrue(series.get(i).getNanoTime() >= series.get(i - 1).getNanoTime());
+            Assert.assertTrue(series.get(i).getStealCount() >= series.get(i - 1).getStealCount());
+        }
+        StringBuilder csv = new StringBuilder();
+        sampler.export(csv);
+        Assert.assertEquals(series.size() + 1, csv.toString().split("\n").length);
+        LOGGER.info("采样数:{},最近:{},偷取速率:{}/s,饥饿比例:{}", sampler.getSampleCount(), sampler.latest(),
+                sampler.stealRate(), sampler.starvedRatio());
+        pool.shutdown();
+    }
+}
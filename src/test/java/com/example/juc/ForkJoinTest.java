@@ -1,5 +1,6 @@
 package com.example.juc;
 
+import org.junit.Assume;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -581,6 +582,8 @@ public class ForkJoinTest {
      */
     @Test
     public void testThreadLocalRandom() {
+        //jdk9以后java.lang默认不对反射开放,setAccessible读取threadLocalRandomProbe会失败,只在jdk8上观察.
+        Assume.assumeTrue("1.8".equals(System.getProperty("java.specification.version")));
         //它内部会调用localInit,将当前线程的probe设置为一个初值.
         ThreadLocalRandom current = ThreadLocalRandom.current();
         //取当前线程.
@@ -704,18 +707,20 @@ public class ForkJoinTest {
      * 测试并行流的情况下会出现主线程执行任务的情况.
      * 经代码debug,发现并不是出现在helpComplete或externalHelp等与get,join有关的方法中.
      * 而是在并行流分割后,主线程直接分走了一部分任务的执行权,直接去invoke的结果.
+     * 逐元素打日志使用异步日志,log4j的同步输出会把各线程串行化,掩盖任务的分配情况.
      */
     @Test
     public void testParallel(){
+        AsyncLogger logger = AsyncLog.console().getLogger(ForkJoinTest.class);
         List<Integer> list = new ArrayList<>(1<<16);
         for(int i=0;i<1<<16;i++){
             list.add(i);
         }
         list.stream().parallel().forEach(i->{
             if(Thread.currentThread().getName().contains("main")){
-                LOGGER.warn("主线程抢走了:{}",i);
+                logger.warn("主线程抢走了:{}",i);
             }else{
-                LOGGER.info("线程:{}处理了:{}",Thread.currentThread().getName(),i);
+                logger.info("线程:{}处理了:{}",Thread.currentThread().getName(),i);
             }
         });
     }
@@ -0,0 +1,197 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 直接交接执行器测试.
+ */
+public class HandoffExecutorTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HandoffExecutorTest.class);
+
+    /**
+     * 没有空闲worker时新建worker,worker空闲后串行提交的任务都直接交接.
+     */
+    @Test
+    public void testHandoff() throws Exception {
+        HandoffExecutor executor = new HandoffExecutor(2, 4, 16, 10, TimeUnit.SECONDS);
+        executor.submit(() -> {
+        }).get();
+        Assert.assertEquals(1, executor.getSpawnCount());
+        for (int i = 0; i < 100; i++) {
+            //留出时间让worker回到poll.
+            TimeUnit.MILLISECONDS.sleep(1);
+            executor.submit(() -> {
+            }).get();
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        LOGGER.info("{},交接比例:{}", executor, executor.getHandoffRate());
+        Assert.assertTrue(executor.getSpawnCount() <= 4);
+        Assert.assertTrue(executor.getHandoffRate() > 0.5);
+        Assert.assertEquals(0, executor.getPoolSize());
+    }
+
+    /**
+     * worker全忙时新建到上限,再提交的任务进溢出缓存,溢出缓存满时拒绝,已接受的任务最终全部执行.
+     */
+    @Test
+    public void testOverflow() throws Exception {
+        HandoffExecutor executor = new HandoffExecutor(0, 2, 4, 10, TimeUnit.SECONDS);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger done = new AtomicInteger();
+        Runnable blocked = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.incrementAndGet();
+        };
+        executor.execute(blocked);
+        executor.execute(blocked);
+        Assert.assertEquals(2, executor.getPoolSize());
+        for (int i = 0; i < 4; i++) {
+            executor.execute(done::incrementAndGet);
+        }
+        Assert.assertEquals(4, executor.getOverflowSize());
+        try {
+            executor.execute(done::incrementAndGet);
+            Assert.fail();
+        } catch (RejectedExecutionException e) {
+            LOGGER.info(e.getMessage());
+        }
+        release.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        LOGGER.info("{}", executor);
+        Assert.assertEquals(6, done.get());
+        Assert.assertEquals(2, executor.getSpawnCount());
+        Assert.assertEquals(4, executor.getOverflowCount());
+        Assert.assertEquals(1, executor.getRejectedCount());
+        try {
+            executor.execute(done::incrementAndGet);
+            Assert.fail();
+        } catch (RejectedExecutionException e) {
+            LOGGER.info(e.getMessage());
+        }
+    }
+
+    /**
+     * 超过core的worker空闲keepAlive后退出.
+     */
+    @Test
+    public void testKeepAlive() throws Exception {
+        HandoffExecutor executor = new HandoffExecutor(1, 4, 16, 100, TimeUnit.MILLISECONDS);
+        CountDownLatch running = new CountDownLatch(4), release = new CountDownLatch(1);
+        for (int i = 0; i < 4; i++) {
+            executor.execute(() -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        running.await();
+        Assert.assertEquals(4, executor.getPoolSize());
+        release.countDown();
+        for (int i = 0; i < 200 && executor.getPoolSize() > 1; i++) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        Assert.assertEquals(1, executor.getPoolSize());
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * core为0时唯一的worker空闲超时,在扣除workerCount之前停住;此时提交的任务新建不了worker,
+     * 也没有等待交接的worker可唤醒,只能进入溢出缓存.worker扣除后再检查溢出缓存,撤销退出并执行它.
+     */
+    @Test
+    public void testRetireRace() throws Exception {
+        HandoffExecutor executor = new HandoffExecutor(0, 1, 4, 1, TimeUnit.MILLISECONDS);
+        CountDownLatch retiring = new CountDownLatch(1), resume = new CountDownLatch(1);
+        executor.retireHook = () -> {
+            retiring.countDown();
+            try {
+                resume.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        executor.execute(() -> {
+        });
+        Assert.assertTrue(retiring.await(5, TimeUnit.SECONDS));
+        executor.retireHook = null;
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(done::countDown);
+        Assert.assertEquals(1, executor.getOverflowCount());
+        Assert.assertEquals(1, executor.getSpawnCount());
+        resume.countDown();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, executor.getPoolSize());
+    }
+
+    /**
+     * 任务抛出异常的worker退出,溢出缓存中的任务由补上的worker执行.
+     */
+    @Test
+    public void testTaskFailure() throws Exception {
+        HandoffExecutor executor = new HandoffExecutor(0, 1, 4, 10, TimeUnit.SECONDS);
+        CountDownLatch release = new CountDownLatch(1), done = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("任务失败");
+        });
+        executor.execute(done::countDown);
+        release.countDown();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, executor.getPoolSize());
+    }
+
+    /**
+     * shutdownNow返回溢出缓存中未执行的任务,中断正在执行的任务.
+     */
+    @Test
+    public void testShutdownNow() throws Exception {
+        HandoffExecutor executor = new HandoffExecutor(1, 1, 8, 10, TimeUnit.SECONDS);
+        CountDownLatch running = new CountDownLatch(1);
+        AtomicInteger interrupted = new AtomicInteger();
+        executor.execute(() -> {
+            running.countDown();
+            try {
+                TimeUnit.SECONDS.sleep(60);
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+            }
+        });
+        running.await();
+        for (int i = 0; i < 3; i++) {
+            executor.execute(() -> {
+            });
+        }
+        List<Runnable> pending = executor.shutdownNow();
+        Assert.assertEquals(3, pending.size());
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, interrupted.get());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 通用map reduce测试.
+ */
+public class MapReduceTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MapReduceTest.class);
+
+    /**
+     * 与ForkJoinTest.testMapReduce相同的数据,两种方法的结果应分别为12和9.
+     */
+    @Test
+    public void testArray() {
+        Integer[] array = {1, 2, 3};
+        Integer result = MapReduce.mapReduce(array, a -> a + 2, 0, Integer::sum);
+        LOGGER.info("result:{}", result);
+        Assert.assertEquals(12, result.intValue());
+        result = MapReduce.mapReduce(ForkJoinPool.commonPool(), array, 0, array.length, a -> a + 1, 0, Integer::sum);
+        Assert.assertEquals(9, result.intValue());
+        Assert.assertEquals(0, MapReduce.mapReduce(new Integer[0], a -> a, 0, Integer::sum).intValue());
+    }
+
+    /**
+     * mapper输出类型与元素不同,且reducer不满足交换律时,结果顺序应保持从左到右.
+     */
+    @Test
+    public void testOrderAndType() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        List<Integer> list = new ArrayList<>();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            list.add(i);
+            expected.append(i % 10);
+        }
+        String result = MapReduce.mapReduce(pool, list, 0, list.size(), i -> String.valueOf(i % 10), "", String::concat);
+        Assert.assertEquals(expected.toString(), result);
+        //LinkedList片段.
+        String slice = MapReduce.mapReduce(pool, new LinkedList<>(list), 10, 15, String::valueOf, "", String::concat);
+        Assert.assertEquals("1011121314", slice);
+        pool.shutdown();
+    }
+
+    @Test
+    public void testIndexRange() {
+        long start = System.currentTimeMillis();
+        Long sum = MapReduce.mapReduce(0, 10000000, i -> (long) i, 0L, Long::sum);
+        LOGGER.info("0到1千万求和:{},耗时:{}ms", sum, System.currentTimeMillis() - start);
+        Assert.assertEquals(49999995000000L, sum.longValue());
+    }
+}
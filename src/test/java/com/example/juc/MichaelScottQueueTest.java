@@ -0,0 +1,95 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 节点复用的无锁队列测试.
+ */
+public class MichaelScottQueueTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MichaelScottQueueTest.class);
+
+    /**
+     * 先进先出,节点用完时offer失败.
+     */
+    @Test
+    public void testOfferPoll() {
+        MichaelScottQueue<String> queue = new MichaelScottQueue<>(2);
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+        Assert.assertTrue(queue.offer("a"));
+        Assert.assertTrue(queue.offer("b"));
+        Assert.assertFalse(queue.offer("c"));
+        Assert.assertEquals("a", queue.poll());
+        Assert.assertTrue(queue.offer("c"));
+        Assert.assertEquals("b", queue.poll());
+        Assert.assertEquals("c", queue.poll());
+        Assert.assertNull(queue.poll());
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    /**
+     * 多生产者多消费者,节点被频繁复用,每个元素恰好出队一次,同一生产者的元素保持顺序.
+     */
+    @Test
+    public void testConcurrentReuse() throws InterruptedException {
+        MichaelScottQueue<Long> queue = new MichaelScottQueue<>(16);
+        int producers = 3, consumers = 3, perProducer = 100000;
+        AtomicInteger received = new AtomicInteger();
+        AtomicInteger disorder = new AtomicInteger();
+        long[] sums = new long[consumers];
+        List<Thread> list = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            list.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!queue.offer(producer << 32 | i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (int c = 0; c < consumers; c++) {
+            int consumer = c;
+            list.add(new Thread(() -> {
+                long[] last = new long[producers];
+                Arrays.fill(last, -1L);
+                while (received.get() < producers * perProducer) {
+                    Long e = queue.poll();
+                    if (e == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    received.incrementAndGet();
+                    int producer = (int) (e >>> 32);
+                    long seq = e & 0xFFFFFFFFL;
+                    if (seq <= last[producer])
+                        disorder.incrementAndGet();
+                    last[producer] = seq;
+                    sums[consumer] += seq;
+                }
+            }));
+        }
+        list.forEach(Thread::start);
+        for (Thread t : list) {
+            t.join();
+        }
+        long sum = 0;
+        for (long s : sums) {
+            sum += s;
+        }
+        LOGGER.info("出队:{},乱序:{}", received.get(), disorder.get());
+        Assert.assertEquals(producers * perProducer, received.get());
+        Assert.assertEquals(0, disorder.get());
+        Assert.assertEquals((long) producers * perProducer * (perProducer - 1) / 2, sum);
+        Assert.assertTrue(queue.isEmpty());
+    }
+}
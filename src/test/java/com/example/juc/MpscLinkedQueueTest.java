@@ -0,0 +1,117 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多生产者单消费者队列测试.
+ */
+public class MpscLinkedQueueTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MpscLinkedQueueTest.class);
+
+    /**
+     * 单线程跨越多个块,先进先出.
+     */
+    @Test
+    public void testFifo() {
+        MpscLinkedQueue<Integer> queue = new MpscLinkedQueue<>(4);
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 10; i++) {
+                queue.offer(i);
+            }
+            Assert.assertFalse(queue.isEmpty());
+            for (int i = 0; i < 10; i++) {
+                Assert.assertEquals(i, (int) queue.poll());
+            }
+            Assert.assertTrue(queue.isEmpty());
+            Assert.assertNull(queue.poll());
+        }
+        List<Integer> drained = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            queue.offer(i);
+        }
+        Assert.assertEquals(5, queue.drain(drained::add, 5));
+        Assert.assertEquals(1, queue.drain(drained::add, 5));
+        Assert.assertEquals(6, drained.size());
+    }
+
+    /**
+     * 多个生产者并发入队,消费者用take收到全部元素,每个生产者的元素保持入队顺序.
+     */
+    @Test
+    public void testProducers() throws Exception {
+        MpscLinkedQueue<long[]> queue = new MpscLinkedQueue<>(16);
+        int producers = 4, perProducer = 100000;
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < producers; p++) {
+            long id = p;
+            Threads.newThread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    queue.offer(new long[]{id, i});
+                    if ((i & 1023) == 0)
+                        Thread.yield();
+                }
+            }).start();
+        }
+        start.countDown();
+        long[] last = new long[producers];
+        Arrays.fill(last, -1L);
+        long begin = System.nanoTime();
+        for (int n = 0; n < producers * perProducer; n++) {
+            long[] e = queue.take();
+            Assert.assertEquals(last[(int) e[0]] + 1, e[1]);
+            last[(int) e[0]] = e[1];
+        }
+        LOGGER.info("收到{}个元素,耗时:{}ms", producers * perProducer,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * 消费者park等待,生产者入队后唤醒它.
+     */
+    @Test
+    public void testTakeWakeUp() throws Exception {
+        MpscLinkedQueue<String> queue = new MpscLinkedQueue<>();
+        Thread producer = Threads.newThread(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            queue.offer("hello");
+        });
+        producer.start();
+        Assert.assertEquals("hello", queue.poll(5, TimeUnit.SECONDS));
+        Thread consumer = Thread.currentThread();
+        Threads.newThread(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            consumer.interrupt();
+        }).start();
+        try {
+            queue.take();
+            Assert.fail();
+        } catch (InterruptedException e) {
+            LOGGER.info("take被中断");
+        }
+    }
+}
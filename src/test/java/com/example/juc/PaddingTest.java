@@ -0,0 +1,77 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 填充工具类测试,只验证语义,布局无法在测试中检查.
+ */
+public class PaddingTest {
+
+    @Test
+    public void testAtomics() {
+        PaddedAtomicLong l = new PaddedAtomicLong(5);
+        Assert.assertEquals(6, l.incrementAndGet());
+        Assert.assertEquals(6, l.getAndAdd(4));
+        Assert.assertTrue(l.compareAndSet(10, 1));
+        Assert.assertEquals(1, l.getAndSet(2));
+        l.lazySet(3);
+        Assert.assertEquals(3, l.get());
+
+        PaddedAtomicInteger i = new PaddedAtomicInteger();
+        Assert.assertEquals(-1, i.decrementAndGet());
+        Assert.assertEquals(4, i.addAndGet(5));
+
+        PaddedAtomicReference<String> r = new PaddedAtomicReference<>("a");
+        Assert.assertTrue(r.compareAndSet("a", "b"));
+        Assert.assertFalse(r.compareAndSet("a", "c"));
+        Assert.assertEquals("b", r.getAndSet("c"));
+
+        PaddedFlag f = new PaddedFlag();
+        Assert.assertFalse(f.get());
+        Assert.assertTrue(f.compareAndSet(false, true));
+        Assert.assertFalse(f.compareAndSet(false, true));
+        Assert.assertTrue(f.getAndSet(false));
+        f.lazySet(true);
+        Assert.assertTrue(f.get());
+    }
+
+    /**
+     * 各线程更新自己的下标,元素互不影响,越界检查按逻辑长度.
+     */
+    @Test
+    public void testArrays() throws InterruptedException {
+        PaddedAtomicLongArray longs = new PaddedAtomicLongArray(4);
+        PaddedAtomicIntegerArray ints = new PaddedAtomicIntegerArray(4);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int worker = t;
+            threads.add(new Thread(() -> {
+                for (int n = 0; n < 10000 * (worker + 1); n++) {
+                    longs.incrementAndGet(worker);
+                    ints.lazySet(worker, ints.get(worker) + 1);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread t : threads) {
+            t.join();
+        }
+        for (int w = 0; w < 4; w++) {
+            Assert.assertEquals(10000 * (w + 1), longs.get(w));
+            Assert.assertEquals(10000 * (w + 1), ints.get(w));
+        }
+        Assert.assertEquals(100000, longs.sum());
+        Assert.assertEquals(100000, ints.sum());
+        Assert.assertEquals("[10000, 20000, 30000, 40000]", longs.toString());
+        try {
+            longs.get(4);
+            Assert.fail();
+        } catch (IndexOutOfBoundsException e) {
+            Assert.assertEquals(4, longs.length());
+        }
+    }
+}
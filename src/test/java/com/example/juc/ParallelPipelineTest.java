@@ -0,0 +1,142 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 指定线程池的并行管道测试.
+ */
+public class ParallelPipelineTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelPipelineTest.class);
+
+    /**
+     * 与ForkJoinTest.testParallel相同的数据:excludeCaller后main线程不处理任何元素,且只用指定池的线程.
+     */
+    @Test
+    public void testExcludeCaller() {
+        List<Integer> list = new ArrayList<>(1 << 16);
+        for (int i = 0; i < 1 << 16; i++) {
+            list.add(i);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        Thread caller = Thread.currentThread();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        LongAdder sum = new LongAdder();
+        ParallelPipeline.of(pool, list).excludeCaller().forEach(i -> {
+            threads.add(Thread.currentThread());
+            sum.add(i);
+        });
+        LOGGER.info("参与的线程:{}", threads);
+        Assert.assertFalse(threads.contains(caller));
+        for (Thread t : threads) {
+            Assert.assertTrue(t instanceof ForkJoinWorkerThread);
+            Assert.assertSame(pool, ((ForkJoinWorkerThread) t).getPool());
+        }
+        Assert.assertEquals((long) (1 << 16) * ((1 << 16) - 1) / 2, sum.sum());
+        pool.shutdown();
+    }
+
+    /**
+     * map/filter/reduce/count,归约顺序从左到右.
+     */
+    @Test
+    public void testPipeline() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        List<Integer> list = new LinkedList<>();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            list.add(i);
+            if (i % 3 == 0)
+                expected.append(i % 10);
+        }
+        ParallelPipeline<Integer> multiples = ParallelPipeline.of(pool, list).filter(i -> i % 3 == 0);
+        Assert.assertEquals(1667, multiples.count());
+        Assert.assertEquals(expected.toString(),
+                multiples.map(i -> String.valueOf(i % 10)).excludeCaller().reduce("", String::concat));
+        Assert.assertEquals(Optional.empty(), multiples.filter(i -> i < 0).reduce(Integer::sum));
+        Assert.assertEquals(-1, (int) multiples.filter(i -> i < 0).reduce(-1, Integer::sum));
+        pool.shutdown();
+    }
+
+    @Test
+    public void testPrimitiveArrays() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        int[] ints = new int[100000];
+        long[] longs = new long[100000];
+        double[] doubles = new double[100000];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = i;
+            longs[i] = i;
+            doubles[i] = 0.5;
+        }
+        Assert.assertEquals(4999950000L,
+                (long) ParallelPipeline.of(pool, ints).map(i -> (long) i).excludeCaller().reduce(0L, Long::sum));
+        Assert.assertEquals(50000, ParallelPipeline.of(pool, longs).filter(l -> (l & 1L) == 0L).count());
+        Assert.assertEquals(50000.0, ParallelPipeline.of(pool, doubles).reduce(0.0, Double::sum), 1e-9);
+        Assert.assertEquals(0, ParallelPipeline.of(pool, new int[0]).excludeCaller().count());
+        pool.shutdown();
+    }
+
+    /**
+     * 基本类型数组的sum/reduce走不装箱的路径,经过map/filter后退回装箱的路径,结果一致.
+     */
+    @Test
+    public void testPrimitiveReduce() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        int[] ints = new int[1 << 20];
+        long[] longs = new long[1 << 20];
+        double[] doubles = new double[1 << 20];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = i;
+            longs[i] = -i;
+            doubles[i] = 0.25;
+        }
+        long expected = (long) ints.length * (ints.length - 1) / 2;
+        Assert.assertEquals(expected, ParallelPipeline.of(pool, ints).sumAsLong());
+        Assert.assertEquals(-expected, ParallelPipeline.of(pool, longs).excludeCaller().sumAsLong());
+        Assert.assertEquals(ints.length / 4.0, ParallelPipeline.of(pool, doubles).sumAsDouble(), 1e-9);
+        Assert.assertEquals(ints.length - 1,
+                ParallelPipeline.of(pool, ints).excludeCaller().reduceAsLong(Long.MIN_VALUE, Math::max));
+        //奇数共2^19个,和为2^19的平方.
+        Assert.assertEquals(1L << 38, ParallelPipeline.of(pool, ints).filter(i -> (i & 1) == 1).sumAsLong());
+        Assert.assertEquals(2.0 * expected,
+                ParallelPipeline.of(pool, ints).map(i -> i * 2.0).sumAsDouble(), 1e-3);
+        Assert.assertEquals(0L, ParallelPipeline.of(pool, new long[0]).sumAsLong());
+        pool.shutdown();
+    }
+
+    /**
+     * 元素处理抛出的异常在调用者中重新抛出.
+     */
+    @Test
+    public void testFailure() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        Integer[] array = new Integer[10000];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i;
+        }
+        try {
+            ParallelPipeline.of(pool, array).excludeCaller().forEach(i -> {
+                if (i == 7777)
+                    throw new IllegalStateException("元素处理失败");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            LOGGER.info(e.getMessage());
+        }
+        pool.shutdown();
+    }
+}
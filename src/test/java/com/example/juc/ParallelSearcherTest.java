@@ -0,0 +1,79 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 基本类型并行查找测试.
+ * 与ForkJoinTest.testDivideSearch,testDirectFound使用相同的匹配条件,对比顺序扫描.
+ */
+public class ParallelSearcherTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelSearcherTest.class);
+
+    private static boolean match(int x) {
+        return x > 2000000 && x % 2 == 0 && x % 3 == 0 && x % 5 == 0 && x % 7 == 0;
+    }
+
+    private static int[] intArray(int length) {
+        int[] array = new int[length];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i + 1;
+        }
+        return array;
+    }
+
+    @Test
+    public void testFindFirstInt() {
+        int[] array = intArray(10000000);
+        long start = System.nanoTime();
+        int expected = -1;
+        for (int i = 0; i < array.length; i++) {
+            if (match(array[i])) {
+                expected = i;
+                break;
+            }
+        }
+        long direct = System.nanoTime() - start;
+        start = System.nanoTime();
+        int index = ParallelSearcher.findFirst(array, ParallelSearcherTest::match);
+        long parallel = System.nanoTime() - start;
+        LOGGER.info("顺序查找索引:{},耗时:{}ns;并行查找索引:{},耗时:{}ns", expected, direct, index, parallel);
+        Assert.assertEquals(expected, index);
+    }
+
+    /**
+     * findAny只保证命中,不保证是最小索引.
+     */
+    @Test
+    public void testFindAnyInt() {
+        int[] array = intArray(10000000);
+        int index = ParallelSearcher.findAny(array, ParallelSearcherTest::match);
+        LOGGER.info("findAny索引:{},值:{}", index, array[index]);
+        Assert.assertTrue(match(array[index]));
+        Assert.assertEquals(-1, ParallelSearcher.findAny(array, x -> x < 0));
+    }
+
+    /**
+     * 用很小的threshold强制分出大量叶子,验证findFirst仍返回最小索引.
+     */
+    @Test
+    public void testFindFirstSmallThreshold() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        long[] longs = new long[100000];
+        double[] doubles = new double[100000];
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = i % 1000;
+            doubles[i] = i % 1000 / 10.0;
+        }
+        Assert.assertEquals(999, ParallelSearcher.findFirst(pool, longs, x -> x == 999, 16));
+        Assert.assertEquals(500, ParallelSearcher.findFirst(pool, doubles, x -> x >= 50.0, 16));
+        Assert.assertEquals(-1, ParallelSearcher.findFirst(pool, longs, x -> x > 1000, 16));
+        Assert.assertEquals(-1, ParallelSearcher.findAny(pool, new double[0], x -> true, 16));
+        pool.shutdown();
+    }
+}
@@ -8,7 +8,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
@@ -44,7 +43,7 @@ public class PhaserTest {
     @Test
     public void testPhaser(){
         Phaser phaser = new Phaser();
-        ExecutorService pool = Executors.newFixedThreadPool(10);
+        ExecutorService pool = Threads.newPool(10);
         for(int i=0;i<10;i++){
             //不规范用法,没有在一个线程里注册/等待.
             phaser.register();
@@ -0,0 +1,208 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 环形缓存测试,场景同ConditionTest:生产者put,消费者take.
+ */
+public class RingBufferTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RingBufferTest.class);
+
+    @Test
+    public void testCapacityAndNonBlocking() {
+        RingBuffer<String> buffer = RingBuffer.spsc(10, WaitStrategy.spin());
+        Assert.assertEquals(16, buffer.capacity());
+        for (int i = 0; i < 16; i++) {
+            Assert.assertTrue(buffer.offer(String.valueOf(i)));
+        }
+        Assert.assertFalse(buffer.offer("full"));
+        Assert.assertEquals(16, buffer.size());
+        Assert.assertEquals("0", buffer.poll());
+        Assert.assertEquals(15, buffer.size());
+
+        buffer = RingBuffer.mpmc(4, WaitStrategy.yielding());
+        Assert.assertNull(buffer.poll());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(buffer.offer(String.valueOf(i)));
+        }
+        Assert.assertFalse(buffer.offer("full"));
+        Assert.assertEquals("0", buffer.poll());
+        Assert.assertTrue(buffer.offer("4"));
+    }
+
+    /**
+     * 单生产者单消费者,验证顺序.
+     */
+    @Test
+    public void testSpscGetAndSet() throws InterruptedException {
+        RingBuffer<Integer> buffer = RingBuffer.spsc(8, WaitStrategy.parking());
+        int times = 100000;
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < times; i++) {
+                    buffer.put(i);
+                }
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        });
+        producer.start();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < times; i++) {
+            Assert.assertEquals(i, buffer.take().intValue());
+        }
+        producer.join();
+        LOGGER.info("spsc传递{}个元素耗时:{}ms", times, System.currentTimeMillis() - start);
+        Assert.assertNull(buffer.poll(1, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * 多生产者多消费者,验证不丢不重.
+     */
+    @Test
+    public void testMpmcGetAndSet() throws InterruptedException {
+        RingBuffer<Integer> buffer = RingBuffer.mpmc(16, WaitStrategy.parking());
+        int producers = 4, consumers = 4, times = 20000;
+        AtomicLong sum = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 1; i <= times; i++) {
+                        buffer.put(i);
+                    }
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }));
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < times; i++) {
+                        sum.addAndGet(buffer.take());
+                    }
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }));
+        }
+        long start = System.currentTimeMillis();
+        threads.forEach(Thread::start);
+        for (Thread t : threads) {
+            t.join();
+        }
+        LOGGER.info("mpmc传递{}个元素耗时:{}ms", producers * times, System.currentTimeMillis() - start);
+        Assert.assertEquals((long) producers * times * (times + 1) / 2, sum.get());
+        Assert.assertTrue(buffer.isEmpty());
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void testTakeInterrupted() throws InterruptedException {
+        RingBuffer<String> buffer = RingBuffer.mpmc(2, WaitStrategy.parking());
+        Thread.currentThread().interrupt();
+        buffer.take();
+    }
+
+    /**
+     * 批量放入和批量取出,每批只声明一次序号.
+     */
+    @Test
+    public void testPutAllAndDrainTo() throws InterruptedException {
+        for (RingBuffer<Integer> buffer : Arrays.asList(RingBuffer.<Integer>spsc(8, WaitStrategy.spin()),
+                RingBuffer.<Integer>mpmc(8, WaitStrategy.spin()))) {
+            Assert.assertEquals(5, buffer.putAll(Arrays.asList(1, 2, 3, 4, 5, 6), 5));
+            List<Integer> drained = new ArrayList<>();
+            Assert.assertEquals(3, buffer.drainTo(drained::add, 3));
+            Assert.assertEquals(Arrays.asList(1, 2, 3), drained);
+            Assert.assertEquals(2, buffer.drainTo(drained::add, 10));
+            Assert.assertEquals(0, buffer.drainTo(drained::add, 10));
+            Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), drained);
+        }
+    }
+
+    /**
+     * 突发写入远超容量时,putAll分多批阻塞放入,消费者批量取出.
+     */
+    @Test
+    public void testBurst() throws InterruptedException {
+        for (RingBuffer<Integer> buffer : Arrays.asList(RingBuffer.<Integer>spsc(64, WaitStrategy.parking()),
+                RingBuffer.<Integer>mpmc(64, WaitStrategy.parking()))) {
+            List<Integer> burst = new ArrayList<>();
+            for (int i = 0; i < 10000; i++) {
+                burst.add(i);
+            }
+            Thread producer = new Thread(() -> {
+                try {
+                    buffer.putAll(burst, burst.size());
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            });
+            producer.start();
+            List<Integer> drained = new ArrayList<>();
+            long start = System.currentTimeMillis();
+            while (drained.size() < burst.size()) {
+                if (buffer.drainTo(drained::add, 1000) == 0)
+                    Thread.yield();
+            }
+            producer.join();
+            LOGGER.info("{}批量传递{}个元素耗时:{}ms", buffer.getClass().getSimpleName(), burst.size(),
+                    System.currentTimeMillis() - start);
+            Assert.assertEquals(burst, drained);
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testPutAllNull() throws InterruptedException {
+        RingBuffer.<Integer>mpmc(8, WaitStrategy.spin()).putAll(Arrays.asList(1, null), 2);
+    }
+
+    /**
+     * putAll的集合在遍历中抛出异常时,之前的元素照常放入,已声明的其余槽位被跳过,缓存仍可正常使用.
+     */
+    @Test
+    public void testPutAllFailingIterator() throws InterruptedException {
+        List<Integer> source = new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                if (index == 2)
+                    throw new IllegalStateException("数据源出错");
+                return index;
+            }
+
+            @Override
+            public int size() {
+                return 4;
+            }
+        };
+        for (RingBuffer<Integer> buffer : Arrays.asList(RingBuffer.<Integer>spsc(8, WaitStrategy.spin()),
+                RingBuffer.<Integer>mpmc(8, WaitStrategy.spin()))) {
+            try {
+                buffer.putAll(source, 4);
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                LOGGER.info(e.getMessage());
+            }
+            Assert.assertEquals(2, buffer.putAll(Arrays.asList(7, 8), 2));
+            List<Integer> drained = new ArrayList<>();
+            Assert.assertEquals(1, buffer.drainTo(drained::add, 1));
+            Assert.assertEquals(1, (int) buffer.poll(1, TimeUnit.SECONDS));
+            Assert.assertEquals(2, buffer.drainTo(drained::add, 8));
+            Assert.assertEquals(Arrays.asList(0, 7, 8), drained);
+            Assert.assertNull(buffer.poll());
+            Assert.assertTrue(buffer.isEmpty());
+        }
+    }
+}
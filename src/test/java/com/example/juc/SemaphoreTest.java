@@ -28,7 +28,7 @@ public class SemaphoreTest {
         List<Thread> clients = new ArrayList<>();
         for(int i = 0;i<50;i++){
             final int number = i;
-            Thread client = new Thread(()->{
+            Thread client = Threads.newThread(()->{
                 requestVpp(number);
             });
             clients.add(client);
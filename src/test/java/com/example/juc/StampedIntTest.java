@@ -0,0 +1,150 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 打包印戳的StampedInt,StampedLong,StampedReference测试,用例与CASTest.testAbaByRefer对应.
+ */
+public class StampedIntTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StampedIntTest.class);
+
+    /**
+     * 与testAbaByRefer相同的三次交换,值回到0后用旧印戳的交换失败.
+     */
+    @Test
+    public void testAba() {
+        StampedInt refer = new StampedInt(0, 1);
+        Assert.assertTrue(refer.compareAndSet(0, 10, 1, 2));
+        Assert.assertTrue(refer.compareAndSet(10, 0, 2, 3));
+        Assert.assertFalse(refer.compareAndSet(0, 20, 1, 2));
+        Assert.assertTrue(refer.compareAndSet(0, 20, refer.getStamp(), refer.getStamp() + 1));
+        int[] stamp = new int[1];
+        Assert.assertEquals(20, refer.get(stamp));
+        Assert.assertEquals(4, stamp[0]);
+        long pair = refer.getPair();
+        Assert.assertEquals(20, StampedInt.valueOf(pair));
+        Assert.assertEquals(4, StampedInt.stampOf(pair));
+        Assert.assertTrue(refer.compareAndSet(20, -1, 4, -1));
+        Assert.assertEquals(-1, refer.getValue());
+        Assert.assertEquals(-1, refer.getStamp());
+        Assert.assertTrue(refer.attemptStamp(-1, 7));
+        Assert.assertFalse(refer.attemptStamp(0, 8));
+        LOGGER.info("结果:{}", refer);
+    }
+
+    /**
+     * 48位值的符号和边界,印戳按16位比较.
+     */
+    @Test
+    public void testLong() {
+        StampedLong refer = new StampedLong(StampedLong.MIN_VALUE, 0);
+        Assert.assertEquals(StampedLong.MIN_VALUE, refer.getValue());
+        Assert.assertTrue(refer.compareAndSet(StampedLong.MIN_VALUE, StampedLong.MAX_VALUE, 0, 0xFFFF));
+        Assert.assertEquals(StampedLong.MAX_VALUE, refer.getValue());
+        Assert.assertEquals(0xFFFF, refer.getStamp());
+        Assert.assertTrue(refer.compareAndSet(StampedLong.MAX_VALUE, -5L, -1, 0x10000));
+        Assert.assertEquals(-5L, refer.getValue());
+        Assert.assertEquals(0, refer.getStamp());
+        Assert.assertFalse(refer.compareAndSet(Long.MAX_VALUE, 0L, 0, 1));
+        try {
+            refer.set(Long.MAX_VALUE, 0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            LOGGER.info("超出范围:{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 按对象身份比较,相等但不同的对象不能交换.
+     */
+    @Test
+    public void testReference() {
+        String a = new String("a"), a2 = new String("a"), b = "b";
+        StampedReference<String> refer = new StampedReference<>(a, 1, 4);
+        Assert.assertFalse(refer.compareAndSet(a2, b, 1, 2));
+        Assert.assertTrue(refer.compareAndSet(a, b, 1, 2));
+        Assert.assertTrue(refer.compareAndSet(b, a, 2, 3));
+        Assert.assertFalse(refer.compareAndSet(a, b, 1, 2));
+        Assert.assertTrue(refer.compareAndSet(a, null, 3, 4));
+        int[] stamp = new int[1];
+        Assert.assertNull(refer.get(stamp));
+        Assert.assertEquals(4, stamp[0]);
+        Assert.assertTrue(refer.attemptStamp(null, 5));
+        refer.set(a, 6);
+        Assert.assertSame(a, refer.getReference());
+        Assert.assertEquals(2, refer.registered());
+    }
+
+    /**
+     * 每次换成新对象,远超tableCapacity:登记满后回收,只保留当前引用,不抛出异常.
+     */
+    @Test
+    public void testReclaim() throws InterruptedException {
+        StampedReference<Object> refer = new StampedReference<>(null, 0, 4);
+        for (int i = 0; i < 1000; i++) {
+            Object o = new Object();
+            Assert.assertTrue(refer.compareAndSet(refer.getReference(), o, i, i + 1));
+            Assert.assertSame(o, refer.getReference());
+            Assert.assertTrue(refer.registered() <= 4);
+        }
+        Object last = new Object();
+        refer.set(last, 0);
+        Assert.assertFalse(refer.compareAndSet(new Object(), new Object(), 0, 1));
+        Assert.assertTrue(refer.attemptStamp(last, 1));
+
+        //多线程交换新对象,回收不影响印戳计数.
+        List<Thread> threads = new ArrayList<>();
+        int[] holder = new int[1];
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                int[] stamp = new int[1];
+                for (int i = 0; i < 10000; i++) {
+                    Object current;
+                    do {
+                        current = refer.get(stamp);
+                    } while (!refer.compareAndSet(current, new Object(), stamp[0], stamp[0] + 1));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread t : threads) {
+            t.join();
+        }
+        Assert.assertNotNull(refer.get(holder));
+        LOGGER.info("印戳:{},登记数:{}", holder[0], refer.registered());
+        Assert.assertEquals(40001, holder[0]);
+    }
+
+    /**
+     * 多线程带印戳自增,每次成功的交换印戳加一,总数准确.
+     */
+    @Test
+    public void testConcurrentIncrement() throws InterruptedException {
+        StampedInt refer = new StampedInt(0, 0);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    long p;
+                    do {
+                        p = refer.getPair();
+                    } while (!refer.compareAndSet(StampedInt.valueOf(p), StampedInt.valueOf(p) + 1,
+                            StampedInt.stampOf(p), StampedInt.stampOf(p) + 1));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread t : threads) {
+            t.join();
+        }
+        Assert.assertEquals(400000, refer.getValue());
+        Assert.assertEquals(400000, refer.getStamp());
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分阶段并行启动测试.
+ */
+public class StartupOrchestratorTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupOrchestratorTest.class);
+
+    private static void sleep(long millis) throws InterruptedException {
+        TimeUnit.MILLISECONDS.sleep(millis);
+    }
+
+    /**
+     * CyclicBarrierTest.testEnm的流程:vpp,5个vsd,服务发现.另有一个与vpp无关的配置中心和依赖它的监控,
+     * 与vpp/vsd重叠执行.依赖的阶段总是在被依赖的阶段结束后才开始.
+     */
+    @Test
+    public void testStartup() throws Exception {
+        AtomicInteger vsd = new AtomicInteger();
+        StartupOrchestrator orchestrator = new StartupOrchestrator(5, TimeUnit.SECONDS)
+                .stage("vpp", () -> sleep(100))
+                .stage("config", () -> sleep(100))
+                .stage("vsd", 5, i -> {
+                    sleep(100);
+                    vsd.incrementAndGet();
+                }, "vpp")
+                .stage("monitor", () -> sleep(50), "config")
+                .stage("discovery", () -> Assert.assertEquals(5, vsd.get()), "vsd");
+        StartupOrchestrator.Report report = orchestrator.start();
+        LOGGER.info("{}", report);
+        for (StartupOrchestrator.StageTiming t : report.getStages()) {
+            Assert.assertEquals(StartupOrchestrator.Status.COMPLETED, t.status);
+        }
+        StartupOrchestrator.StageTiming vpp = report.getStage("vpp"), vsds = report.getStage("vsd");
+        Assert.assertEquals(1, vsds.level);
+        Assert.assertTrue(vsds.startNanos >= vpp.startNanos + vpp.durationNanos);
+        Assert.assertTrue(report.getStage("discovery").startNanos >= vsds.startNanos + vsds.durationNanos);
+        //vsd的5个实例并行,总耗时远小于串行的800ms.
+        Assert.assertTrue(report.getTotalNanos() < TimeUnit.MILLISECONDS.toNanos(600));
+    }
+
+    /**
+     * 阶段只等自己依赖的阶段:a(50ms)->b与c(300ms)无关,b在a结束后立即开始,不等c.
+     */
+    @Test
+    public void testIndependentStages() throws Exception {
+        StartupOrchestrator.Report report = new StartupOrchestrator(5, TimeUnit.SECONDS)
+                .stage("a", () -> sleep(50))
+                .stage("c", () -> sleep(300))
+                .stage("b", () -> sleep(50), "a")
+                .start();
+        LOGGER.info("{}", report);
+        StartupOrchestrator.StageTiming a = report.getStage("a"), b = report.getStage("b"), c = report.getStage("c");
+        Assert.assertTrue(b.startNanos >= a.startNanos + a.durationNanos);
+        Assert.assertTrue(b.startNanos + b.durationNanos < c.startNanos + c.durationNanos);
+        Assert.assertTrue(report.getTotalNanos() < TimeUnit.MILLISECONDS.toNanos(400));
+    }
+
+    /**
+     * 失败的实例按maxAttempts重试,重试成功不影响启动.
+     */
+    @Test
+    public void testRetry() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        StartupOrchestrator.Report report = new StartupOrchestrator(5, TimeUnit.SECONDS, 4, 3)
+                .stage("flaky", () -> {
+                    if (calls.incrementAndGet() < 3)
+                        throw new IllegalStateException("连接失败");
+                })
+                .stage("after", () -> {
+                }, "flaky")
+                .start();
+        Assert.assertEquals(3, report.getStage("flaky").attempts);
+        Assert.assertEquals(StartupOrchestrator.Status.COMPLETED, report.getStage("after").status);
+    }
+
+    /**
+     * 阶段失败后,已经开始的其他阶段照常完成,依赖失败阶段的阶段不再执行.
+     */
+    @Test
+    public void testFailure() throws Exception {
+        StartupOrchestrator orchestrator = new StartupOrchestrator(5, TimeUnit.SECONDS)
+                .stage("vpp", () -> {
+                    sleep(20);
+                    throw new IllegalStateException("vpp初始化失败");
+                })
+                .stage("config", () -> sleep(50))
+                .stage("vsd", 5, i -> {
+                }, "vpp");
+        try {
+            orchestrator.start();
+            Assert.fail();
+        } catch (StartupOrchestrator.StartupException e) {
+            LOGGER.info("{}", e.getReport());
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            Assert.assertEquals(StartupOrchestrator.Status.FAILED, e.getReport().getStage("vpp").status);
+            Assert.assertEquals(StartupOrchestrator.Status.COMPLETED, e.getReport().getStage("config").status);
+            Assert.assertEquals(StartupOrchestrator.Status.SKIPPED, e.getReport().getStage("vsd").status);
+        }
+    }
+
+    /**
+     * 多实例阶段只有部分实例结束时,与它并行的阶段失败:其余实例照常结束,该阶段完成,start不会停在它上面.
+     */
+    @Test
+    public void testFailureWhileInstancesPending() throws Exception {
+        StartupOrchestrator orchestrator = new StartupOrchestrator(2, TimeUnit.SECONDS)
+                .stage("x", () -> {
+                    sleep(200);
+                    throw new IllegalStateException("x初始化失败");
+                })
+                .stage("y", 2, i -> sleep(i == 0 ? 50 : 500));
+        long start = System.nanoTime();
+        try {
+            orchestrator.start();
+            Assert.fail();
+        } catch (StartupOrchestrator.StartupException e) {
+            LOGGER.info("{}", e.getReport());
+            Assert.assertEquals(StartupOrchestrator.Status.FAILED, e.getReport().getStage("x").status);
+            Assert.assertEquals(StartupOrchestrator.Status.COMPLETED, e.getReport().getStage("y").status);
+        }
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * 阶段超时:卡住的阶段被中断,依赖它的阶段跳过,start等实例线程退出后才抛出异常,不会一直阻塞.
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        AtomicInteger interrupted = new AtomicInteger();
+        StartupOrchestrator orchestrator = new StartupOrchestrator(200, TimeUnit.MILLISECONDS)
+                .stage("fast", () -> {
+                })
+                .stage("hang", () -> {
+                    try {
+                        sleep(60000);
+                    } catch (InterruptedException e) {
+                        interrupted.incrementAndGet();
+                        throw e;
+                    }
+                })
+                .stage("next", () -> {
+                }, "hang");
+        long start = System.nanoTime();
+        try {
+            orchestrator.start();
+            Assert.fail();
+        } catch (StartupOrchestrator.StartupException e) {
+            LOGGER.info("{}", e.getReport());
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+            Assert.assertEquals(StartupOrchestrator.Status.TIMED_OUT, e.getReport().getStage("hang").status);
+            Assert.assertEquals(StartupOrchestrator.Status.COMPLETED, e.getReport().getStage("fast").status);
+            Assert.assertEquals(StartupOrchestrator.Status.SKIPPED, e.getReport().getStage("next").status);
+        }
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        //返回前已等待实例线程退出,被中断的阶段代码已经结束.
+        Assert.assertEquals(1, interrupted.get());
+    }
+
+    /**
+     * 未知依赖和循环依赖在启动前报错.
+     */
+    @Test
+    public void testInvalidGraph() throws Exception {
+        try {
+            new StartupOrchestrator(1, TimeUnit.SECONDS).stage("a", () -> {
+            }, "b").start();
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            LOGGER.info(e.getMessage());
+        }
+        try {
+            new StartupOrchestrator(1, TimeUnit.SECONDS)
+                    .stage("a", () -> {
+                    }, "c")
+                    .stage("b", () -> {
+                    }, "a")
+                    .stage("c", () -> {
+                    }, "b")
+                    .start();
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            LOGGER.info(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 库存计数测试.
+ */
+public class StockCounterTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StockCounterTest.class);
+
+    /**
+     * 10个生产者,1个消费者,库存始终在[0,capacity]内,生产和消费的总数一致.
+     */
+    @Test
+    public void testProducersAndConsumer() throws InterruptedException {
+        StockCounter stock = new StockCounter(10);
+        AtomicInteger violations = new AtomicInteger();
+        int perProducer = 20000;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int j = 0; j < perProducer; j++) {
+                        stock.put(1);
+                        int c = stock.available();
+                        if (c < 0 || c > 10)
+                            violations.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        long[] consumed = new long[1];
+        Thread consumer = new Thread(() -> {
+            try {
+                for (int j = 0; j < perProducer * 10; j++) {
+                    stock.take(1);
+                    consumed[0]++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        long start = System.nanoTime();
+        consumer.start();
+        threads.forEach(Thread::start);
+        for (Thread t : threads) {
+            t.join();
+        }
+        consumer.join();
+        long nanos = System.nanoTime() - start;
+        LOGGER.info("交接{}次,耗时:{}ms,平均:{}ns", consumed[0], TimeUnit.NANOSECONDS.toMillis(nanos), nanos / consumed[0]);
+        Assert.assertEquals(perProducer * 10, consumed[0]);
+        Assert.assertEquals(0, violations.get());
+        Assert.assertEquals(0, stock.available());
+        Assert.assertFalse(stock.hasWaitingPutters());
+        Assert.assertFalse(stock.hasWaitingTakers());
+    }
+
+    /**
+     * 排在前面的等待者需要的量更大时,后面能被满足的等待者不会被饿住.
+     */
+    @Test
+    public void testMixedAmounts() throws InterruptedException {
+        StockCounter stock = new StockCounter(10);
+        AtomicInteger done = new AtomicInteger();
+        Thread big = new Thread(() -> {
+            try {
+                stock.take(8);
+                done.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        big.start();
+        while (!stock.hasWaitingTakers()) {
+            Thread.yield();
+        }
+        Thread small = new Thread(() -> {
+            try {
+                stock.take(2);
+                done.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        small.start();
+        stock.put(3);
+        small.join(5000);
+        Assert.assertFalse(small.isAlive());
+        Assert.assertEquals(1, done.get());
+        Assert.assertEquals(1, stock.available());
+        stock.put(7);
+        big.join(5000);
+        Assert.assertFalse(big.isAlive());
+        Assert.assertEquals(2, done.get());
+        Assert.assertEquals(0, stock.available());
+    }
+
+    /**
+     * 超时,中断和参数检查.
+     */
+    @Test
+    public void testTimeoutAndInterrupt() throws InterruptedException {
+        StockCounter stock = new StockCounter(2, 2);
+        Assert.assertFalse(stock.tryPut(1));
+        Assert.assertFalse(stock.tryPut(1, 10, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(stock.tryTake(2));
+        Assert.assertFalse(stock.tryTake(1, 10, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(stock.hasWaitingTakers());
+
+        AtomicInteger interrupted = new AtomicInteger();
+        Thread waiter = new Thread(() -> {
+            try {
+                stock.take(1);
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+            }
+        });
+        waiter.start();
+        while (!stock.hasWaitingTakers()) {
+            Thread.yield();
+        }
+        waiter.interrupt();
+        waiter.join(5000);
+        Assert.assertEquals(1, interrupted.get());
+        Assert.assertFalse(stock.hasWaitingTakers());
+
+        try {
+            stock.tryTake(3);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            LOGGER.info("参数错误:{}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 条带计数器测试.
+ */
+public class StripedCounterTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StripedCounterTest.class);
+
+    private static void runAll(int threads, Runnable task) throws InterruptedException {
+        List<Thread> list = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            list.add(new Thread(task));
+        }
+        list.forEach(Thread::start);
+        for (Thread t : list) {
+            t.join();
+        }
+    }
+
+    /**
+     * 多线程自增后总数准确.
+     */
+    @Test
+    public void testSum() throws InterruptedException {
+        StripedCounter counter = new StripedCounter();
+        runAll(8, () -> {
+            for (int i = 0; i < 100000; i++) {
+                counter.increment();
+            }
+            counter.add(-10);
+        });
+        LOGGER.info("cell数:{}", counter.stripes());
+        Assert.assertEquals(8 * (100000 - 10), counter.sum());
+        Assert.assertEquals(8 * (100000 - 10), counter.sumThenReset());
+        Assert.assertEquals(0, counter.sum());
+        Assert.assertTrue(counter.stripes() <= Striped.MAX_CELLS);
+    }
+
+    /**
+     * 近似读在过期前返回缓存的值.
+     */
+    @Test
+    public void testApproximateSum() throws InterruptedException {
+        StripedCounter counter = new StripedCounter(100, TimeUnit.MILLISECONDS);
+        counter.add(5);
+        Assert.assertEquals(5, counter.approximateSum());
+        counter.add(5);
+        Assert.assertEquals(5, counter.approximateSum());
+        Assert.assertEquals(10, counter.sum());
+        TimeUnit.MILLISECONDS.sleep(150);
+        Assert.assertEquals(10, counter.approximateSum());
+    }
+
+    /**
+     * 多线程同时加减,值始终不越界,结束时与成功的操作数一致.
+     */
+    @Test
+    public void testBounded() throws InterruptedException {
+        BoundedCounter counter = new BoundedCounter(0, 100, 0);
+        StripedCounter succeeded = new StripedCounter();
+        StripedCounter violations = new StripedCounter();
+        runAll(8, () -> {
+            for (int i = 0; i < 100000; i++) {
+                if (counter.tryIncrement())
+                    succeeded.increment();
+                long v = counter.get();
+                if (v < 0 || v > 100)
+                    violations.increment();
+                if ((i & 1) == 0 && counter.tryDecrement())
+                    succeeded.decrement();
+            }
+        });
+        LOGGER.info("最终值:{},cell数:{}", counter.get(), counter.cells == null ? 0 : counter.cells.length);
+        Assert.assertEquals(0, violations.sum());
+        Assert.assertEquals(succeeded.sum(), counter.get());
+        Assert.assertTrue(counter.get() <= 100);
+    }
+
+    /**
+     * 到达上下限时拒绝,额度分散在cell中时也能用满.
+     */
+    @Test
+    public void testBoundedLimits() throws InterruptedException {
+        BoundedCounter counter = new BoundedCounter(-5, 5, 0);
+        Assert.assertFalse(counter.tryAdd(6));
+        Assert.assertTrue(counter.tryAdd(5));
+        Assert.assertFalse(counter.tryIncrement());
+        Assert.assertTrue(counter.tryAdd(-10));
+        Assert.assertFalse(counter.tryDecrement());
+        Assert.assertEquals(-5, counter.get());
+        Assert.assertFalse(counter.tryAdd(Long.MIN_VALUE));
+
+        BoundedCounter shared = new BoundedCounter(0, 1000, 0);
+        shared.initCells();
+        runAll(4, () -> {
+            while (shared.tryIncrement()) {
+                Thread.yield();
+            }
+        });
+        //并发回收时可能保守地拒绝,没有并发时剩余的额度一定能用完.
+        while (shared.tryIncrement()) ;
+        Assert.assertEquals(1000, shared.get());
+        Assert.assertTrue(shared.tryAdd(-1000));
+        Assert.assertEquals(0, shared.get());
+        try {
+            new BoundedCounter(0, 1L << 32, 0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            LOGGER.info("跨度超过int范围");
+        }
+    }
+}
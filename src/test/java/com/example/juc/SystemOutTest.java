@@ -3,7 +3,6 @@ package com.example.juc;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import sun.misc.Contended;
 
 import java.time.LocalDateTime;
 import java.util.concurrent.TimeUnit;
@@ -104,10 +103,13 @@ public class SystemOutTest {
     }
 
     /**
-     * 持有一个布尔值
+     * 持有一个布尔值.
+     * 原先用@Contended隔开几个holder的flag,改为手工填充(原因见{@link PaddedAtomicLong}):
+     * 字段布局时long排在boolean之前,flag前有56字节,连续分配的holder的flag不会落在同一缓存行.
+     * 这里要演示的是非volatile字段的可见性,因此不能换成volatile的PaddedFlag.
      */
     private class BooleanHolder{
-        @Contended
+        long p1, p2, p3, p4, p5, p6, p7;
         boolean flag = false;
     }
 
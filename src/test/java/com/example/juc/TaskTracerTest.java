@@ -0,0 +1,150 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 任务跟踪测试,用报告代替ForkJoinTest.testParallel中按线程名逐元素打日志.
+ */
+public class TaskTracerTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskTracerTest.class);
+
+    private static final int[] ARRAY = new int[1 << 20];
+
+    static {
+        for (int i = 0; i < ARRAY.length; i++) {
+            ARRAY[i] = i;
+        }
+    }
+
+    private static class Sum extends TracedRecursiveTask<Long> {
+        final int lo, hi;
+
+        Sum(TaskTracer tracer, int lo, int hi) {
+            super(tracer, hi - lo);
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Long computeTraced() {
+            if (hi - lo <= 1024) {
+                long sum = 0;
+                for (int i = lo; i < hi; i++) {
+                    sum += ARRAY[i];
+                }
+                return sum;
+            }
+            int mid = (lo + hi) >>> 1;
+            Sum left = new Sum(tracer, lo, mid);
+            left.fork();
+            return new Sum(tracer, mid, hi).compute() + left.join();
+        }
+    }
+
+    /**
+     * 每个任务都被分类,且只被分类一次.每个任务都记录耗时.
+     */
+    @Test
+    public void testRecursiveTask() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        TaskTracer tracer = new TaskTracer(0);
+        long sum = pool.invoke(new Sum(tracer, 0, ARRAY.length));
+        pool.awaitQuiescence(1, TimeUnit.SECONDS);
+        TaskTracer.Report report = tracer.report();
+        LOGGER.info("RecursiveTask:{}", report);
+        Assert.assertEquals((long) ARRAY.length * (ARRAY.length - 1) / 2, sum);
+        //1024个叶子,1023个内部节点.
+        Assert.assertEquals(2047, report.getTaskCount());
+        Assert.assertEquals(2047, report.getLocalCount() + report.getStolenCount()
+                + report.getSubmittedCount() + report.getExternalCount());
+        //main线程创建的root由worker执行,计为外部提交,不计为偷取.
+        Assert.assertEquals(1, report.getSubmittedCount());
+        Assert.assertEquals(2047, report.getExecHistogram().count());
+        Assert.assertEquals(1024, report.getSizeHistogram()[LatencyHistogram.bucket(1024)]);
+        pool.shutdown();
+    }
+
+    private static class Visit extends TracedCountedCompleter<Void> {
+        final AtomicLong sum;
+        final int lo, hi;
+
+        Visit(TaskTracer tracer, AtomicLong sum, int lo, int hi) {
+            super(tracer, hi - lo);
+            this.sum = sum;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        Visit(Visit parent, int lo, int hi) {
+            super(parent, hi - lo);
+            this.sum = parent.sum;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void computeTraced() {
+            int l = lo, h = hi;
+            while (h - l > 1024) {
+                int mid = (l + h) >>> 1;
+                addToPendingCount(1);
+                new Visit(this, mid, h).fork();
+                h = mid;
+            }
+            long s = 0;
+            for (int i = l; i < h; i++) {
+                s += ARRAY[i];
+            }
+            sum.addAndGet(s);
+            tryComplete();
+        }
+    }
+
+    /**
+     * 由主线程invoke,root在主线程执行,主线程join时可能帮助执行common池中的子任务,计为外部帮助.
+     * 只记录1/8任务的耗时.
+     */
+    @Test
+    public void testCountedCompleter() {
+        TaskTracer tracer = new TaskTracer(3);
+        AtomicLong sum = new AtomicLong();
+        new Visit(tracer, sum, 0, ARRAY.length).invoke();
+        ForkJoinPool.commonPool().awaitQuiescence(1, TimeUnit.SECONDS);
+        TaskTracer.Report report = tracer.report();
+        LOGGER.info("CountedCompleter:{}", report);
+        Assert.assertEquals((long) ARRAY.length * (ARRAY.length - 1) / 2, sum.get());
+        Assert.assertEquals(1024, report.getTaskCount());
+        Assert.assertEquals(1024, report.getLocalCount() + report.getStolenCount()
+                + report.getSubmittedCount() + report.getExternalCount());
+        Assert.assertTrue(report.getLocalCount() >= 1);
+        long sampled = report.getExecHistogram().count();
+        Assert.assertTrue(sampled > 0 && sampled < 1024);
+    }
+
+    /**
+     * 已终止线程的统计并入汇总后移除,计数不丢失.
+     */
+    @Test
+    public void testRetiredThreads() throws InterruptedException {
+        TaskTracer tracer = new TaskTracer(0);
+        for (int i = 0; i < 8; i++) {
+            Thread t = new Thread(() -> new Sum(tracer, 0, 1024).invoke());
+            t.start();
+            t.join();
+        }
+        Assert.assertEquals(1, tracer.stats.size());//最后一个线程,在下一次登记或report时移除.
+        TaskTracer.Report report = tracer.report();
+        Assert.assertEquals(0, tracer.stats.size());
+        Assert.assertEquals(8, report.getTaskCount());
+        Assert.assertEquals(8, report.getLocalCount());
+        Assert.assertEquals(8, report.getExecHistogram().count());
+    }
+}
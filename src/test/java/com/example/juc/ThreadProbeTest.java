@@ -0,0 +1,104 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 线程探针与xorshift参数测试.
+ */
+public class ThreadProbeTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThreadProbeTest.class);
+
+    /**
+     * ForkJoinTest.testEvenOrOdd等分析的三组参数周期都是2^32-1.
+     * 反例:每一步x^=x<<k或x^=x>>>k都可逆,1/1/1也是可逆变换,只是它的阶不是2^32-1,周期不满.
+     */
+    @Test
+    public void testTriples() {
+        Assert.assertTrue(ThreadProbe.isFullPeriod(13, 17, 5));
+        Assert.assertTrue(ThreadProbe.isFullPeriod(1, 3, 10));
+        Assert.assertTrue(ThreadProbe.isFullPeriod(6, 21, 7));
+        Assert.assertFalse(ThreadProbe.isFullPeriod(1, 1, 1));
+        Assert.assertFalse(ThreadProbe.isFullPeriod(13, 17, 6));
+        int full = 0;
+        for (int a = 1; a < 32; a++) {
+            for (int b = 1; b < 32; b++) {
+                for (int c = 1; c < 32; c++) {
+                    if (ThreadProbe.isFullPeriod(a, b, c))
+                        full++;
+                }
+            }
+        }
+        //Marsaglia列出的32位参数为81组,每组按<<a>>>b<<c和<<c>>>b<<a两种顺序都满周期.
+        LOGGER.info("满周期的参数组数:{}", full);
+        Assert.assertEquals(162, full);
+    }
+
+    /**
+     * 探针只在advance时改变;各线程的探针不同,低位分布均匀.
+     */
+    @Test
+    public void testProbes() throws Exception {
+        int probe = ThreadProbe.get();
+        Assert.assertNotEquals(0, probe);
+        Assert.assertEquals(probe, ThreadProbe.get());
+        ThreadProbe.nextInt();
+        Assert.assertEquals(probe, ThreadProbe.get());
+        int advanced = ThreadProbe.advance();
+        Assert.assertEquals(ThreadProbe.xorshift(probe), advanced);
+        Assert.assertEquals(advanced, ThreadProbe.get());
+
+        int threads = 1024, buckets = 16;
+        Set<Integer> probes = ConcurrentHashMap.newKeySet();
+        int[] counts = new int[buckets];
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                int p = ThreadProbe.get();
+                probes.add(p);
+                synchronized (counts) {
+                    counts[p & (buckets - 1)]++;
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        Assert.assertEquals(threads, probes.size());
+        //卡方检验,自由度15,p=0.001时的临界值为37.7.
+        double expected = (double) threads / buckets, chi = 0.0;
+        for (int c : counts) {
+            chi += (c - expected) * (c - expected) / expected;
+        }
+        LOGGER.info("各条带线程数:{},卡方:{}", counts, chi);
+        Assert.assertTrue(chi < 37.7);
+    }
+
+    @Test
+    public void testNextInt() {
+        int bound = 10, n = 100000;
+        int[] counts = new int[bound];
+        for (int i = 0; i < n; i++) {
+            counts[ThreadProbe.nextInt(bound)]++;
+        }
+        double expected = (double) n / bound, chi = 0.0;
+        for (int c : counts) {
+            chi += (c - expected) * (c - expected) / expected;
+        }
+        LOGGER.info("nextInt(10)分布:{},卡方:{}", counts, chi);
+        //自由度9,p=0.001时的临界值为27.9.
+        Assert.assertTrue(chi < 27.9);
+        try {
+            ThreadProbe.nextInt(0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            LOGGER.info("bound必须为正");
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 平台线程/虚拟线程切换测试.jdk8下运行在平台线程上,jdk21下由java21 profile切换到虚拟线程.
+ */
+public class ThreadsTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThreadsTest.class);
+
+    /**
+     * 设置了juc.threads=virtual且可用时,线程确实是虚拟线程.newThread创建的线程编号递增.
+     */
+    @Test
+    public void testMode() throws InterruptedException {
+        boolean virtual = "virtual".equalsIgnoreCase(System.getProperty(Threads.MODE_PROPERTY))
+                && Threads.isVirtualAvailable();
+        Assert.assertEquals(virtual ? Threads.Mode.VIRTUAL : Threads.Mode.PLATFORM, Threads.mode());
+        String[] name = new String[1];
+        Thread t = Threads.newThread(() -> name[0] = Thread.currentThread().getClass().getSimpleName());
+        t.start();
+        t.join();
+        LOGGER.info("模式:{},线程类型:{}", Threads.mode(), name[0]);
+        Assert.assertEquals(virtual, name[0].contains("Virtual"));
+        Assert.assertNotEquals(t.getName(), Threads.newThread(() -> {
+        }).getName());
+    }
+
+    /**
+     * 与SemaphoreTest相同的vpp限流:每个客户一个线程,公平信号量限制同时服务的客户不超过10个.
+     */
+    @Test
+    public void testVppLimit() throws Exception {
+        Semaphore semaphore = new Semaphore(10, true);
+        AtomicInteger serving = new AtomicInteger();
+        AtomicInteger maxServing = new AtomicInteger();
+        ExecutorService pool = Threads.newPerTaskExecutor();
+        List<Future<?>> clients = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < 200; i++) {
+            clients.add(pool.submit(() -> {
+                semaphore.acquire();
+                try {
+                    int n = serving.incrementAndGet();
+                    maxServing.accumulateAndGet(n, Math::max);
+                    TimeUnit.MILLISECONDS.sleep(20);
+                    serving.decrementAndGet();
+                } finally {
+                    semaphore.release();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> client : clients) {
+            client.get();
+        }
+        pool.shutdown();
+        LOGGER.info("同时服务的最大客户数:{},耗时:{}ms", maxServing.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        Assert.assertTrue(maxServing.get() <= 10);
+        Assert.assertEquals(10, semaphore.availablePermits());
+    }
+
+    /**
+     * 与CyclicBarrierTest相同的初始化流程:5个vsd初始化完成后执行一次屏障动作,再各自进入后置逻辑.
+     */
+    @Test
+    public void testBarrierInit() throws Exception {
+        AtomicInteger inited = new AtomicInteger();
+        AtomicInteger seenByAction = new AtomicInteger(-1);
+        CyclicBarrier barrier = new CyclicBarrier(5, () -> seenByAction.set(inited.get()));
+        CountDownLatch after = new CountDownLatch(5);
+        for (int i = 0; i < 5; i++) {
+            Threads.newThread(() -> {
+                inited.incrementAndGet();
+                try {
+                    barrier.await();
+                    after.countDown();
+                } catch (Exception e) {
+                    LOGGER.error("vsd初始化失败", e);
+                }
+            }).start();
+        }
+        Assert.assertTrue(after.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(5, seenByAction.get());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.juc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 节点复用的无锁栈测试.
+ */
+public class TreiberStackTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TreiberStackTest.class);
+
+    /**
+     * 后进先出,节点用完时push失败,弹出后可再次使用.
+     */
+    @Test
+    public void testPushPop() {
+        TreiberStack<Integer> stack = new TreiberStack<>(3);
+        Assert.assertTrue(stack.isEmpty());
+        Assert.assertNull(stack.pop());
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(stack.push(i));
+        }
+        Assert.assertFalse(stack.push(3));
+        Assert.assertEquals(2, (int) stack.peek());
+        Assert.assertEquals(2, (int) stack.pop());
+        Assert.assertTrue(stack.push(4));
+        Assert.assertEquals(4, (int) stack.pop());
+        Assert.assertEquals(1, (int) stack.pop());
+        Assert.assertEquals(0, (int) stack.pop());
+        Assert.assertTrue(stack.isEmpty());
+    }
+
+    /**
+     * 小容量下多线程反复压入弹出,节点被频繁复用,每个元素恰好弹出一次.
+     */
+    @Test
+    public void testConcurrentReuse() throws InterruptedException {
+        TreiberStack<Integer> stack = new TreiberStack<>(8);
+        int threads = 4, perThread = 200000;
+        BitSet[] popped = new BitSet[threads];
+        List<Thread> list = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            BitSet seen = popped[t] = new BitSet();
+            int base = t * perThread;
+            list.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    while (!stack.push(base + i)) {
+                        Integer e = stack.pop();
+                        if (e != null)
+                            seen.set(e);
+                    }
+                    Integer e = stack.pop();
+                    if (e != null)
+                        seen.set(e);
+                }
+            }));
+        }
+        list.forEach(Thread::start);
+        for (Thread t : list) {
+            t.join();
+        }
+        BitSet all = new BitSet();
+        int count = 0;
+        for (BitSet seen : popped) {
+            count += seen.cardinality();
+            all.or(seen);
+        }
+        for (Integer e; (e = stack.pop()) != null; ) {
+            count++;
+            all.set(e);
+        }
+        LOGGER.info("弹出:{}", count);
+        Assert.assertEquals(threads * perThread, count);
+        Assert.assertEquals(threads * perThread, all.cardinality());
+    }
+}
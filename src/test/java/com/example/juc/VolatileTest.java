@@ -9,8 +9,6 @@ import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * volatile禁用重排序test
@@ -21,6 +19,10 @@ import java.util.concurrent.locks.ReentrantLock;
 public class VolatileTest {
 
     private static Logger LOGGER = LoggerFactory.getLogger(VolatileTest.class);
+    /**
+     * 蜜蜂与熊的循环中每次操作都打日志,走异步日志,避免log4j的同步输出成为临界区之外的竞争点.
+     */
+    private static final AsyncLogger ASYNC_LOGGER = AsyncLog.console().getLogger(VolatileTest.class);
     private int stub = 0;
     private volatile boolean flag = false;
 
@@ -61,8 +63,7 @@ public class VolatileTest {
     }
 
 
-    private volatile int honey;
-    private Lock honeyLock = new ReentrantLock();
+    private StockCounter honey = new StockCounter(10);
     private CountDownLatch latch = new CountDownLatch(100);
 
     /**
@@ -70,9 +71,11 @@ public class VolatileTest {
      * 共10只蜜蜂,一头熊.
      * 蜂蜜最多生产10份,当份数满时,蜜蜂停工.
      * 熊可以偷吃蜂蜜,当蜂蜜被消耗干将时,熊休眠.
+     * 库存由StockCounter维护,停工/休眠是park,有蜂蜜/空位时被直接唤醒,不再轮询和sleep.
      */
     @Test
     public void testBeerAndBee() {
+        long start = System.nanoTime();
         //熊
         new Thread(this::eatHoney).start();
         //蜜蜂
@@ -88,6 +91,7 @@ public class VolatileTest {
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
+        LOGGER.info("熊吃完100份蜂蜜,耗时:{}us", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
     }
 
     private void sleepLongTime(int seconds) {
@@ -99,47 +103,25 @@ public class VolatileTest {
     }
 
     private void eatHoney() {
-        int i = 0;
-        while (i < 100) {
-            if (this.honey > 0) {
-                honeyLock.lock();
-                if (this.honey > 0) {
-                    LOGGER.info("熊要开始吃蜂蜜了,吃之前还剩{}个蜂蜜", this.honey);
-                    this.honey--;
-                    i++;
-                    latch.countDown();
-                    LOGGER.info("熊吃了一次蜂蜜,还剩{}个蜂蜜,吃蜜次数:{}", this.honey, i);
-                    honeyLock.unlock();
-                    Thread.yield();
-                } else {
-                    LOGGER.info("当前没有蜂蜜可消费:{},熊要休眠了", this.honey);
-                    honeyLock.unlock();
-                    Thread.yield();
-                    sleepOneSecond();
-                }
+        try {
+            for (int i = 1; i <= 100; i++) {
+                honey.take(1);
+                latch.countDown();
+                ASYNC_LOGGER.info("熊吃了一次蜂蜜,还剩{}个蜂蜜,吃蜜次数:{}", honey.available(), i);
             }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
         }
     }
 
     private void produceHoney(int number) {
-        int i = 0;
-        while (i < 10) {
-            if (this.honey < 10) {
-                honeyLock.lock();
-                if (this.honey < 10) {
-                    LOGGER.info("蜜蜂{}要开始生产蜂蜜了,此时蜂蜜存量:{}", number, this.honey);
-                    this.honey++;
-                    i++;
-                    LOGGER.info("蜜蜂{}生产了一份蜂蜜,蜂蜜存量:{},生产次数:{}", number, this.honey, i);
-                    honeyLock.unlock();
-                    Thread.yield();
-                } else {
-                    LOGGER.info("蜂蜜已满,蜜蜂:{}进入休眠模式", number);
-                    honeyLock.unlock();
-                    Thread.yield();
-                    sleepOneSecond();
-                }
+        try {
+            for (int i = 1; i <= 10; i++) {
+                honey.put(1);
+                ASYNC_LOGGER.info("蜜蜂{}生产了一份蜂蜜,蜂蜜存量:{},生产次数:{}", number, honey.available(), i);
             }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
         }
     }
 